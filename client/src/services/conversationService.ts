@@ -56,9 +56,13 @@ export class ConversationService {
     this.apiClient = ApiClient.getInstance();
   }
 
-  // GET /api/conversations - Get user's conversations
-  async getUserConversations(): Promise<Conversation[]> {
-    const response = await this.apiClient.request('/api/conversations', {
+  // GET /api/conversations?cursor=&size= - One page of the user's conversations, most recent activity first
+  async getConversationsPage(cursor?: string, size = 50): Promise<{ conversations: Conversation[]; nextCursor: string | null }> {
+    const params = new URLSearchParams({ size: String(size) });
+    if (cursor) {
+      params.set('cursor', cursor);
+    }
+    const response = await this.apiClient.request(`/api/conversations?${params.toString()}`, {
       method: 'GET',
     });
 
@@ -68,6 +72,18 @@ export class ConversationService {
     }
 
     const conversations = await response.json();
+    return { conversations, nextCursor: response.headers.get('X-Next-Cursor') };
+  }
+
+  // Get all of the user's conversations, following X-Next-Cursor page by page
+  async getUserConversations(): Promise<Conversation[]> {
+    const conversations: Conversation[] = [];
+    let cursor: string | undefined;
+    do {
+      const page = await this.getConversationsPage(cursor);
+      conversations.push(...page.conversations);
+      cursor = page.nextCursor ?? undefined;
+    } while (cursor);
     return conversations;
   }
 
@@ -289,8 +289,9 @@ class WebSocketService {
         return; // Don't process further
       }
       
-      // Handle presence_sync - route to target user listener, or broadcast to all user listeners if no target
-      if (eventType === 'presence_sync') {
+      // Handle presence_sync and conversation presence (shared frame without targetUserId) - route to target
+      // user listener, or broadcast to all user listeners if no target
+      if (eventType === 'presence_sync' || (eventType === 'presence' && !targetUserId)) {
         if (targetUserId && this.userListeners.has(targetUserId)) {
           this.userListeners.get(targetUserId)!.forEach((listener) => listener(payload));
         } else {
@@ -0,0 +1,46 @@
+package com.example.server.archive.model;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable run of archived messages of one conversation, oldest first. data holds independently
+ * deflate-compressed blocks of JSON messages; blocks is the sparse index locating each of them, so a read
+ * inflates only the blocks it needs.
+ */
+@Getter
+@Setter
+@Document(collection = "message_archive")
+public class MessageArchiveSegment {
+    // conversationId:id of the oldest message, so re-archiving the same run replaces the segment
+    @Id
+    private String id;
+
+    private String conversationId;
+    private int count;
+    private Instant firstCreatedAt;
+    private Instant lastCreatedAt;
+    private Instant archivedAt;
+
+    private List<Block> blocks = new ArrayList<>();
+
+    private byte[] data;
+
+    @Getter
+    @Setter
+    public static class Block {
+        private int offset;
+        private int length;
+        private int count;
+        private Instant firstCreatedAt;
+        private String firstId;
+        private Instant lastCreatedAt;
+        private String lastId;
+    }
+}
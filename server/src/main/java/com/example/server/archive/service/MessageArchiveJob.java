@@ -0,0 +1,146 @@
+package com.example.server.archive.service;
+
+import com.example.server.archive.model.MessageArchiveSegment;
+import com.example.server.chat.model.Conversation;
+import com.example.server.message.model.Message;
+import com.example.server.message.service.MessageBucketStore;
+import com.example.server.outbox.service.OutboxLeaseManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Moves messages older than app.messages.archive.age out of messages into archive segments, oldest first,
+ * up to segment-size messages per segment. Conversations with fewer than min-segment-size archivable messages
+ * are left alone so slow conversations do not produce a stream of tiny segments.
+ *
+ * A segment is written and announced before its messages are deleted, and its id is derived from its oldest
+ * message, so a run interrupted in between rewrites the same segment next time. Each message is then deleted only
+ * if its createdAt and updatedAt still match the archived copy; a message edited or deleted in between stays as
+ * the user left it, and the segment is rewritten from the messages that actually moved. Runs on the node holding
+ * outbox partition 0, rechecked before every segment, so replicas do not archive the same conversation concurrently.
+ */
+@Component
+@ConditionalOnProperty(name = "app.messages.archive.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class MessageArchiveJob {
+
+    private final MongoTemplate mongoTemplate;
+    private final MessageArchiveStore archiveStore;
+    private final MessageBucketStore bucketStore;
+    private final OutboxLeaseManager leaseManager;
+
+    @Value("${app.messages.archive.age:P90D}")
+    private Duration age;
+
+    @Value("${app.messages.archive.segment-size:1000}")
+    private int segmentSize;
+
+    @Value("${app.messages.archive.min-segment-size:100}")
+    private int minSegmentSize;
+
+    @Value("${app.messages.archive.max-segments-per-run:500}")
+    private int maxSegmentsPerRun;
+
+    @Scheduled(fixedDelayString = "${app.messages.archive.interval-ms:3600000}", initialDelay = 120000)
+    public void archive() {
+        if (!leaseManager.owns(0)) {
+            return;
+        }
+        long startedAt = System.currentTimeMillis();
+        Instant cutoff = Instant.ofEpochMilli(startedAt).minus(age);
+        int segments = 0;
+        long messages = 0;
+
+        Query all = new Query();
+        all.fields().include("_id");
+        try (Stream<Conversation> stream = mongoTemplate.stream(all, Conversation.class)) {
+            Iterator<Conversation> conversations = stream.iterator();
+            boolean owner = true;
+            while (owner && conversations.hasNext() && segments < maxSegmentsPerRun) {
+                String conversationId = conversations.next().getId();
+                try {
+                    while (segments < maxSegmentsPerRun) {
+                        owner = leaseManager.owns(0);
+                        if (!owner) {
+                            log.info("Lost outbox partition 0; stopping the archive run");
+                            break;
+                        }
+                        int archived = archiveSegment(conversationId, cutoff);
+                        if (archived == 0) {
+                            break;
+                        }
+                        segments++;
+                        messages += archived;
+                        if (archived < segmentSize) {
+                            break;
+                        }
+                    }
+                } catch (Exception ex) {
+                    log.warn("Archiving failed for conversation {}", conversationId, ex);
+                }
+            }
+        }
+        if (segments > 0) {
+            log.info("Archived {} messages older than {} into {} segments in {} ms",
+                    messages, cutoff, segments, System.currentTimeMillis() - startedAt);
+        }
+    }
+
+    /**
+     * Archive the oldest run of one conversation; returns how many messages were moved
+     */
+    public int archiveSegment(String conversationId, Instant cutoff) {
+        Query oldest = Query.query(Criteria.where("conversationId").is(conversationId).and("createdAt").lt(cutoff))
+                .with(Sort.by(Sort.Direction.ASC, "createdAt", "_id"))
+                .limit(segmentSize);
+        List<Message> run = mongoTemplate.find(oldest, Message.class);
+        if (run.size() < Math.max(1, minSegmentSize)) {
+            return 0;
+        }
+
+        MessageArchiveSegment segment = archiveStore.write(conversationId, run);
+        List<Message> moved = new ArrayList<>(run.size());
+        for (Message message : run) {
+            if (removeUnchanged(message)) {
+                moved.add(message);
+            }
+        }
+        if (moved.size() < run.size()) {
+            // Edited or deleted since the read: the segment holds stale copies of those, so keep only what moved
+            log.info("{} of {} messages in conversation {} changed while being archived; rewriting segment {}",
+                    run.size() - moved.size(), run.size(), conversationId, segment.getId());
+            MessageArchiveSegment rewritten = moved.isEmpty() ? null : archiveStore.write(conversationId, moved);
+            if (rewritten == null || !rewritten.getId().equals(segment.getId())) {
+                archiveStore.remove(conversationId, segment.getId());
+            }
+        }
+        bucketStore.removeArchived(conversationId, moved);
+        return moved.size();
+    }
+
+    /**
+     * Delete one message only if it still is the version that was archived
+     */
+    private boolean removeUnchanged(Message message) {
+        Query unchanged = Query.query(Criteria.where("_id").is(message.getId())
+                .and("createdAt").is(message.getCreatedAt())
+                .and("updatedAt").is(message.getUpdatedAt()));
+        return mongoTemplate.remove(unchanged, Message.class).getDeletedCount() > 0;
+    }
+}
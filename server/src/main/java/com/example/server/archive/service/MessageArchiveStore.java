@@ -0,0 +1,392 @@
+package com.example.server.archive.service;
+
+import com.example.server.archive.model.MessageArchiveSegment;
+import com.example.server.common.util.ExpiringLruCache;
+import com.example.server.infrastructure.redis.RedisPubSubService;
+import com.example.server.message.model.Message;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Cold tier of the messages collection: old messages moved out by MessageArchiveJob into immutable,
+ * deflate-compressed segments in message_archive.
+ *
+ * Each conversation's segment directory (everything but the compressed data, including the sparse block index)
+ * is kept in memory, so a read locates its blocks without touching Mongo and only inflates those. Recently
+ * decoded blocks are cached too, since paging back through the archive reads neighbouring blocks.
+ */
+@Service
+@Slf4j
+public class MessageArchiveStore {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+    private static final TypeReference<List<Message>> MESSAGE_LIST = new TypeReference<>() {};
+
+    private final MongoTemplate mongoTemplate;
+    private final RedisPubSubService redisPubSubService;
+    // Newest segment first
+    private final ExpiringLruCache<String, List<MessageArchiveSegment>> directories;
+    // Oldest message first, keyed by segmentId@archivedAt#block
+    private final ExpiringLruCache<String, List<Message>> blocks;
+
+    @Value("${app.messages.archive.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.messages.archive.block-size:64}")
+    private int blockSize;
+
+    public MessageArchiveStore(MongoTemplate mongoTemplate,
+                               RedisPubSubService redisPubSubService,
+                               @Value("${app.messages.archive.directory-cache.max-entries:10000}") int maxDirectories,
+                               @Value("${app.messages.archive.block-cache.max-entries:512}") int maxBlocks,
+                               @Value("${app.messages.archive.cache-ttl:PT10M}") Duration cacheTtl) {
+        this.mongoTemplate = mongoTemplate;
+        this.redisPubSubService = redisPubSubService;
+        this.directories = new ExpiringLruCache<>(maxDirectories, cacheTtl);
+        this.blocks = new ExpiringLruCache<>(maxBlocks, cacheTtl);
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            mongoTemplate.indexOps(MessageArchiveSegment.class).createIndex(new Index()
+                    .on("conversationId", Sort.Direction.ASC)
+                    .on("lastCreatedAt", Sort.Direction.DESC)
+                    .named("conv_last_created_idx"));
+        } catch (Exception ex) {
+            log.warn("Failed to ensure message archive indexes", ex);
+        }
+        try {
+            redisPubSubService.subscribeToArchiveChanges(directories::remove);
+        } catch (Exception ex) {
+            log.warn("Could not subscribe to archive changes; directories refresh after the cache ttl", ex);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Store a run of messages (oldest first) as one segment and make it visible to every replica.
+     * Call before the messages are removed from the hot collection.
+     */
+    public MessageArchiveSegment write(String conversationId, List<Message> oldestFirst) {
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        List<MessageArchiveSegment.Block> index = new ArrayList<>();
+        for (int from = 0; from < oldestFirst.size(); from += blockSize) {
+            List<Message> chunk = oldestFirst.subList(from, Math.min(oldestFirst.size(), from + blockSize));
+            byte[] compressed = deflate(chunk);
+            MessageArchiveSegment.Block block = new MessageArchiveSegment.Block();
+            block.setOffset(data.size());
+            block.setLength(compressed.length);
+            block.setCount(chunk.size());
+            block.setFirstCreatedAt(chunk.get(0).getCreatedAt());
+            block.setFirstId(chunk.get(0).getId());
+            block.setLastCreatedAt(chunk.get(chunk.size() - 1).getCreatedAt());
+            block.setLastId(chunk.get(chunk.size() - 1).getId());
+            index.add(block);
+            data.writeBytes(compressed);
+        }
+
+        MessageArchiveSegment segment = new MessageArchiveSegment();
+        segment.setId(conversationId + ":" + oldestFirst.get(0).getId());
+        segment.setConversationId(conversationId);
+        segment.setCount(oldestFirst.size());
+        segment.setFirstCreatedAt(oldestFirst.get(0).getCreatedAt());
+        segment.setLastCreatedAt(oldestFirst.get(oldestFirst.size() - 1).getCreatedAt());
+        segment.setArchivedAt(Instant.now());
+        segment.setBlocks(index);
+        segment.setData(data.toByteArray());
+        mongoTemplate.save(segment);
+
+        directories.remove(conversationId);
+        try {
+            redisPubSubService.publishArchiveChanged(conversationId);
+        } catch (Exception ex) {
+            log.warn("Failed to announce archive change for conversation {}", conversationId, ex);
+        }
+        return segment;
+    }
+
+    /**
+     * Drop one segment, e.g. when it was written for messages that then stayed in the hot collection
+     */
+    public void remove(String conversationId, String segmentId) {
+        mongoTemplate.remove(Query.query(Criteria.where("_id").is(segmentId)), MessageArchiveSegment.class);
+        directories.remove(conversationId);
+        try {
+            redisPubSubService.publishArchiveChanged(conversationId);
+        } catch (Exception ex) {
+            log.warn("Failed to announce archive change for conversation {}", conversationId, ex);
+        }
+    }
+
+    /**
+     * Up to count archived messages strictly older than (at, id), or the newest archived ones when at is null;
+     * newest first
+     */
+    public List<Message> olderThan(String conversationId, Instant at, String id, int count) {
+        List<Message> result = new ArrayList<>(Math.max(0, count));
+        if (!enabled || count <= 0) {
+            return result;
+        }
+        for (MessageArchiveSegment segment : directory(conversationId)) {
+            SegmentData data = new SegmentData(segment);
+            for (int b = segment.getBlocks().size() - 1; b >= 0; b--) {
+                MessageArchiveSegment.Block block = segment.getBlocks().get(b);
+                if (at != null && !isOlder(block.getFirstCreatedAt(), block.getFirstId(), at, id)) {
+                    // Not even the block's oldest message is older than the cursor
+                    continue;
+                }
+                List<Message> messages = data.block(b);
+                for (int i = messages.size() - 1; i >= 0; i--) {
+                    Message message = messages.get(i);
+                    if (at == null || isOlder(message.getCreatedAt(), message.getId(), at, id)) {
+                        result.add(message);
+                        if (result.size() == count) {
+                            return result;
+                        }
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Up to count archived messages strictly newer than (at, id), oldest first
+     */
+    public List<Message> newerThan(String conversationId, Instant at, String id, int count) {
+        List<Message> result = new ArrayList<>(Math.max(0, count));
+        if (!enabled || count <= 0) {
+            return result;
+        }
+        List<MessageArchiveSegment> directory = directory(conversationId);
+        for (int s = directory.size() - 1; s >= 0; s--) {
+            MessageArchiveSegment segment = directory.get(s);
+            SegmentData data = new SegmentData(segment);
+            for (int b = 0; b < segment.getBlocks().size(); b++) {
+                MessageArchiveSegment.Block block = segment.getBlocks().get(b);
+                if (!isOlder(at, id, block.getLastCreatedAt(), block.getLastId())) {
+                    // Not even the block's newest message is newer than the cursor
+                    continue;
+                }
+                for (Message message : data.block(b)) {
+                    if (isOlder(at, id, message.getCreatedAt(), message.getId())) {
+                        result.add(message);
+                        if (result.size() == count) {
+                            return result;
+                        }
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Offset paging over the archive, newest first; whole segments and blocks are skipped by their counts
+     */
+    public List<Message> page(String conversationId, long offset, int count) {
+        List<Message> result = new ArrayList<>(Math.max(0, count));
+        if (!enabled || count <= 0) {
+            return result;
+        }
+        long skip = offset;
+        for (MessageArchiveSegment segment : directory(conversationId)) {
+            if (skip >= segment.getCount()) {
+                skip -= segment.getCount();
+                continue;
+            }
+            SegmentData data = new SegmentData(segment);
+            for (int b = segment.getBlocks().size() - 1; b >= 0; b--) {
+                MessageArchiveSegment.Block block = segment.getBlocks().get(b);
+                if (skip >= block.getCount()) {
+                    skip -= block.getCount();
+                    continue;
+                }
+                List<Message> messages = data.block(b);
+                for (int i = messages.size() - 1 - (int) skip; i >= 0; i--) {
+                    result.add(messages.get(i));
+                    if (result.size() == count) {
+                        return result;
+                    }
+                }
+                skip = 0;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Visit archived messages strictly newer than (at, id), or all of them when at is null, oldest first.
+     * One segment's data is held at a time and decoded blocks bypass the cache, so full scans (exports)
+     * run in constant memory without evicting the blocks of interactive reads.
+     */
+    public void forEachNewerThan(String conversationId, Instant at, String id, Consumer<Message> visitor) {
+        if (!enabled) {
+            return;
+        }
+        List<MessageArchiveSegment> directory = directory(conversationId);
+        for (int s = directory.size() - 1; s >= 0; s--) {
+            MessageArchiveSegment segment = directory.get(s);
+            MessageArchiveSegment.Block last = segment.getBlocks().get(segment.getBlocks().size() - 1);
+            if (at != null && !isOlder(at, id, last.getLastCreatedAt(), last.getLastId())) {
+                continue;
+            }
+            Query query = Query.query(Criteria.where("_id").is(segment.getId()));
+            query.fields().include("data");
+            MessageArchiveSegment stored = mongoTemplate.findOne(query, MessageArchiveSegment.class);
+            if (stored == null || stored.getData() == null) {
+                continue;
+            }
+            for (MessageArchiveSegment.Block block : segment.getBlocks()) {
+                if (at != null && !isOlder(at, id, block.getLastCreatedAt(), block.getLastId())) {
+                    continue;
+                }
+                for (Message message : inflate(stored.getData(), block)) {
+                    if (at == null || isOlder(at, id, message.getCreatedAt(), message.getId())) {
+                        visitor.accept(message);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * An archived message by id, located through the block index by its createdAt
+     */
+    public Optional<Message> find(String conversationId, Instant createdAt, String messageId) {
+        return find(conversationId, createdAt, createdAt, messageId);
+    }
+
+    /**
+     * An archived message by id whose createdAt is only known to lie in [notBefore, notAfter], e.g. from the
+     * timestamp of its ObjectId; only blocks overlapping that range are read
+     */
+    public Optional<Message> find(String conversationId, Instant notBefore, Instant notAfter, String messageId) {
+        if (!enabled || notBefore == null || notAfter == null) {
+            return Optional.empty();
+        }
+        for (MessageArchiveSegment segment : directory(conversationId)) {
+            if (notAfter.isBefore(segment.getFirstCreatedAt()) || notBefore.isAfter(segment.getLastCreatedAt())) {
+                continue;
+            }
+            SegmentData data = new SegmentData(segment);
+            for (int b = 0; b < segment.getBlocks().size(); b++) {
+                MessageArchiveSegment.Block block = segment.getBlocks().get(b);
+                if (notAfter.isBefore(block.getFirstCreatedAt()) || notBefore.isAfter(block.getLastCreatedAt())) {
+                    continue;
+                }
+                for (Message message : data.block(b)) {
+                    if (message.getId().equals(messageId)) {
+                        return Optional.of(message);
+                    }
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    private List<MessageArchiveSegment> directory(String conversationId) {
+        List<MessageArchiveSegment> directory = directories.get(conversationId);
+        if (directory == null) {
+            Query query = Query.query(Criteria.where("conversationId").is(conversationId))
+                    .with(Sort.by(Sort.Direction.DESC, "lastCreatedAt"));
+            query.fields().exclude("data");
+            directory = List.copyOf(mongoTemplate.find(query, MessageArchiveSegment.class));
+            directories.put(conversationId, directory);
+        }
+        return directory;
+    }
+
+    private static boolean isOlder(Instant createdAt, String id, Instant thanCreatedAt, String thanId) {
+        int byTime = createdAt.compareTo(thanCreatedAt);
+        return byTime < 0 || (byTime == 0 && thanId != null && id.compareTo(thanId) < 0);
+    }
+
+    private static byte[] deflate(List<Message> messages) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (DeflaterOutputStream deflater = new DeflaterOutputStream(out, new Deflater(Deflater.BEST_COMPRESSION))) {
+            OBJECT_MAPPER.writeValue(deflater, messages);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to encode archive block", ex);
+        }
+        return out.toByteArray();
+    }
+
+    private static List<Message> inflate(byte[] data, MessageArchiveSegment.Block block) {
+        try (InflaterInputStream in = new InflaterInputStream(
+                new ByteArrayInputStream(data, block.getOffset(), block.getLength()))) {
+            return OBJECT_MAPPER.readValue(in, MESSAGE_LIST);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Corrupt archive block", ex);
+        }
+    }
+
+    /**
+     * Blocks of one segment for the duration of a read; the compressed data is fetched at most once,
+     * and only when a block is not cached
+     */
+    private final class SegmentData {
+        private final MessageArchiveSegment segment;
+        private byte[] data;
+
+        private SegmentData(MessageArchiveSegment segment) {
+            this.segment = segment;
+        }
+
+        private List<Message> block(int index) {
+            // archivedAt tells a rewritten segment apart from the copy it replaced under the same id
+            String key = segment.getId() + "@" + segment.getArchivedAt().toEpochMilli() + "#" + index;
+            List<Message> messages = blocks.get(key);
+            if (messages == null) {
+                if (data == null) {
+                    Query query = Query.query(Criteria.where("_id").is(segment.getId())
+                            .and("archivedAt").is(segment.getArchivedAt()));
+                    query.fields().include("data");
+                    MessageArchiveSegment stored = mongoTemplate.findOne(query, MessageArchiveSegment.class);
+                    data = stored != null && stored.getData() != null ? stored.getData() : new byte[0];
+                }
+                messages = data.length > 0 ? inflate(data, segment.getBlocks().get(index)) : List.of();
+                blocks.put(key, messages);
+            }
+            return messages;
+        }
+    }
+}
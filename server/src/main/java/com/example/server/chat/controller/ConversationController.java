@@ -5,13 +5,21 @@ import com.example.server.chat.dto.ConversationRequest;
 import com.example.server.chat.dto.ConversationResponse;
 import com.example.server.chat.dto.ConversationUpdateRequest;
 import com.example.server.chat.dto.UpdateParticipantRoleRequest;
+import com.example.server.chat.service.ConversationExportService;
+import com.example.server.chat.service.ConversationPage;
 import com.example.server.chat.service.ConversationService;
+import com.example.server.common.exception.ApiException;
 import com.example.server.common.security.CustomUserDetails;
+import com.example.server.message.controller.MessageController;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -22,6 +30,7 @@ import java.util.List;
 public class ConversationController {
 
     private final ConversationService conversationService;
+    private final ConversationExportService exportService;
 
     @PostMapping
     public ConversationResponse createConversation(
@@ -30,10 +39,18 @@ public class ConversationController {
         return conversationService.create(principal.getId(), request);
     }
 
+    // GET /api/conversations?cursor=&size= - conversations by last activity; next page cursor in X-Next-Cursor
     @GetMapping
-    public List<ConversationResponse> getUserConversations(
-            @AuthenticationPrincipal CustomUserDetails principal) {
-        return conversationService.getUserConversations(principal.getId());
+    public ResponseEntity<List<ConversationResponse>> getUserConversations(
+            @AuthenticationPrincipal CustomUserDetails principal,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = "30") int size) {
+        ConversationPage page = conversationService.getUserConversations(principal.getId(), cursor, size);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(MessageController.NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getConversations());
     }
 
     @GetMapping("/{id}")
@@ -43,6 +60,29 @@ public class ConversationController {
         return conversationService.getById(id);
     }
 
+    /**
+     * Full export, oldest message first: NDJSON, or a zip of messages.ndjson, attachments.ndjson and manifest.json.
+     * Each line carries a cursor; pass the last one received as after= to resume an interrupted export.
+     */
+    @GetMapping("/{id}/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @AuthenticationPrincipal CustomUserDetails principal,
+            @PathVariable String id,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) String after) {
+        boolean zip = "zip".equalsIgnoreCase(format);
+        if (!zip && !"ndjson".equalsIgnoreCase(format)) {
+            throw new ApiException("Unsupported export format: " + format);
+        }
+        StreamingResponseBody body = exportService.export(id, principal.getId(),
+                zip ? ConversationExportService.Format.ZIP : ConversationExportService.Format.NDJSON, after);
+        String filename = "conversation-" + id + (zip ? ".zip" : ".ndjson");
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .contentType(zip ? MediaType.parseMediaType("application/zip") : MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+
     @PostMapping("/{id}/members")
     public ConversationResponse addMembers(
             @AuthenticationPrincipal CustomUserDetails principal,
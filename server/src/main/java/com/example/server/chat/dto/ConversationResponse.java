@@ -68,6 +68,7 @@ public class ConversationResponse {
         private Instant joinedAt;
         private Instant lastSeenAt;
         private String lastReadMessageId; // ID of the last message that this participant has read
+        private long lastReadSeq; // Conversation seq this participant has read up to
 
         public ParticipantResponse() {}
 
@@ -87,6 +88,8 @@ public class ConversationResponse {
         public void setLastSeenAt(Instant lastSeenAt) { this.lastSeenAt = lastSeenAt; }
         public String getLastReadMessageId() { return lastReadMessageId; }
         public void setLastReadMessageId(String lastReadMessageId) { this.lastReadMessageId = lastReadMessageId; }
+        public long getLastReadSeq() { return lastReadSeq; }
+        public void setLastReadSeq(long lastReadSeq) { this.lastReadSeq = lastReadSeq; }
     }
 }
 
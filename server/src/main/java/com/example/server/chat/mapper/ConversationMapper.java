@@ -13,9 +13,12 @@ public interface ConversationMapper {
     @Mapping(target = "id", ignore = true)
     @Mapping(target = "groupCreatedByUserId", ignore = true)
     @Mapping(target = "groupAvatarUrl", ignore = true)
+    @Mapping(target = "lastMessageId", ignore = true)
     @Mapping(target = "lastMessageContent", ignore = true)
     @Mapping(target = "lastMessageCreatedAt", ignore = true)
     @Mapping(target = "lastMessageSenderId", ignore = true)
+    @Mapping(target = "lastMessageSenderName", ignore = true)
+    @Mapping(target = "seq", ignore = true)
     @Mapping(target = "createdAt", ignore = true)
     @Mapping(target = "updatedAt", ignore = true)
     Conversation toEntity(ConversationRequest request);
@@ -26,9 +29,12 @@ public interface ConversationMapper {
     @Mapping(target = "type", ignore = true)
     @Mapping(target = "groupCreatedByUserId", ignore = true)
     @Mapping(target = "groupAvatarUrl", ignore = true)
+    @Mapping(target = "lastMessageId", ignore = true)
     @Mapping(target = "lastMessageContent", ignore = true)
     @Mapping(target = "lastMessageCreatedAt", ignore = true)
     @Mapping(target = "lastMessageSenderId", ignore = true)
+    @Mapping(target = "lastMessageSenderName", ignore = true)
+    @Mapping(target = "seq", ignore = true)
     @Mapping(target = "createdAt", ignore = true)
     @Mapping(target = "updatedAt", ignore = true)
     void updateEntity(@MappingTarget Conversation conversation, ConversationRequest request);
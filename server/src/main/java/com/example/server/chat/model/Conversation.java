@@ -22,13 +22,19 @@ public class Conversation {
     private String groupCreatedByUserId;
     private String groupAvatarUrl;
 
-    // Last message snapshot for fast listing
-    private String lastMessageContent;
+    // Last message snapshot for fast listing; maintained by ConversationSnapshotService on the write path
+    private String lastMessageId;
+    private String lastMessageContent; // plain-text preview, file payloads are summarised
 
     @Indexed
     private Instant lastMessageCreatedAt;
 
     private String lastMessageSenderId;
+    private String lastMessageSenderName;
+
+    // Per-conversation message counter; incremented atomically for every message sent.
+    // Unread for a participant is seq - participant.lastReadSeq.
+    private long seq;
     
     // Pinned message
     private String pinnedMessageId; // ID of the pinned message
@@ -32,7 +32,8 @@ public class ConversationParticipant {
     private boolean isActive = true;
     private Instant lastSeenAt;
     private String lastReadMessageId; // ID of the last message that this user has read
-    private long unreadCount;
+    private long lastReadSeq; // Conversation seq this user has read up to
+    private long unreadCount; // Legacy; unread is now derived from Conversation.seq - lastReadSeq
     private boolean isFavorite = false; // User's favorite status for this conversation
     private boolean isMuted = false; // User's mute status for this conversation (no notifications)
 
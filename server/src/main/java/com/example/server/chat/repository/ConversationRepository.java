@@ -2,6 +2,7 @@ package com.example.server.chat.repository;
 
 import com.example.server.chat.model.Conversation;
 import com.example.server.chat.model.ConversationType;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
 import java.util.List;
@@ -12,6 +13,9 @@ public interface ConversationRepository extends MongoRepository<Conversation, St
     // Find conversations by participant (through participants collection)
     @Query("{ '_id': { $in: ?0 } }")
     List<Conversation> findByIds(List<String> conversationIds);
+
+    @Query("{ '_id': { $in: ?0 } }")
+    List<Conversation> findByIds(List<String> conversationIds, Sort sort);
     
     // Find direct conversation between two users
     @Query("{ 'type': 'DIRECT', 'participants': { $all: [?0, ?1] } }")
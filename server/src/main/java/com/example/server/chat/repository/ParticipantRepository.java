@@ -3,6 +3,7 @@ package com.example.server.chat.repository;
 import com.example.server.chat.model.ConversationParticipant;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -12,6 +13,14 @@ public interface ParticipantRepository extends MongoRepository<ConversationParti
     @Query("{ 'conversationId': ?0, 'isActive': true }")
     List<ConversationParticipant> findByConversationIdAndIsActiveTrue(String conversationId);
     
+    // Find active participants of several conversations in one round-trip
+    @Query("{ 'conversationId': { $in: ?0 }, 'isActive': true }")
+    List<ConversationParticipant> findByConversationIdInAndIsActiveTrue(Collection<String> conversationIds);
+    
+    // Which of the given conversations a user is an active member of
+    @Query(value = "{ 'userId': ?0, 'conversationId': { $in: ?1 }, 'isActive': true }", fields = "{ 'conversationId': 1 }")
+    List<ConversationParticipant> findByUserIdAndConversationIdInAndIsActiveTrue(String userId, Collection<String> conversationIds);
+    
     // Find all conversations a user participates in
     @Query("{ 'userId': ?0, 'isActive': true }")
     List<ConversationParticipant> findByUserIdAndIsActiveTrue(String userId);
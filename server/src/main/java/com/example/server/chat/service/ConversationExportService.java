@@ -0,0 +1,269 @@
+package com.example.server.chat.service;
+
+import com.example.server.archive.service.MessageArchiveStore;
+import com.example.server.chat.repository.ConversationRepository;
+import com.example.server.chat.repository.ParticipantRepository;
+import com.example.server.common.exception.ApiException;
+import com.example.server.common.util.CursorUtils;
+import com.example.server.message.model.Message;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Full conversation export, oldest message first: archived segments, then the hot collection through a Mongo
+ * cursor. Messages are written as they are read, so memory stays constant whatever the conversation size, and a
+ * slow client blocks the writer, which stops pulling cursor batches until the socket drains.
+ *
+ * Every line carries the cursor of its message; passing the last one received as after= resumes the export.
+ */
+@Service
+@Slf4j
+public class ConversationExportService {
+
+    public enum Format { NDJSON, ZIP }
+
+    private static final JsonFactory JSON = new JsonFactory()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    private final MongoTemplate mongoTemplate;
+    private final ConversationRepository conversationRepository;
+    private final ParticipantRepository participantRepository;
+    private final MessageArchiveStore archiveStore;
+    private final Semaphore slots;
+
+    @Value("${app.export.fetch-size:500}")
+    private int fetchSize;
+
+    public ConversationExportService(MongoTemplate mongoTemplate,
+                                     ConversationRepository conversationRepository,
+                                     ParticipantRepository participantRepository,
+                                     MessageArchiveStore archiveStore,
+                                     @Value("${app.export.max-concurrent:4}") int maxConcurrent) {
+        this.mongoTemplate = mongoTemplate;
+        this.conversationRepository = conversationRepository;
+        this.participantRepository = participantRepository;
+        this.archiveStore = archiveStore;
+        this.slots = new Semaphore(Math.max(1, maxConcurrent));
+    }
+
+    /**
+     * Check access and the resume cursor up front, while an error can still become a 4xx, and return the body
+     * that streams the export
+     */
+    public StreamingResponseBody export(String conversationId, String userId, Format format, String after) {
+        if (!conversationRepository.existsById(conversationId)) {
+            throw new ApiException("Conversation not found");
+        }
+        if (!participantRepository.existsByConversationIdAndUserIdAndIsActiveTrue(conversationId, userId)) {
+            throw new ApiException("You are not a participant");
+        }
+        CursorUtils.Cursor cursor = CursorUtils.decode(after);
+        if (cursor != null && !ObjectId.isValid(cursor.getId())) {
+            throw new ApiException("Invalid cursor");
+        }
+        // Fail fast while this is still a 4xx; the slot itself is taken by the body, so a body that never
+        // runs (client gone before the async dispatch, executor rejection) cannot leak it
+        if (slots.availablePermits() == 0) {
+            throw new ApiException("Too many exports in progress, try again later");
+        }
+
+        return out -> {
+            if (!slots.tryAcquire()) {
+                // Lost the race for the last slot; nothing is written yet, so this still becomes an error response
+                throw new ApiException("Too many exports in progress, try again later");
+            }
+            long startedAt = System.currentTimeMillis();
+            try {
+                long exported = format == Format.ZIP
+                        ? writeZip(conversationId, cursor, after, out)
+                        : writeNdjson(conversationId, cursor, out);
+                log.info("Exported {} messages of conversation {} for user {} in {} ms",
+                        exported, conversationId, userId, System.currentTimeMillis() - startedAt);
+            } finally {
+                slots.release();
+            }
+        };
+    }
+
+    private long writeNdjson(String conversationId, CursorUtils.Cursor cursor, OutputStream out) throws IOException {
+        try (JsonGenerator json = newGenerator(out)) {
+            long exported = forEachMessage(conversationId, cursor, message -> writeMessage(json, message));
+            endLines(json, exported);
+            return exported;
+        }
+    }
+
+    /**
+     * messages.ndjson, then attachments.ndjson (a second pass over messages with an image) and manifest.json
+     */
+    private long writeZip(String conversationId, CursorUtils.Cursor cursor, String after, OutputStream out) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(out);
+        long[] messages = {0};
+        String[] lastCursor = {after};
+
+        zip.putNextEntry(new ZipEntry("messages.ndjson"));
+        try (JsonGenerator json = newGenerator(zip)) {
+            messages[0] = forEachMessage(conversationId, cursor, message -> {
+                lastCursor[0] = CursorUtils.encode(message.getCreatedAt(), message.getId());
+                return writeMessage(json, message);
+            });
+            endLines(json, messages[0]);
+        }
+        zip.closeEntry();
+
+        zip.putNextEntry(new ZipEntry("attachments.ndjson"));
+        long attachments;
+        try (JsonGenerator json = newGenerator(zip)) {
+            attachments = forEachMessage(conversationId, cursor, message -> {
+                if (message.getImageUrl() == null || message.getImageUrl().isBlank()) {
+                    return false;
+                }
+                json.writeStartObject();
+                json.writeStringField("messageId", message.getId());
+                json.writeStringField("senderId", message.getSenderId());
+                writeInstant(json, "createdAt", message.getCreatedAt());
+                json.writeStringField("url", message.getImageUrl());
+                json.writeEndObject();
+                return true;
+            });
+            endLines(json, attachments);
+        }
+        zip.closeEntry();
+
+        zip.putNextEntry(new ZipEntry("manifest.json"));
+        try (JsonGenerator json = newGenerator(zip)) {
+            json.writeStartObject();
+            json.writeStringField("conversationId", conversationId);
+            json.writeStringField("exportedAt", Instant.now().toString());
+            json.writeNumberField("messages", messages[0]);
+            json.writeNumberField("attachments", attachments);
+            if (after != null) {
+                json.writeStringField("resumedFrom", after);
+            }
+            if (lastCursor[0] != null) {
+                json.writeStringField("cursor", lastCursor[0]);
+            }
+            json.writeEndObject();
+        }
+        zip.closeEntry();
+        zip.finish();
+        return messages[0];
+    }
+
+    /**
+     * Visit the conversation's messages after the cursor, oldest first; returns how many the visitor accepted
+     */
+    private long forEachMessage(String conversationId, CursorUtils.Cursor cursor, MessageVisitor visitor) throws IOException {
+        long[] count = {0};
+        try {
+            // Archived messages are all older than the hot ones
+            archiveStore.forEachNewerThan(conversationId,
+                    cursor != null ? cursor.getTimestamp() : null,
+                    cursor != null ? cursor.getId() : null,
+                    message -> count[0] += visit(visitor, message));
+
+            Criteria criteria = Criteria.where("conversationId").is(conversationId);
+            if (cursor != null) {
+                criteria = criteria.and("createdAt").gte(cursor.getTimestamp()).orOperator(
+                        Criteria.where("createdAt").gt(cursor.getTimestamp()),
+                        Criteria.where("_id").gt(new ObjectId(cursor.getId())));
+            }
+            Query query = Query.query(criteria)
+                    .with(Sort.by(Sort.Direction.ASC, "createdAt", "_id"))
+                    .cursorBatchSize(fetchSize)
+                    // A slow client may leave the cursor idle longer than the server-side timeout
+                    .noCursorTimeout();
+            try (Stream<Message> hot = mongoTemplate.stream(query, Message.class)) {
+                hot.forEach(message -> count[0] += visit(visitor, message));
+            }
+        } catch (UncheckedIOException ex) {
+            // Client went away or the socket failed; the cursor is closed above
+            throw ex.getCause();
+        }
+        return count[0];
+    }
+
+    private static int visit(MessageVisitor visitor, Message message) {
+        try {
+            return visitor.visit(message) ? 1 : 0;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static JsonGenerator newGenerator(OutputStream out) throws IOException {
+        JsonGenerator json = JSON.createGenerator(out);
+        // One JSON value per line
+        json.setRootValueSeparator(new SerializedString("\n"));
+        return json;
+    }
+
+    private static void endLines(JsonGenerator json, long lines) throws IOException {
+        if (lines > 0) {
+            json.writeRaw('\n');
+        }
+    }
+
+    private static boolean writeMessage(JsonGenerator json, Message message) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("cursor", CursorUtils.encode(message.getCreatedAt(), message.getId()));
+        json.writeStringField("id", message.getId());
+        if (message.getSeq() != null) {
+            json.writeNumberField("seq", message.getSeq());
+        }
+        json.writeStringField("senderId", message.getSenderId());
+        if (message.getContent() != null) {
+            json.writeStringField("content", message.getContent());
+        }
+        if (message.getImageUrl() != null) {
+            json.writeStringField("imageUrl", message.getImageUrl());
+        }
+        writeInstant(json, "createdAt", message.getCreatedAt());
+        writeInstant(json, "originalCreatedAt", message.getOriginalCreatedAt());
+        writeInstant(json, "updatedAt", message.getUpdatedAt());
+        if (message.getForwardedFromMessageId() != null) {
+            json.writeStringField("forwardedFromMessageId", message.getForwardedFromMessageId());
+            json.writeStringField("forwardedFromConversationId", message.getForwardedFromConversationId());
+            json.writeStringField("forwardedFromSenderId", message.getForwardedFromSenderId());
+            if (message.getForwardedFromSenderName() != null) {
+                json.writeStringField("forwardedFromSenderName", message.getForwardedFromSenderName());
+            }
+            writeInstant(json, "forwardedAt", message.getForwardedAt());
+        }
+        json.writeEndObject();
+        return true;
+    }
+
+    private static void writeInstant(JsonGenerator json, String field, Instant value) throws IOException {
+        if (value != null) {
+            json.writeStringField(field, value.toString());
+        }
+    }
+
+    @FunctionalInterface
+    private interface MessageVisitor {
+        /**
+         * Write one message; false when it was skipped
+         */
+        boolean visit(Message message) throws IOException;
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.server.chat.service;
+
+import com.example.server.chat.dto.ConversationResponse;
+
+import java.util.List;
+
+/**
+ * One page of a user's conversations, most recent activity first; nextCursor continues to older conversations.
+ */
+public class ConversationPage {
+    private final List<ConversationResponse> conversations;
+    private final String nextCursor;
+
+    public ConversationPage(List<ConversationResponse> conversations, String nextCursor) {
+        this.conversations = conversations;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<ConversationResponse> getConversations() { return conversations; }
+    public String getNextCursor() { return nextCursor; }
+    public boolean hasMore() { return nextCursor != null; }
+}
@@ -0,0 +1,68 @@
+package com.example.server.chat.service;
+
+import com.example.server.chat.model.Conversation;
+import com.example.server.chat.model.ConversationParticipant;
+import com.example.server.common.exception.ApiException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+/**
+ * Allocates per-conversation message sequence numbers from the counter on the conversation document.
+ * Sending a message touches only the conversation (and the sender's read marker), never the other participants.
+ */
+@Service
+@RequiredArgsConstructor
+public class ConversationSequenceService {
+
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * Allocate the next sequence number of a conversation
+     */
+    public long next(String conversationId) {
+        return reserve(conversationId, 1);
+    }
+
+    /**
+     * Atomically reserve a block of consecutive sequence numbers and return the first one
+     */
+    public long reserve(String conversationId, int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("count must be positive");
+        }
+        Query query = Query.query(Criteria.where("_id").is(conversationId));
+        query.fields().include("seq");
+        Conversation updated = mongoTemplate.findAndModify(
+                query,
+                new Update().inc("seq", count),
+                FindAndModifyOptions.options().returnNew(true),
+                Conversation.class);
+        if (updated == null) {
+            throw new ApiException("Conversation not found");
+        }
+        return updated.getSeq() - count + 1;
+    }
+
+    /**
+     * Hand back the top {@code count} numbers of a block ending at {@code blockEnd}; only possible while nothing
+     * was reserved after the block. Returns whether the numbers were given back.
+     */
+    public boolean release(String conversationId, long blockEnd, int count) {
+        Query query = Query.query(Criteria.where("_id").is(conversationId).and("seq").is(blockEnd));
+        return mongoTemplate.updateFirst(query, new Update().inc("seq", -count), Conversation.class)
+                .getModifiedCount() > 0;
+    }
+
+    /**
+     * Move a participant's read marker forward; never moves it backwards
+     */
+    public void advanceReadSeq(String conversationId, String userId, long seq) {
+        Query query = Query.query(Criteria.where("conversationId").is(conversationId).and("userId").is(userId));
+        mongoTemplate.updateFirst(query, new Update().max("lastReadSeq", seq), ConversationParticipant.class);
+    }
+}
@@ -13,6 +13,10 @@ import com.example.server.chat.model.ParticipantRole;
 import com.example.server.chat.repository.ConversationRepository;
 import com.example.server.chat.repository.ParticipantRepository;
 import com.example.server.common.exception.ApiException;
+import com.example.server.inbox.model.InboxEntry;
+import com.example.server.inbox.service.InboxPage;
+import com.example.server.inbox.service.InboxProjector;
+import com.example.server.inbox.service.InboxService;
 import com.example.server.infrastructure.kafka.KafkaEventPublisher;
 import com.example.server.infrastructure.storage.FileStorageService;
 import com.example.server.user.model.User;
@@ -20,12 +24,18 @@ import com.example.server.user.repository.UserRepository;
 import com.example.server.message.repository.MessageRepository;
 import com.example.server.message.model.Message;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -39,6 +49,9 @@ public class ConversationService {
     private final KafkaEventPublisher kafkaEventPublisher;
     private final MessageRepository messageRepository;
     private final FileStorageService fileStorageService;
+    private final InboxProjector inboxProjector;
+    private final InboxService inboxService;
+    private final MongoTemplate mongoTemplate;
     
     public ConversationService(ConversationRepository conversationRepository,
                               ParticipantRepository participantRepository,
@@ -46,7 +59,10 @@ public class ConversationService {
                               ConversationMapper conversationMapper,
                               KafkaEventPublisher kafkaEventPublisher,
                               MessageRepository messageRepository,
-                              FileStorageService fileStorageService) {
+                              FileStorageService fileStorageService,
+                              InboxProjector inboxProjector,
+                              InboxService inboxService,
+                              MongoTemplate mongoTemplate) {
         this.conversationRepository = conversationRepository;
         this.participantRepository = participantRepository;
         this.userRepository = userRepository;
@@ -54,6 +70,9 @@ public class ConversationService {
         this.kafkaEventPublisher = kafkaEventPublisher;
         this.messageRepository = messageRepository;
         this.fileStorageService = fileStorageService;
+        this.inboxProjector = inboxProjector;
+        this.inboxService = inboxService;
+        this.mongoTemplate = mongoTemplate;
     }
     
     /**
@@ -85,99 +104,32 @@ public class ConversationService {
             
             participantRepository.save(participant);
         }
+        inboxProjector.rebuildConversation(savedConversation.getId());
         
         return conversationMapper.toResponse(savedConversation);
     }
     
     /**
-     * Get user conversations list with participants info and unread count
+     * One page of the user's conversations in order of last activity. Paging and ordering come from the
+     * user_inbox projection (one range scan on user_activity_idx); only the conversations of the page are loaded
+     * and enriched, so the cost does not grow with how many conversations the user has.
      */
-    public List<ConversationResponse> getUserConversations(String userId) {
-        List<ConversationParticipant> participants = participantRepository.findByUserIdAndIsActiveTrue(userId);
-        List<String> conversationIds = participants.stream()
-                .map(ConversationParticipant::getConversationId)
+    public ConversationPage getUserConversations(String userId, String cursor, int size) {
+        InboxPage inbox = inboxService.getInbox(userId, cursor, size);
+        List<String> conversationIds = inbox.getEntries().stream()
+                .map(InboxEntry::getConversationId)
                 .collect(Collectors.toList());
-        
         if (conversationIds.isEmpty()) {
-            return List.of();
+            return new ConversationPage(List.of(), inbox.getNextCursor());
         }
-        
-        List<Conversation> conversations = conversationRepository.findByIds(conversationIds);
-        
-        return conversations.stream()
-                .map(conversation -> {
-                    ConversationResponse response = conversationMapper.toResponse(conversation);
-                    
-                    List<ConversationParticipant> conversationParticipants = participantRepository
-                            .findByConversationIdAndIsActiveTrue(conversation.getId());
-                    
-                    List<ConversationResponse.ParticipantResponse> participantResponses = conversationParticipants.stream()
-                            .map(participant -> {
-                                User user = userRepository.findById(participant.getUserId()).orElse(null);
-                                if (user == null) return null;
-                                
-                                ConversationResponse.ParticipantResponse participantResponse = new ConversationResponse.ParticipantResponse();
-                                participantResponse.setId(user.getId());
-                                participantResponse.setUsername(user.getUsername());
-                                participantResponse.setDisplayName(user.getDisplayName());
-                                participantResponse.setAvatarUrl(user.getAvatarUrl());
-                                participantResponse.setRole(participant.getRole().name().toLowerCase());
-                                participantResponse.setJoinedAt(participant.getJoinedAt());
-                                participantResponse.setLastSeenAt(participant.getLastSeenAt());
-                                participantResponse.setLastReadMessageId(participant.getLastReadMessageId());
-                                return participantResponse;
-                            })
-                            .filter(java.util.Objects::nonNull)
-                            .collect(Collectors.toList());
-                    
-                    response.setParticipants(participantResponses);
-                    
-                    if (conversation.getType() == ConversationType.DIRECT) {
-                        String otherPersonName = participantResponses.stream()
-                                .filter(p -> !p.getId().equals(userId))
-                                .map(p -> p.getDisplayName() != null ? p.getDisplayName() : p.getUsername())
-                                .findFirst()
-                                .orElse("Unknown");
-                        response.setName(otherPersonName);
-                        String otherAvatar = participantResponses.stream()
-                                .filter(p -> !p.getId().equals(userId))
-                                .map(ConversationResponse.ParticipantResponse::getAvatarUrl)
-                                .filter(java.util.Objects::nonNull)
-                                .findFirst()
-                                .orElse(null);
-                        response.setAvatarUrl(otherAvatar);
-                    } else if (conversation.getType() == ConversationType.GROUP) {
-                        if (conversation.getGroupName() != null && !conversation.getGroupName().trim().isEmpty()) {
-                            response.setName(conversation.getGroupName());
-                        } else {
-                            String membersList = participantResponses.stream()
-                                    .map(p -> p.getDisplayName() != null ? p.getDisplayName() : p.getUsername())
-                                    .collect(Collectors.joining(", "));
-                            response.setName(membersList.isEmpty() ? "Group Chat" : membersList);
-                        }
-                        response.setAvatarUrl(conversation.getGroupAvatarUrl());
-                    }
-                    
-                    ConversationParticipant userParticipant = conversationParticipants.stream()
-                            .filter(p -> p.getUserId().equals(userId))
-                            .findFirst()
-                            .orElse(null);
-                    
-                    if (userParticipant != null) {
-                        response.setUnreadCount((int) userParticipant.getUnreadCount());
-                        response.setFavorite(userParticipant.isFavorite());
-                        response.setMuted(userParticipant.isMuted());
-                    }
-                    
-                    if (conversation.getPinnedMessageId() != null) {
-                        response.setPinnedMessageId(conversation.getPinnedMessageId());
-                        response.setPinnedAt(conversation.getPinnedAt());
-                        response.setPinnedByUserId(conversation.getPinnedByUserId());
-                    }
-                    
-                    return response;
-                })
+
+        Map<String, Conversation> byId = conversationRepository.findByIds(conversationIds).stream()
+                .collect(Collectors.toMap(Conversation::getId, c -> c));
+        List<Conversation> conversations = conversationIds.stream()
+                .map(byId::get)
+                .filter(java.util.Objects::nonNull)
                 .collect(Collectors.toList());
+        return new ConversationPage(toUserResponses(conversations, userId), inbox.getNextCursor());
     }
     
     /**
@@ -218,22 +170,21 @@ public class ConversationService {
             throw new ApiException("Only group conversations can be updated");
         }
         
-        boolean changed = false;
+        Update update = new Update();
         
         if (request.getGroupName() != null && !request.getGroupName().isBlank()
                 && !request.getGroupName().equals(conversation.getGroupName())) {
-            conversation.setGroupName(request.getGroupName());
-            changed = true;
+            update.set("groupName", request.getGroupName());
         }
         
         if (request.getGroupAvatarUrl() != null && !request.getGroupAvatarUrl().isBlank()
                 && !request.getGroupAvatarUrl().equals(conversation.getGroupAvatarUrl())) {
-            conversation.setGroupAvatarUrl(request.getGroupAvatarUrl());
-            changed = true;
+            update.set("groupAvatarUrl", request.getGroupAvatarUrl());
         }
         
-        if (changed) {
-            conversationRepository.save(conversation);
+        if (!update.getUpdateObject().isEmpty()) {
+            updateConversationFields(conversationId, update);
+            inboxProjector.rebuildConversation(conversationId);
         }
         
         return getById(conversationId);
@@ -252,6 +203,9 @@ public class ConversationService {
         if (users.size() != request.getMemberIds().size()) {
             throw new ApiException("Some users not found");
         }
+
+        Conversation conversation = conversationRepository.findById(conversationId)
+                .orElseThrow(() -> new ApiException("Conversation not found"));
         
         for (String userId : request.getMemberIds()) {
             if (participantRepository.existsByConversationIdAndUserIdAndIsActiveTrue(conversationId, userId)) {
@@ -265,9 +219,12 @@ public class ConversationService {
             participant.setRole(ParticipantRole.MEMBER);
             participant.setActive(true);
             participant.setUnreadCount(0);
+            // New members start caught up; earlier history does not count as unread
+            participant.setLastReadSeq(conversation.getSeq());
             
             participantRepository.save(participant);
         }
+        inboxProjector.rebuildConversation(conversationId);
         
         return getById(conversationId);
     }
@@ -328,6 +285,7 @@ public class ConversationService {
         
         participant.setActive(false);
         participantRepository.save(participant);
+        inboxProjector.rebuildConversation(conversationId);
     }
 
     /**
@@ -347,8 +305,8 @@ public class ConversationService {
                 .orElseThrow(() -> new ApiException("You are not a participant"));
 
         String avatarUrl = fileStorageService.uploadGroupAvatar(file);
-        conversation.setGroupAvatarUrl(avatarUrl);
-        conversationRepository.save(conversation);
+        updateConversationFields(conversationId, new Update().set("groupAvatarUrl", avatarUrl));
+        inboxProjector.rebuildConversation(conversationId);
         return getById(conversationId);
     }
     
@@ -363,28 +321,27 @@ public class ConversationService {
         
         participant.setActive(false);
         participantRepository.save(participant);
+        inboxProjector.rebuildConversation(conversationId);
     }
 
     /**
-     * Mark conversation as read: update lastReadMessageId and unreadCount
+     * Mark conversation as read: move lastReadSeq up to the conversation counter and record lastReadMessageId
      */
     @Transactional
     public void markAsSeen(String conversationId, String userId) {
         ConversationParticipant participant = participantRepository
                 .findByConversationIdAndUserIdAndIsActiveTrue(conversationId, userId)
                 .orElseThrow(() -> new ApiException("You are not a participant"));
+        Conversation conversation = conversationRepository.findById(conversationId)
+                .orElseThrow(() -> new ApiException("Conversation not found"));
         
-        org.springframework.data.domain.Page<Message> latestMessagesPage = messageRepository.findByConversationIdOrderByCreatedAtDesc(
-            conversationId, 
-            org.springframework.data.domain.PageRequest.of(0, 1)
-        );
-        List<Message> latestMessages = latestMessagesPage.getContent();
+        java.util.Optional<Message> latest = messageRepository.findFirstByConversationIdOrderByCreatedAtDesc(conversationId);
         
         Instant now = Instant.now();
         String lastReadMessageId = null;
         
-        if (!latestMessages.isEmpty()) {
-            Message latestMessage = latestMessages.get(0);
+        if (latest.isPresent()) {
+            Message latestMessage = latest.get();
             lastReadMessageId = latestMessage.getId();
             participant.setLastSeenAt(latestMessage.getCreatedAt().isAfter(now) ? now : latestMessage.getCreatedAt());
         } else {
@@ -392,6 +349,7 @@ public class ConversationService {
         }
         
         participant.setLastReadMessageId(lastReadMessageId);
+        participant.setLastReadSeq(Math.max(participant.getLastReadSeq(), conversation.getSeq()));
         participant.setUnreadCount(0);
         participantRepository.save(participant);
         
@@ -401,7 +359,9 @@ public class ConversationService {
         eventData.put("lastSeenAt", participant.getLastSeenAt());
         eventData.put("unreadCount", participant.getUnreadCount());
         eventData.put("lastReadMessageId", lastReadMessageId);
+        eventData.put("lastReadSeq", participant.getLastReadSeq());
         kafkaEventPublisher.publishMessageEvent("MESSAGE_SEEN", conversationId, eventData);
+        inboxProjector.onParticipantChanged(conversationId, userId);
         
         log.info("User {} marked conversation {} as seen. Last read message: {}", userId, conversationId, lastReadMessageId);
     }
@@ -472,6 +432,7 @@ public class ConversationService {
         pB.setActive(true);
         pB.setUnreadCount(0);
         participantRepository.save(pB);
+        inboxProjector.rebuildConversation(saved.getId());
 
         return conversationMapper.toResponse(saved);
     }
@@ -487,75 +448,12 @@ public class ConversationService {
         
         participant.setFavorite(!participant.isFavorite());
         participantRepository.save(participant);
+        inboxProjector.applyParticipant(conversationId, userId);
         
         Conversation conversation = conversationRepository.findById(conversationId)
             .orElseThrow(() -> new ApiException("Conversation not found"));
         
-        ConversationResponse response = conversationMapper.toResponse(conversation);
-        
-        List<ConversationParticipant> conversationParticipants = participantRepository
-            .findByConversationIdAndIsActiveTrue(conversationId);
-        
-        List<ConversationResponse.ParticipantResponse> participantResponses = conversationParticipants.stream()
-            .map(p -> {
-                User user = userRepository.findById(p.getUserId()).orElse(null);
-                if (user == null) return null;
-                
-                ConversationResponse.ParticipantResponse pr = new ConversationResponse.ParticipantResponse();
-                pr.setId(user.getId());
-                pr.setUsername(user.getUsername());
-                pr.setDisplayName(user.getDisplayName());
-                pr.setAvatarUrl(user.getAvatarUrl());
-                pr.setRole(p.getRole().name().toLowerCase());
-                pr.setJoinedAt(p.getJoinedAt());
-                pr.setLastSeenAt(p.getLastSeenAt());
-                pr.setLastReadMessageId(p.getLastReadMessageId());
-                return pr;
-            })
-            .filter(java.util.Objects::nonNull)
-            .collect(Collectors.toList());
-        
-        response.setParticipants(participantResponses);
-        
-        ConversationParticipant userParticipant = conversationParticipants.stream()
-            .filter(p -> p.getUserId().equals(userId))
-            .findFirst()
-            .orElse(null);
-        
-        if (userParticipant != null) {
-            response.setFavorite(userParticipant.isFavorite());
-            response.setMuted(userParticipant.isMuted());
-            response.setUnreadCount((int) userParticipant.getUnreadCount());
-        }
-        
-        // Set name
-        if (conversation.getType() == ConversationType.DIRECT) {
-            String otherPersonName = participantResponses.stream()
-                .filter(p -> !p.getId().equals(userId))
-                .map(p -> p.getDisplayName() != null ? p.getDisplayName() : p.getUsername())
-                .findFirst()
-                .orElse("Unknown");
-            response.setName(otherPersonName);
-            String otherAvatar = participantResponses.stream()
-                .filter(p -> !p.getId().equals(userId))
-                .map(ConversationResponse.ParticipantResponse::getAvatarUrl)
-                .filter(java.util.Objects::nonNull)
-                .findFirst()
-                .orElse(null);
-            response.setAvatarUrl(otherAvatar);
-        } else if (conversation.getType() == ConversationType.GROUP) {
-            if (conversation.getGroupName() != null && !conversation.getGroupName().trim().isEmpty()) {
-                response.setName(conversation.getGroupName());
-            } else {
-                String membersList = participantResponses.stream()
-                    .map(p -> p.getDisplayName() != null ? p.getDisplayName() : p.getUsername())
-                    .collect(Collectors.joining(", "));
-                response.setName(membersList.isEmpty() ? "Group Chat" : membersList);
-            }
-            response.setAvatarUrl(conversation.getGroupAvatarUrl());
-        }
-        
-        return response;
+        return toUserResponses(List.of(conversation), userId).get(0);
     }
     
     /**
@@ -563,8 +461,9 @@ public class ConversationService {
      */
     @Transactional
     public ConversationResponse pinMessage(String conversationId, String messageId, String userId) {
-        Conversation conversation = conversationRepository.findById(conversationId)
-            .orElseThrow(() -> new ApiException("Conversation not found"));
+        if (!conversationRepository.existsById(conversationId)) {
+            throw new ApiException("Conversation not found");
+        }
         
         if (!participantRepository.existsByConversationIdAndUserIdAndIsActiveTrue(conversationId, userId)) {
             throw new ApiException("You are not a participant");
@@ -577,10 +476,10 @@ public class ConversationService {
             throw new ApiException("Message does not belong to this conversation");
         }
         
-        conversation.setPinnedMessageId(messageId);
-        conversation.setPinnedAt(Instant.now());
-        conversation.setPinnedByUserId(userId);
-        conversationRepository.save(conversation);
+        updateConversationFields(conversationId, new Update()
+                .set("pinnedMessageId", messageId)
+                .set("pinnedAt", Instant.now())
+                .set("pinnedByUserId", userId));
         
         return getById(conversationId);
     }
@@ -590,17 +489,18 @@ public class ConversationService {
      */
     @Transactional
     public ConversationResponse unpinMessage(String conversationId, String userId) {
-        Conversation conversation = conversationRepository.findById(conversationId)
-            .orElseThrow(() -> new ApiException("Conversation not found"));
+        if (!conversationRepository.existsById(conversationId)) {
+            throw new ApiException("Conversation not found");
+        }
         
         if (!participantRepository.existsByConversationIdAndUserIdAndIsActiveTrue(conversationId, userId)) {
             throw new ApiException("You are not a participant");
         }
         
-        conversation.setPinnedMessageId(null);
-        conversation.setPinnedAt(null);
-        conversation.setPinnedByUserId(null);
-        conversationRepository.save(conversation);
+        updateConversationFields(conversationId, new Update()
+                .unset("pinnedMessageId")
+                .unset("pinnedAt")
+                .unset("pinnedByUserId"));
         
         return getById(conversationId);
     }
@@ -616,74 +516,105 @@ public class ConversationService {
         
         participant.setMuted(!participant.isMuted());
         participantRepository.save(participant);
+        inboxProjector.applyParticipant(conversationId, userId);
         
         Conversation conversation = conversationRepository.findById(conversationId)
             .orElseThrow(() -> new ApiException("Conversation not found"));
         
-        ConversationResponse response = conversationMapper.toResponse(conversation);
+        return toUserResponses(List.of(conversation), userId).get(0);
+    }
+
+    /**
+     * Build per-user conversation views with a fixed number of queries: one $in over participants and one
+     * findAllById over their distinct users, joined in memory. Input order is preserved.
+     */
+    private List<ConversationResponse> toUserResponses(List<Conversation> conversations, String userId) {
+        if (conversations.isEmpty()) {
+            return List.of();
+        }
+        List<String> conversationIds = conversations.stream()
+                .map(Conversation::getId)
+                .collect(Collectors.toList());
+        Map<String, List<ConversationParticipant>> participantsByConversation = participantRepository
+                .findByConversationIdInAndIsActiveTrue(conversationIds).stream()
+                .collect(Collectors.groupingBy(ConversationParticipant::getConversationId));
         
-        List<ConversationParticipant> conversationParticipants = participantRepository
-            .findByConversationIdAndIsActiveTrue(conversationId);
+        Set<String> userIds = participantsByConversation.values().stream()
+                .flatMap(List::stream)
+                .map(ConversationParticipant::getUserId)
+                .collect(Collectors.toSet());
+        Map<String, User> usersById = new HashMap<>();
+        userRepository.findAllById(userIds).forEach(user -> usersById.put(user.getId(), user));
+        
+        return conversations.stream()
+                .map(conversation -> toUserResponse(conversation,
+                        participantsByConversation.getOrDefault(conversation.getId(), List.of()), usersById, userId))
+                .collect(Collectors.toList());
+    }
+    
+    private ConversationResponse toUserResponse(Conversation conversation, List<ConversationParticipant> conversationParticipants,
+                                                Map<String, User> usersById, String userId) {
+        ConversationResponse response = conversationMapper.toResponse(conversation);
         
         List<ConversationResponse.ParticipantResponse> participantResponses = conversationParticipants.stream()
-            .map(p -> {
-                User user = userRepository.findById(p.getUserId()).orElse(null);
-                if (user == null) return null;
-                
-                ConversationResponse.ParticipantResponse pr = new ConversationResponse.ParticipantResponse();
-                pr.setId(user.getId());
-                pr.setUsername(user.getUsername());
-                pr.setDisplayName(user.getDisplayName());
-                pr.setAvatarUrl(user.getAvatarUrl());
-                pr.setRole(p.getRole().name().toLowerCase());
-                pr.setJoinedAt(p.getJoinedAt());
-                pr.setLastSeenAt(p.getLastSeenAt());
-                pr.setLastReadMessageId(p.getLastReadMessageId());
-                return pr;
-            })
-            .filter(java.util.Objects::nonNull)
-            .collect(Collectors.toList());
+                .map(participant -> {
+                    User user = usersById.get(participant.getUserId());
+                    if (user == null) return null;
+                    
+                    ConversationResponse.ParticipantResponse participantResponse = new ConversationResponse.ParticipantResponse();
+                    participantResponse.setId(user.getId());
+                    participantResponse.setUsername(user.getUsername());
+                    participantResponse.setDisplayName(user.getDisplayName());
+                    participantResponse.setAvatarUrl(user.getAvatarUrl());
+                    participantResponse.setRole(participant.getRole().name().toLowerCase());
+                    participantResponse.setJoinedAt(participant.getJoinedAt());
+                    participantResponse.setLastSeenAt(participant.getLastSeenAt());
+                    participantResponse.setLastReadMessageId(participant.getLastReadMessageId());
+                    participantResponse.setLastReadSeq(participant.getLastReadSeq());
+                    return participantResponse;
+                })
+                .filter(java.util.Objects::nonNull)
+                .collect(Collectors.toList());
         
         response.setParticipants(participantResponses);
         
-        ConversationParticipant userParticipant = conversationParticipants.stream()
-            .filter(p -> p.getUserId().equals(userId))
-            .findFirst()
-            .orElse(null);
-        
-        if (userParticipant != null) {
-            response.setMuted(userParticipant.isMuted());
-            response.setFavorite(userParticipant.isFavorite());
-            response.setUnreadCount((int) userParticipant.getUnreadCount());
-        }
-        
-        // Set name
         if (conversation.getType() == ConversationType.DIRECT) {
             String otherPersonName = participantResponses.stream()
-                .filter(p -> !p.getId().equals(userId))
-                .map(p -> p.getDisplayName() != null ? p.getDisplayName() : p.getUsername())
-                .findFirst()
-                .orElse("Unknown");
+                    .filter(p -> !p.getId().equals(userId))
+                    .map(p -> p.getDisplayName() != null ? p.getDisplayName() : p.getUsername())
+                    .findFirst()
+                    .orElse("Unknown");
             response.setName(otherPersonName);
             String otherAvatar = participantResponses.stream()
-                .filter(p -> !p.getId().equals(userId))
-                .map(ConversationResponse.ParticipantResponse::getAvatarUrl)
-                .filter(java.util.Objects::nonNull)
-                .findFirst()
-                .orElse(null);
+                    .filter(p -> !p.getId().equals(userId))
+                    .map(ConversationResponse.ParticipantResponse::getAvatarUrl)
+                    .filter(java.util.Objects::nonNull)
+                    .findFirst()
+                    .orElse(null);
             response.setAvatarUrl(otherAvatar);
         } else if (conversation.getType() == ConversationType.GROUP) {
             if (conversation.getGroupName() != null && !conversation.getGroupName().trim().isEmpty()) {
                 response.setName(conversation.getGroupName());
             } else {
                 String membersList = participantResponses.stream()
-                    .map(p -> p.getDisplayName() != null ? p.getDisplayName() : p.getUsername())
-                    .collect(Collectors.joining(", "));
+                        .map(p -> p.getDisplayName() != null ? p.getDisplayName() : p.getUsername())
+                        .collect(Collectors.joining(", "));
                 response.setName(membersList.isEmpty() ? "Group Chat" : membersList);
             }
             response.setAvatarUrl(conversation.getGroupAvatarUrl());
         }
         
+        ConversationParticipant userParticipant = conversationParticipants.stream()
+                .filter(p -> p.getUserId().equals(userId))
+                .findFirst()
+                .orElse(null);
+        
+        if (userParticipant != null) {
+            response.setUnreadCount(unreadCount(conversation, userParticipant));
+            response.setFavorite(userParticipant.isFavorite());
+            response.setMuted(userParticipant.isMuted());
+        }
+        
         if (conversation.getPinnedMessageId() != null) {
             response.setPinnedMessageId(conversation.getPinnedMessageId());
             response.setPinnedAt(conversation.getPinnedAt());
@@ -692,6 +623,21 @@ public class ConversationService {
         
         return response;
     }
-}
 
+    /**
+     * Unread messages for a participant, derived from the conversation counter (no per-message fan-out)
+     */
+    private static int unreadCount(Conversation conversation, ConversationParticipant participant) {
+        long unread = conversation.getSeq() - participant.getLastReadSeq();
+        return (int) Math.max(0, Math.min(unread, Integer.MAX_VALUE));
+    }
 
+    /**
+     * Write only the given fields. A full save would put back the seq and last-message snapshot as they were
+     * when the document was loaded, undoing sends that happened in between.
+     */
+    private void updateConversationFields(String conversationId, Update update) {
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(conversationId)),
+                update.set("updatedAt", Instant.now()), Conversation.class);
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.server.chat.service;
+
+import com.example.server.chat.model.Conversation;
+import com.example.server.message.model.Message;
+import com.example.server.message.repository.MessageRepository;
+import com.example.server.message.service.MessagePreview;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+
+/**
+ * Keeps the last-message snapshot on the conversation document in step with the messages collection,
+ * so conversation lists can be sorted and previewed without touching messages.
+ *
+ * Every write is a single conditional update on the conversation: a message only replaces the snapshot
+ * when it is newer than the one recorded, so concurrent senders cannot move it backwards.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ConversationSnapshotService {
+
+    private final MongoTemplate mongoTemplate;
+    private final MessageRepository messageRepository;
+
+    /**
+     * Record a sent or edited message as the conversation's last message if it is the newest one
+     */
+    public void recordMessage(Message message, String senderName) {
+        if (message == null || message.getConversationId() == null || message.getCreatedAt() == null) {
+            return;
+        }
+        Query query = Query.query(Criteria.where("_id").is(message.getConversationId()).orOperator(
+                Criteria.where("lastMessageCreatedAt").is(null),
+                Criteria.where("lastMessageCreatedAt").lt(message.getCreatedAt()),
+                // Same millisecond: fall back to id order so the outcome does not depend on write order
+                Criteria.where("lastMessageCreatedAt").is(message.getCreatedAt()).and("lastMessageId").lt(message.getId())));
+
+        Update update = new Update()
+                .set("lastMessageId", message.getId())
+                .set("lastMessageContent", MessagePreview.of(message.getContent(), message.getImageUrl()))
+                .set("lastMessageCreatedAt", message.getCreatedAt())
+                .set("lastMessageSenderId", message.getSenderId())
+                .set("lastMessageSenderName", senderName);
+        mongoTemplate.updateFirst(query, update, Conversation.class);
+    }
+
+    /**
+     * Re-point the snapshot at the newest remaining message after a delete, if the deleted one was recorded
+     */
+    public void messageRemoved(String conversationId, String messageId) {
+        Query query = Query.query(Criteria.where("_id").is(conversationId).and("lastMessageId").is(messageId));
+        Optional<Message> latest = messageRepository.findFirstByConversationIdOrderByCreatedAtDesc(conversationId);
+
+        Update update;
+        if (latest.isPresent()) {
+            Message message = latest.get();
+            update = new Update()
+                    .set("lastMessageId", message.getId())
+                    .set("lastMessageContent", MessagePreview.of(message.getContent(), message.getImageUrl()))
+                    .set("lastMessageCreatedAt", message.getCreatedAt())
+                    .set("lastMessageSenderId", message.getSenderId())
+                    // Sender name is not stored on messages; the list falls back to the participant profile
+                    .unset("lastMessageSenderName");
+        } else {
+            update = new Update()
+                    .unset("lastMessageId")
+                    .unset("lastMessageContent")
+                    .unset("lastMessageCreatedAt")
+                    .unset("lastMessageSenderId")
+                    .unset("lastMessageSenderName");
+        }
+        long modified = mongoTemplate.updateFirst(query, update, Conversation.class).getModifiedCount();
+        log.debug("Snapshot after delete of {} in conversation {}: modified={}", messageId, conversationId, modified);
+    }
+}
@@ -17,14 +17,17 @@ public class JwtTokenProvider {
     private final String issuer;
     private final long accessTtlSeconds;
     private final long refreshTtlSeconds;
+    private final JwtTokenVerifier tokenVerifier;
 
     public JwtTokenProvider(
             @Value("${security.jwt.secret}") String secret,
             @Value("${security.jwt.issuer}") String issuer,
             @Value("${security.jwt.expirationSeconds}") long accessTtlSeconds,
-            @Value("${security.jwt.refreshExpirationSeconds}") long refreshTtlSeconds
+            @Value("${security.jwt.refreshExpirationSeconds}") long refreshTtlSeconds,
+            JwtTokenVerifier tokenVerifier
     ) {
         this.secretKey = Keys.hmacShaKeyFor(secret.getBytes());
+        this.tokenVerifier = tokenVerifier;
         this.issuer = issuer;
         this.accessTtlSeconds = accessTtlSeconds;
         this.refreshTtlSeconds = refreshTtlSeconds;
@@ -52,8 +55,7 @@ public class JwtTokenProvider {
     }
 
     public String getSubject(String token) {
-        return Jwts.parserBuilder().setSigningKey(secretKey).build()
-                .parseClaimsJws(token).getBody().getSubject();
+        return tokenVerifier.verify(token).getSubject();
     }
 }
 
@@ -0,0 +1,63 @@
+package com.example.server.common.security;
+
+import com.example.server.common.util.ExpiringLruCache;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+
+/**
+ * Verifies our HS256 tokens with one pre-built parser (immutable, safe to share between threads) and remembers
+ * tokens that already passed, keyed by their SHA-256 digest, until they expire. Re-sent tokens then cost a
+ * hash instead of a signature check and claim parsing.
+ *
+ * Failed verifications are never cached and throw like the parser does.
+ */
+@Component
+public class JwtTokenVerifier {
+
+    private final JwtParser parser;
+    private final ExpiringLruCache<String, Claims> verified;
+
+    public JwtTokenVerifier(
+            @Value("${security.jwt.secret}") String secret,
+            @Value("${app.security.token-cache.max-entries:10000}") int maxEntries,
+            @Value("${app.security.token-cache.ttl:PT5M}") Duration ttl
+    ) {
+        this.parser = Jwts.parserBuilder().setSigningKey(Keys.hmacShaKeyFor(secret.getBytes())).build();
+        this.verified = new ExpiringLruCache<>(maxEntries, ttl);
+    }
+
+    /**
+     * Claims of a valid token; throws io.jsonwebtoken.JwtException when it is invalid or expired
+     */
+    public Claims verify(String token) {
+        String digest = digest(token);
+        Claims claims = verified.get(digest);
+        if (claims != null) {
+            return claims;
+        }
+        claims = parser.parseClaimsJws(token).getBody();
+        if (claims.getExpiration() != null) {
+            verified.put(digest, claims, claims.getExpiration().getTime());
+        }
+        return claims;
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 not available", ex);
+        }
+    }
+}
@@ -24,10 +24,13 @@ public class KongAuthenticationFilter extends OncePerRequestFilter {
     
     private final KongUserExtractor kongUserExtractor;
     private final UserDetailsService userDetailsService;
+    private final PrincipalCache principalCache;
     
-    public KongAuthenticationFilter(KongUserExtractor kongUserExtractor, UserDetailsService userDetailsService) {
+    public KongAuthenticationFilter(KongUserExtractor kongUserExtractor, UserDetailsService userDetailsService,
+                                    PrincipalCache principalCache) {
         this.kongUserExtractor = kongUserExtractor;
         this.userDetailsService = userDetailsService;
+        this.principalCache = principalCache;
     }
     
     @Override
@@ -38,8 +41,9 @@ public class KongAuthenticationFilter extends OncePerRequestFilter {
             KongUserExtractor.KongUserInfo kongUserInfo = kongUserExtractor.getUserInfo(request);
             
             if (kongUserInfo.isValid() && SecurityContextHolder.getContext().getAuthentication() == null) {
-                // Kong has verified the user, now load user details
-                UserDetails userDetails = userDetailsService.loadUserByUsername(kongUserInfo.getUserId());
+                // Kong has verified the user, now load user details (cached briefly per user id)
+                UserDetails userDetails = principalCache.get(kongUserInfo.getUserId(),
+                    () -> userDetailsService.loadUserByUsername(kongUserInfo.getUserId()));
                 
                 if (userDetails != null) {
                     UsernamePasswordAuthenticationToken auth = new UsernamePasswordAuthenticationToken(
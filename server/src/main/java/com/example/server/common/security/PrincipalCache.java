@@ -0,0 +1,73 @@
+package com.example.server.common.security;
+
+import com.example.server.common.util.ExpiringLruCache;
+import com.example.server.infrastructure.redis.RedisPubSubService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Short-lived cache of authenticated principals keyed by the Kong-verified user id, so the filter chain does
+ * not read the user document on every request.
+ *
+ * Entries are dropped when UserService changes or deletes the user, on this node directly and on the others
+ * through the user_profile Redis channel; the TTL bounds anything that slips through.
+ */
+@Component
+@Slf4j
+public class PrincipalCache {
+
+    private final ExpiringLruCache<String, UserDetails> principals;
+    private final RedisPubSubService redisPubSubService;
+    private final Counter hits;
+    private final Counter misses;
+
+    public PrincipalCache(RedisPubSubService redisPubSubService,
+                          ObjectProvider<MeterRegistry> meterRegistry,
+                          @Value("${app.security.principal-cache.max-entries:10000}") int maxEntries,
+                          @Value("${app.security.principal-cache.ttl:PT30S}") Duration ttl) {
+        this.redisPubSubService = redisPubSubService;
+        this.principals = new ExpiringLruCache<>(maxEntries, ttl);
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        this.hits = registry != null ? registry.counter("chat.principal_cache.requests", "result", "hit") : null;
+        this.misses = registry != null ? registry.counter("chat.principal_cache.requests", "result", "miss") : null;
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        try {
+            redisPubSubService.subscribeToUserProfileChanges(principals::remove);
+        } catch (Exception ex) {
+            log.warn("Could not subscribe to profile changes; principals expire by TTL only", ex);
+        }
+    }
+
+    /**
+     * The cached principal of a user, loading and caching it on a miss
+     */
+    public UserDetails get(String userId, Supplier<UserDetails> loader) {
+        UserDetails cached = principals.get(userId);
+        if (cached != null) {
+            if (hits != null) hits.increment();
+            return cached;
+        }
+        if (misses != null) misses.increment();
+        UserDetails loaded = loader.get();
+        if (loaded != null) {
+            principals.put(userId, loaded);
+        }
+        return loaded;
+    }
+
+    public void invalidate(String userId) {
+        principals.remove(userId);
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.server.common.util;
+
+import com.example.server.common.exception.ApiException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Opaque keyset cursors over (timestamp, id) pairs.
+ * Clients must treat the encoded value as a token and pass it back unchanged.
+ */
+public final class CursorUtils {
+
+    private static final char SEPARATOR = ':';
+
+    private CursorUtils() {
+    }
+
+    /**
+     * Encode a (timestamp, id) position into an URL-safe token
+     */
+    public static String encode(Instant timestamp, String id) {
+        if (timestamp == null || id == null) {
+            return null;
+        }
+        String raw = timestamp.toEpochMilli() + String.valueOf(SEPARATOR) + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a token produced by {@link #encode(Instant, String)}
+     */
+    public static Cursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            if (separator <= 0 || separator == raw.length() - 1) {
+                throw new ApiException("Invalid cursor");
+            }
+            long epochMillis = Long.parseLong(raw.substring(0, separator));
+            return new Cursor(Instant.ofEpochMilli(epochMillis), raw.substring(separator + 1));
+        } catch (IllegalArgumentException ex) {
+            throw new ApiException("Invalid cursor", ex);
+        }
+    }
+
+    /**
+     * Decoded cursor position
+     */
+    public static class Cursor {
+        private final Instant timestamp;
+        private final String id;
+
+        public Cursor(Instant timestamp, String id) {
+            this.timestamp = timestamp;
+            this.id = id;
+        }
+
+        public Instant getTimestamp() {
+            return timestamp;
+        }
+
+        public String getId() {
+            return id;
+        }
+    }
+}
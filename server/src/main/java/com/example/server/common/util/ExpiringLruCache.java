@@ -0,0 +1,73 @@
+package com.example.server.common.util;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Small bounded in-process cache: least recently used entries are evicted beyond maxEntries and every entry
+ * expires ttl after it was written. Thread-safe; meant for hot lookups of a few thousand keys.
+ */
+public final class ExpiringLruCache<K, V> {
+
+    private final Map<K, Entry<V>> entries;
+    private final long ttlMillis;
+
+    public ExpiringLruCache(int maxEntries, Duration ttl) {
+        this.ttlMillis = ttl.toMillis();
+        // Access-ordered LinkedHashMap: the eldest entry is the least recently used one
+        this.entries = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * The cached value, or null when absent or expired
+     */
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt <= System.currentTimeMillis()) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.value;
+    }
+
+    public synchronized void put(K key, V value) {
+        entries.put(key, new Entry<>(value, System.currentTimeMillis() + ttlMillis));
+    }
+
+    /**
+     * Cache a value that is only valid until expiresAtMillis; the entry lives until that or the TTL, whichever is first
+     */
+    public synchronized void put(K key, V value, long expiresAtMillis) {
+        long expiresAt = Math.min(System.currentTimeMillis() + ttlMillis, expiresAtMillis);
+        if (expiresAt > System.currentTimeMillis()) {
+            entries.put(key, new Entry<>(value, expiresAt));
+        }
+    }
+
+    public synchronized void remove(K key) {
+        entries.remove(key);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long expiresAt;
+
+        private Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.server.inbox.model;
+
+import com.example.server.chat.model.ConversationType;
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * Per-user inbox row: one document per (userId, conversationId), denormalised so that an inbox page
+ * is a single range read on user_activity_idx. Maintained by InboxProjector, never edited directly.
+ */
+@Document(collection = "user_inbox")
+@CompoundIndexes({
+        @CompoundIndex(name = "user_conv_unique", def = "{ 'userId': 1, 'conversationId': 1 }", unique = true),
+        @CompoundIndex(name = "user_activity_idx", def = "{ 'userId': 1, 'activityAt': -1, '_id': -1 }")
+})
+@Data
+public class InboxEntry {
+    @Id
+    private String id;
+
+    private String userId;
+
+    @Indexed
+    private String conversationId;
+
+    private ConversationType type;
+
+    // Display name/avatar as seen by this user (the other person for DIRECT, the group otherwise)
+    private String name;
+    private String avatarUrl;
+
+    @Indexed(sparse = true)
+    private String peerUserId; // DIRECT only: the other participant, used to refresh name/avatar on profile changes
+
+    private String lastMessageId;
+    private String lastMessageContent;
+    private Instant lastMessageCreatedAt;
+    private String lastMessageSenderId;
+    private String lastMessageSenderName;
+
+    private long lastMessageSeq; // Conversation.seq at projection time
+    private long lastReadSeq;
+
+    private boolean favorite;
+    private boolean muted;
+
+    // Ordering key: last message time, or conversation creation for empty conversations
+    private Instant activityAt;
+
+    private Instant updatedAt;
+
+    public long getUnreadCount() {
+        return Math.max(0, lastMessageSeq - lastReadSeq);
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.server.inbox.repository;
+
+import com.example.server.inbox.model.InboxEntry;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+public interface InboxEntryRepository extends MongoRepository<InboxEntry, String> {
+
+    // First page of a user's inbox, most recent activity first
+    List<InboxEntry> findByUserId(String userId, Pageable pageable);
+
+    // Keyset page strictly after (activityAt, _id) in descending order
+    @Query("{ 'userId': ?0, 'activityAt': { $lte: ?1 }, $or: [ { 'activityAt': { $lt: ?1 } }, { '_id': { $lt: ?2 } } ] }")
+    List<InboxEntry> findOlderThan(String userId, Instant activityAt, ObjectId id, Pageable pageable);
+
+    // A user's entries of specific conversations (conversation metadata for search hits)
+    @Query("{ 'userId': ?0, 'conversationId': { $in: ?1 } }")
+    List<InboxEntry> findByUserIdAndConversationIdIn(String userId, Collection<String> conversationIds);
+
+    @Query(value = "{ 'userId': ?0 }", exists = true)
+    boolean existsByUserId(String userId);
+
+    void deleteByConversationIdAndUserId(String conversationId, String userId);
+}
@@ -0,0 +1,81 @@
+package com.example.server.inbox.service;
+
+import com.example.server.chat.model.Conversation;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * One-off projection of every conversation into user_inbox, for data written before the projection existed.
+ * InboxService only rebuilds a user whose inbox is empty; a user with some projected entries would otherwise
+ * never see the conversations that predate the projection.
+ *
+ * Re-running is safe, rebuildConversation overwrites the projected fields. Enable with app.inbox.backfill.enabled=true.
+ */
+@Component
+@ConditionalOnProperty(name = "app.inbox.backfill.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class InboxBackfillJob implements ApplicationRunner {
+
+    private final MongoTemplate mongoTemplate;
+    private final InboxProjector inboxProjector;
+
+    @Value("${app.inbox.backfill.parallelism:4}")
+    private int parallelism;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Thread worker = new Thread(this::backfillAll, "inbox-backfill");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    public void backfillAll() {
+        long startedAt = System.currentTimeMillis();
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+        Semaphore inFlight = new Semaphore(parallelism * 2);
+        AtomicLong conversations = new AtomicLong();
+
+        Query all = new Query();
+        all.fields().include("_id");
+        try (Stream<Conversation> stream = mongoTemplate.stream(all, Conversation.class)) {
+            stream.forEach(conversation -> {
+                inFlight.acquireUninterruptibly();
+                pool.submit(() -> {
+                    try {
+                        inboxProjector.rebuildConversation(conversation.getId());
+                        conversations.incrementAndGet();
+                    } catch (Exception ex) {
+                        log.warn("Inbox backfill failed for conversation {}", conversation.getId(), ex);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            });
+        } finally {
+            pool.shutdown();
+        }
+
+        try {
+            pool.awaitTermination(1, TimeUnit.DAYS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        log.info("Inbox backfill finished: {} conversations projected in {} ms",
+                conversations.get(), System.currentTimeMillis() - startedAt);
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.server.inbox.service;
+
+import com.example.server.inbox.model.InboxEntry;
+
+import java.util.List;
+
+/**
+ * One page of a user's inbox, most recent activity first; nextCursor continues to older conversations.
+ */
+public class InboxPage {
+    private final List<InboxEntry> entries;
+    private final String nextCursor;
+
+    public InboxPage(List<InboxEntry> entries, String nextCursor) {
+        this.entries = entries;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<InboxEntry> getEntries() { return entries; }
+    public String getNextCursor() { return nextCursor; }
+    public boolean hasMore() { return nextCursor != null; }
+}
@@ -0,0 +1,354 @@
+package com.example.server.inbox.service;
+
+import com.example.server.chat.model.Conversation;
+import com.example.server.chat.model.ConversationParticipant;
+import com.example.server.chat.model.ConversationType;
+import com.example.server.chat.repository.ConversationRepository;
+import com.example.server.chat.repository.ParticipantRepository;
+import com.example.server.inbox.model.InboxEntry;
+import com.example.server.inbox.repository.InboxEntryRepository;
+import com.example.server.user.model.User;
+import com.example.server.user.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Writes the user_inbox read model. Every method re-reads the authoritative documents
+ * (conversation, participants, users) and overwrites the projected fields, so handlers are idempotent
+ * and tolerate duplicated or reordered events.
+ *
+ * Depends on repositories only, so chat and message services can call it without bean cycles.
+ *
+ * The projection follows message.events and user.events through MessageEventConsumer and UserEventConsumer.
+ * With app.kafka.enabled=false those consumers do not run, and the on* hooks called by the write path apply
+ * the same changes directly; with the consumers on the hooks do nothing.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class InboxProjector {
+
+    private final MongoTemplate mongoTemplate;
+    private final InboxEntryRepository inboxEntryRepository;
+    private final ConversationRepository conversationRepository;
+    private final ParticipantRepository participantRepository;
+    private final UserRepository userRepository;
+
+    @Value("${app.kafka.enabled:false}")
+    private boolean eventConsumersEnabled;
+
+    /**
+     * Index auto-creation is off, so the indexes declared on InboxEntry are created here
+     */
+    @PostConstruct
+    public void ensureIndexes() {
+        IndexOperations indexOps = mongoTemplate.indexOps(InboxEntry.class);
+        try {
+            indexOps.createIndex(new Index()
+                    .on("userId", Sort.Direction.ASC)
+                    .on("conversationId", Sort.Direction.ASC)
+                    .unique()
+                    .named("user_conv_unique"));
+            indexOps.createIndex(new Index()
+                    .on("userId", Sort.Direction.ASC)
+                    .on("activityAt", Sort.Direction.DESC)
+                    .on("_id", Sort.Direction.DESC)
+                    .named("user_activity_idx"));
+            indexOps.createIndex(new Index().on("conversationId", Sort.Direction.ASC));
+            indexOps.createIndex(new Index().on("peerUserId", Sort.Direction.ASC).sparse());
+        } catch (Exception ex) {
+            log.warn("Failed to ensure user_inbox indexes", ex);
+        }
+    }
+
+    /**
+     * Write path: messages were stored; their senders' read markers moved with them
+     */
+    public void onMessagesSent(String conversationId, Collection<String> senderIds) {
+        if (eventConsumersEnabled) {
+            return;
+        }
+        try {
+            applyConversationActivity(conversationId);
+            senderIds.forEach(senderId -> applyParticipant(conversationId, senderId));
+        } catch (Exception ex) {
+            log.warn("Failed to project sends into the inbox of conversation {}", conversationId, ex);
+        }
+    }
+
+    /**
+     * Write path: a message was edited or deleted
+     */
+    public void onConversationActivity(String conversationId) {
+        if (eventConsumersEnabled) {
+            return;
+        }
+        try {
+            applyConversationActivity(conversationId);
+        } catch (Exception ex) {
+            log.warn("Failed to project activity of conversation {} into the inbox", conversationId, ex);
+        }
+    }
+
+    /**
+     * Write path: a member read the conversation
+     */
+    public void onParticipantChanged(String conversationId, String userId) {
+        if (eventConsumersEnabled) {
+            return;
+        }
+        try {
+            applyParticipant(conversationId, userId);
+        } catch (Exception ex) {
+            log.warn("Failed to project read marker of user {} in conversation {}", userId, conversationId, ex);
+        }
+    }
+
+    /**
+     * Write path: a user's name or avatar changed
+     */
+    public void onUserProfile(String userId) {
+        if (eventConsumersEnabled) {
+            return;
+        }
+        try {
+            applyUserProfile(userId);
+        } catch (Exception ex) {
+            log.warn("Failed to project profile of user {} into inboxes", userId, ex);
+        }
+    }
+
+    /**
+     * Copy the conversation's last-message snapshot and counter to every member's entry.
+     * Falls back to a full rebuild when the conversation has not been projected yet.
+     */
+    public void applyConversationActivity(String conversationId) {
+        Conversation conversation = conversationRepository.findById(conversationId).orElse(null);
+        if (conversation == null) {
+            return;
+        }
+        Update update = new Update()
+                .set("lastMessageId", conversation.getLastMessageId())
+                .set("lastMessageContent", conversation.getLastMessageContent())
+                .set("lastMessageCreatedAt", conversation.getLastMessageCreatedAt())
+                .set("lastMessageSenderId", conversation.getLastMessageSenderId())
+                .set("lastMessageSenderName", conversation.getLastMessageSenderName())
+                .max("lastMessageSeq", conversation.getSeq())
+                .set("activityAt", activityAt(conversation))
+                .set("updatedAt", Instant.now());
+        long matched = mongoTemplate.updateMulti(
+                Query.query(Criteria.where("conversationId").is(conversationId)), update, InboxEntry.class)
+                .getMatchedCount();
+        if (matched == 0) {
+            rebuildConversation(conversationId);
+        }
+    }
+
+    /**
+     * Refresh one member's per-user state (read marker, favorite, muted)
+     */
+    public void applyParticipant(String conversationId, String userId) {
+        ConversationParticipant participant = participantRepository
+                .findByConversationIdAndUserIdAndIsActiveTrue(conversationId, userId)
+                .orElse(null);
+        if (participant == null) {
+            removeEntry(conversationId, userId);
+            return;
+        }
+        Update update = new Update()
+                .max("lastReadSeq", participant.getLastReadSeq())
+                .set("favorite", participant.isFavorite())
+                .set("muted", participant.isMuted())
+                .set("updatedAt", Instant.now());
+        long matched = mongoTemplate.updateFirst(
+                Query.query(Criteria.where("userId").is(userId).and("conversationId").is(conversationId)),
+                update, InboxEntry.class).getMatchedCount();
+        if (matched == 0) {
+            rebuildConversation(conversationId);
+        }
+    }
+
+    /**
+     * Propagate a profile change to entries that display this user
+     */
+    public void applyUserProfile(String userId) {
+        User user = userRepository.findById(userId).orElse(null);
+        if (user == null) {
+            return;
+        }
+        mongoTemplate.updateMulti(
+                Query.query(Criteria.where("peerUserId").is(userId)),
+                new Update().set("name", displayName(user)).set("avatarUrl", user.getAvatarUrl()),
+                InboxEntry.class);
+        mongoTemplate.updateMulti(
+                Query.query(Criteria.where("lastMessageSenderId").is(userId)),
+                new Update().set("lastMessageSenderName", displayName(user)),
+                InboxEntry.class);
+
+        // Unnamed groups are titled after their members
+        List<String> conversationIds = participantRepository.findByUserIdAndIsActiveTrue(userId).stream()
+                .map(ConversationParticipant::getConversationId)
+                .collect(Collectors.toList());
+        if (conversationIds.isEmpty()) {
+            return;
+        }
+        conversationRepository.findByIds(conversationIds).stream()
+                .filter(c -> c.getType() == ConversationType.GROUP)
+                .filter(c -> c.getGroupName() == null || c.getGroupName().trim().isEmpty())
+                .forEach(c -> rebuildConversation(c.getId()));
+    }
+
+    /**
+     * Re-project every member's entry of a conversation and drop entries of members who left
+     */
+    public void rebuildConversation(String conversationId) {
+        Conversation conversation = conversationRepository.findById(conversationId).orElse(null);
+        if (conversation == null) {
+            mongoTemplate.remove(Query.query(Criteria.where("conversationId").is(conversationId)), InboxEntry.class);
+            return;
+        }
+        List<ConversationParticipant> participants = participantRepository.findByConversationIdAndIsActiveTrue(conversationId);
+        Map<String, User> usersById = loadUsers(participants);
+        List<String> memberIds = participants.stream()
+                .map(ConversationParticipant::getUserId)
+                .collect(Collectors.toList());
+
+        upsertEntries(List.of(conversation), Map.of(conversationId, participants), usersById, memberIds::contains);
+        mongoTemplate.remove(Query.query(Criteria.where("conversationId").is(conversationId)
+                .and("userId").nin(memberIds)), InboxEntry.class);
+    }
+
+    /**
+     * Project all of one user's conversations; used to fill an inbox that has never been projected
+     */
+    public void rebuildUser(String userId) {
+        List<String> conversationIds = participantRepository.findByUserIdAndIsActiveTrue(userId).stream()
+                .map(ConversationParticipant::getConversationId)
+                .collect(Collectors.toList());
+        if (conversationIds.isEmpty()) {
+            return;
+        }
+        List<Conversation> conversations = conversationRepository.findByIds(conversationIds);
+        Map<String, List<ConversationParticipant>> participantsByConversation = participantRepository
+                .findByConversationIdInAndIsActiveTrue(conversationIds).stream()
+                .collect(Collectors.groupingBy(ConversationParticipant::getConversationId));
+        Map<String, User> usersById = loadUsers(participantsByConversation.values().stream()
+                .flatMap(List::stream)
+                .collect(Collectors.toList()));
+
+        upsertEntries(conversations, participantsByConversation, usersById, userId::equals);
+        log.info("Rebuilt inbox of user {} ({} conversations)", userId, conversations.size());
+    }
+
+    public void removeEntry(String conversationId, String userId) {
+        inboxEntryRepository.deleteByConversationIdAndUserId(conversationId, userId);
+    }
+
+    private void upsertEntries(List<Conversation> conversations,
+                               Map<String, List<ConversationParticipant>> participantsByConversation,
+                               Map<String, User> usersById,
+                               java.util.function.Predicate<String> forUser) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, InboxEntry.class);
+        int operations = 0;
+        Instant now = Instant.now();
+
+        for (Conversation conversation : conversations) {
+            List<ConversationParticipant> participants = participantsByConversation.getOrDefault(conversation.getId(), List.of());
+            for (ConversationParticipant participant : participants) {
+                if (!forUser.test(participant.getUserId())) {
+                    continue;
+                }
+                User peer = conversation.getType() == ConversationType.DIRECT
+                        ? participants.stream()
+                            .map(ConversationParticipant::getUserId)
+                            .filter(id -> !id.equals(participant.getUserId()))
+                            .map(usersById::get)
+                            .filter(Objects::nonNull)
+                            .findFirst()
+                            .orElse(null)
+                        : null;
+
+                Update update = new Update()
+                        .set("type", conversation.getType())
+                        .set("name", entryName(conversation, peer, participants, usersById))
+                        .set("avatarUrl", conversation.getType() == ConversationType.DIRECT
+                                ? (peer != null ? peer.getAvatarUrl() : null)
+                                : conversation.getGroupAvatarUrl())
+                        .set("peerUserId", peer != null ? peer.getId() : null)
+                        .set("lastMessageId", conversation.getLastMessageId())
+                        .set("lastMessageContent", conversation.getLastMessageContent())
+                        .set("lastMessageCreatedAt", conversation.getLastMessageCreatedAt())
+                        .set("lastMessageSenderId", conversation.getLastMessageSenderId())
+                        .set("lastMessageSenderName", conversation.getLastMessageSenderName())
+                        .max("lastMessageSeq", conversation.getSeq())
+                        .max("lastReadSeq", participant.getLastReadSeq())
+                        .set("favorite", participant.isFavorite())
+                        .set("muted", participant.isMuted())
+                        .set("activityAt", activityAt(conversation))
+                        .set("updatedAt", now);
+                bulk.upsert(Query.query(Criteria.where("userId").is(participant.getUserId())
+                        .and("conversationId").is(conversation.getId())), update);
+                operations++;
+            }
+        }
+        if (operations > 0) {
+            bulk.execute();
+        }
+    }
+
+    private Map<String, User> loadUsers(List<ConversationParticipant> participants) {
+        Set<String> userIds = participants.stream()
+                .map(ConversationParticipant::getUserId)
+                .collect(Collectors.toSet());
+        Map<String, User> usersById = new HashMap<>();
+        userRepository.findAllById(userIds).forEach(user -> usersById.put(user.getId(), user));
+        return usersById;
+    }
+
+    private static String entryName(Conversation conversation, User peer,
+                                    List<ConversationParticipant> participants, Map<String, User> usersById) {
+        if (conversation.getType() == ConversationType.DIRECT) {
+            return peer != null ? displayName(peer) : "Unknown";
+        }
+        if (conversation.getGroupName() != null && !conversation.getGroupName().trim().isEmpty()) {
+            return conversation.getGroupName();
+        }
+        String membersList = participants.stream()
+                .map(p -> usersById.get(p.getUserId()))
+                .filter(Objects::nonNull)
+                .map(InboxProjector::displayName)
+                .collect(Collectors.joining(", "));
+        return membersList.isEmpty() ? "Group Chat" : membersList;
+    }
+
+    private static String displayName(User user) {
+        return user.getDisplayName() != null ? user.getDisplayName() : user.getUsername();
+    }
+
+    private static Instant activityAt(Conversation conversation) {
+        if (conversation.getLastMessageCreatedAt() != null) {
+            return conversation.getLastMessageCreatedAt();
+        }
+        return conversation.getCreatedAt() != null ? conversation.getCreatedAt() : Instant.EPOCH;
+    }
+}
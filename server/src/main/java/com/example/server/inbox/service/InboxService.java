@@ -0,0 +1,79 @@
+package com.example.server.inbox.service;
+
+import com.example.server.chat.repository.ParticipantRepository;
+import com.example.server.common.exception.ApiException;
+import com.example.server.common.util.CursorUtils;
+import com.example.server.inbox.model.InboxEntry;
+import com.example.server.inbox.repository.InboxEntryRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Reads the per-user inbox projection. A page is one range scan on user_activity_idx,
+ * independent of how many conversations the user has.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class InboxService {
+
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final Sort MOST_RECENT_FIRST = Sort.by(Sort.Direction.DESC, "activityAt", "id");
+
+    private final InboxEntryRepository inboxEntryRepository;
+    private final ParticipantRepository participantRepository;
+    private final InboxProjector inboxProjector;
+
+    public InboxPage getInbox(String userId, String cursor, int size) {
+        int limit = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        PageRequest probe = PageRequest.of(0, limit + 1, MOST_RECENT_FIRST);
+
+        List<InboxEntry> entries;
+        if (cursor != null && !cursor.isBlank()) {
+            CursorUtils.Cursor position = CursorUtils.decode(cursor);
+            if (!ObjectId.isValid(position.getId())) {
+                throw new ApiException("Invalid cursor");
+            }
+            entries = inboxEntryRepository.findOlderThan(
+                    userId, position.getTimestamp(), new ObjectId(position.getId()), probe);
+        } else {
+            entries = inboxEntryRepository.findByUserId(userId, probe);
+            if (entries.isEmpty() && !participantRepository.findByUserIdAndIsActiveTrue(userId).isEmpty()) {
+                // Inbox never projected for this user; partially projected ones are filled by InboxBackfillJob
+                inboxProjector.rebuildUser(userId);
+                entries = inboxEntryRepository.findByUserId(userId, probe);
+            }
+        }
+
+        boolean hasMore = entries.size() > limit;
+        List<InboxEntry> page = hasMore ? new ArrayList<>(entries.subList(0, limit)) : entries;
+        String nextCursor = null;
+        if (hasMore) {
+            InboxEntry last = page.get(page.size() - 1);
+            nextCursor = CursorUtils.encode(last.getActivityAt(), last.getId());
+        }
+        return new InboxPage(page, nextCursor);
+    }
+
+    /**
+     * A user's inbox entries of the given conversations, by conversation id
+     */
+    public Map<String, InboxEntry> getEntries(String userId, Collection<String> conversationIds) {
+        if (conversationIds.isEmpty()) {
+            return Map.of();
+        }
+        return inboxEntryRepository.findByUserIdAndConversationIdIn(userId, conversationIds).stream()
+                .collect(Collectors.toMap(InboxEntry::getConversationId, Function.identity(), (a, b) -> a));
+    }
+}
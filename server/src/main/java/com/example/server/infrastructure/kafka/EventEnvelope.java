@@ -0,0 +1,84 @@
+package com.example.server.infrastructure.kafka;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * JSON envelope of events on message.events / user.events: {eventType, id, timestamp, data}.
+ * The outbox serializes it once when the row is written, so publishing just forwards the stored string.
+ */
+public final class EventEnvelope {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private EventEnvelope() {
+    }
+
+    public static String serialize(String eventType, String id, Map<String, Object> data) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("eventType", eventType);
+        payload.put("id", id);
+        payload.put("timestamp", System.currentTimeMillis());
+        payload.put("data", sanitizeData(data));
+
+        try {
+            return OBJECT_MAPPER.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize event payload", e);
+        }
+    }
+
+    private static Map<String, Object> sanitizeData(Map<String, Object> data) {
+        if (data == null || data.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<String, Object> sanitized = new LinkedHashMap<>();
+        data.forEach((key, value) -> sanitized.put(key, normalizeValue(value)));
+        return sanitized;
+    }
+
+    private static Object normalizeValue(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Number || value instanceof Boolean) {
+            return value;
+        }
+        if (value instanceof Instant) {
+            return value.toString();
+        }
+        if (value instanceof Map<?, ?> mapValue) {
+            return mapValue.entrySet().stream()
+                    .collect(Collectors.toMap(
+                            e -> String.valueOf(e.getKey()),
+                            e -> normalizeValue(e.getValue()),
+                            (a, b) -> b,
+                            LinkedHashMap::new
+                    ));
+        }
+        if (value instanceof Iterable<?> iterable) {
+            List<Object> normalized = new ArrayList<>();
+            for (Object item : iterable) {
+                normalized.add(normalizeValue(item));
+            }
+            return normalized;
+        }
+        if (value.getClass().isArray()) {
+            int length = java.lang.reflect.Array.getLength(value);
+            List<Object> normalized = new ArrayList<>(length);
+            for (int i = 0; i < length; i++) {
+                normalized.add(normalizeValue(java.lang.reflect.Array.get(value, i)));
+            }
+            return normalized;
+        }
+        return value.toString();
+    }
+}
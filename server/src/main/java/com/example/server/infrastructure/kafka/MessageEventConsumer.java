@@ -1,6 +1,63 @@
 package com.example.server.infrastructure.kafka;
 
+import com.example.server.inbox.service.InboxProjector;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the user_inbox projection in step with message.events.
+ * Events only say which conversation/user changed; the projector re-reads the authoritative state.
+ */
+@Component
+@ConditionalOnProperty(name = "app.kafka.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
 public class MessageEventConsumer {
-}
 
+    private final InboxProjector inboxProjector;
+    private final ObjectMapper objectMapper = new ObjectMapper();
 
+    @KafkaListener(topics = "message.events", groupId = "${app.inbox.consumer-group:chat-app-server-inbox}")
+    public void onMessageEvent(ConsumerRecord<String, String> record) {
+        try {
+            JsonNode root = objectMapper.readTree(record.value());
+            String eventType = root.path("eventType").asText(null);
+            String conversationId = root.path("id").asText(null);
+            if (eventType == null || conversationId == null || conversationId.isEmpty()) {
+                return;
+            }
+            JsonNode data = root.path("data");
+
+            switch (eventType) {
+                case "MESSAGE_SENT":
+                    inboxProjector.applyConversationActivity(conversationId);
+                    // The sender's read marker moved with the message
+                    String senderId = data.path("senderId").asText(null);
+                    if (senderId != null) {
+                        inboxProjector.applyParticipant(conversationId, senderId);
+                    }
+                    break;
+                case "MESSAGE_UPDATED":
+                case "MESSAGE_DELETED":
+                    inboxProjector.applyConversationActivity(conversationId);
+                    break;
+                case "MESSAGE_SEEN":
+                    String userId = data.path("userId").asText(null);
+                    if (userId != null) {
+                        inboxProjector.applyParticipant(conversationId, userId);
+                    }
+                    break;
+                default:
+                    log.debug("Ignoring message event {} for inbox projection", eventType);
+            }
+        } catch (Exception ex) {
+            log.error("Failed to project message event: {}", record.value(), ex);
+        }
+    }
+}
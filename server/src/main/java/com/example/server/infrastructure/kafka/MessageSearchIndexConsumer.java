@@ -0,0 +1,50 @@
+package com.example.server.infrastructure.kafka;
+
+import com.example.server.search.service.MessageIndexer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the message search index in step with message.events. The indexer re-reads the message, so the
+ * event only needs to carry its id.
+ */
+@Component
+@ConditionalOnProperty(name = "app.kafka.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class MessageSearchIndexConsumer {
+
+    private final MessageIndexer messageIndexer;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @KafkaListener(topics = "message.events", groupId = "${app.search.consumer-group:chat-app-server-search}")
+    public void onMessageEvent(ConsumerRecord<String, String> record) {
+        try {
+            JsonNode root = objectMapper.readTree(record.value());
+            String eventType = root.path("eventType").asText(null);
+            String messageId = root.path("data").path("messageId").asText(null);
+            if (eventType == null || messageId == null || messageId.isEmpty()) {
+                return;
+            }
+            switch (eventType) {
+                case "MESSAGE_SENT":
+                case "MESSAGE_UPDATED":
+                    messageIndexer.indexById(messageId);
+                    break;
+                case "MESSAGE_DELETED":
+                    messageIndexer.remove(messageId);
+                    break;
+                default:
+                    log.debug("Ignoring message event {} for search index", eventType);
+            }
+        } catch (Exception ex) {
+            log.error("Failed to index message event: {}", record.value(), ex);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.server.infrastructure.kafka;
+
+import com.example.server.inbox.service.InboxProjector;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Refreshes display names/avatars in the user_inbox projection when a profile changes.
+ */
+@Component
+@ConditionalOnProperty(name = "app.kafka.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class UserEventConsumer {
+
+    private final InboxProjector inboxProjector;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @KafkaListener(topics = "user.events", groupId = "${app.inbox.consumer-group:chat-app-server-inbox}")
+    public void onUserEvent(ConsumerRecord<String, String> record) {
+        try {
+            JsonNode root = objectMapper.readTree(record.value());
+            if (!"USER_PROFILE_UPDATED".equals(root.path("eventType").asText(null))) {
+                return;
+            }
+            String userId = root.path("id").asText(null);
+            if (userId != null && !userId.isEmpty()) {
+                inboxProjector.applyUserProfile(userId);
+            }
+        } catch (Exception ex) {
+            log.error("Failed to project user event: {}", record.value(), ex);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.example.server.infrastructure.redis;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.MessageListener;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.listener.ChannelTopic;
 import org.springframework.data.redis.listener.RedisMessageListenerContainer;
@@ -9,6 +10,8 @@ import org.springframework.data.redis.listener.adapter.MessageListenerAdapter;
 import org.springframework.stereotype.Service;
 
 import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
@@ -22,6 +25,9 @@ public class RedisPubSubService {
     private static final String USER_STATUS_CHANNEL = "user_status";
     private static final String TYPING_CHANNEL = "typing";
     private static final String MESSAGE_SEEN_CHANNEL = "message_seen";
+    private static final String USER_PROFILE_CHANNEL = "user_profile";
+    private static final String MESSAGE_CACHE_CHANNEL = "message_cache";
+    private static final String MESSAGE_ARCHIVE_CHANNEL = "message_archive";
     
     // Publish user status changes
     public void publishUserStatus(String userId, String status) {
@@ -61,6 +67,22 @@ public class RedisPubSubService {
         log.debug("Published message seen: message {} seen by user {} in conversation {}", messageId, userId, conversationId);
     }
     
+    // Publish profile changes so every replica drops its cached copy of the user
+    public void publishUserProfileChanged(String userId) {
+        redisTemplate.convertAndSend(USER_PROFILE_CHANNEL, userId);
+        log.debug("Published profile change for user {}", userId);
+    }
+    
+    // Publish message writes so other replicas drop their cached window of the conversation
+    public void publishConversationMessagesChanged(String originNodeId, String conversationId) {
+        redisTemplate.convertAndSend(MESSAGE_CACHE_CHANNEL, originNodeId + "|" + conversationId);
+    }
+    
+    // Publish new archive segments so every replica reloads the conversation's segment directory
+    public void publishArchiveChanged(String conversationId) {
+        redisTemplate.convertAndSend(MESSAGE_ARCHIVE_CHANNEL, conversationId);
+    }
+    
     // Subscribe to channels
     public void subscribeToUserStatus(MessageListenerAdapter listenerAdapter) {
         messageListenerContainer.addMessageListener(listenerAdapter, new ChannelTopic(USER_STATUS_CHANNEL));
@@ -73,6 +95,37 @@ public class RedisPubSubService {
     public void subscribeToMessageSeen(MessageListenerAdapter listenerAdapter) {
         messageListenerContainer.addMessageListener(listenerAdapter, new ChannelTopic(MESSAGE_SEEN_CHANNEL));
     }
+    
+    public void subscribeToUserProfileChanges(Consumer<String> onUserChanged) {
+        MessageListener listener = (message, pattern) -> {
+            Object userId = redisTemplate.getValueSerializer().deserialize(message.getBody());
+            if (userId != null) {
+                onUserChanged.accept(userId.toString());
+            }
+        };
+        messageListenerContainer.addMessageListener(listener, new ChannelTopic(USER_PROFILE_CHANNEL));
+    }
+    
+    public void subscribeToConversationMessagesChanged(BiConsumer<String, String> onChanged) {
+        MessageListener listener = (message, pattern) -> {
+            Object payload = redisTemplate.getValueSerializer().deserialize(message.getBody());
+            if (payload != null) {
+                String[] parts = payload.toString().split("\\|", 2);
+                if (parts.length == 2) {
+                    onChanged.accept(parts[0], parts[1]);
+                }
+            }
+        };
+        messageListenerContainer.addMessageListener(listener, new ChannelTopic(MESSAGE_CACHE_CHANNEL));
+    }
+    
+    public void subscribeToArchiveChanges(Consumer<String> onArchived) {
+        MessageListener listener = (message, pattern) -> {
+            Object conversationId = redisTemplate.getValueSerializer().deserialize(message.getBody());
+            if (conversationId != null) {
+                onArchived.accept(conversationId.toString());
+            }
+        };
+        messageListenerContainer.addMessageListener(listener, new ChannelTopic(MESSAGE_ARCHIVE_CHANNEL));
+    }
 }
-
-
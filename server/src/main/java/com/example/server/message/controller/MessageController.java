@@ -1,12 +1,22 @@
 package com.example.server.message.controller;
 
 import com.example.server.common.security.CustomUserDetails;
+import com.example.server.inbox.model.InboxEntry;
 import com.example.server.infrastructure.storage.FileStorageService;
+import com.example.server.message.dto.BatchMessageRequest;
+import com.example.server.message.dto.BatchMessageResult;
 import com.example.server.message.dto.ForwardMessageRequest;
 import com.example.server.message.dto.MessageRequest;
 import com.example.server.message.dto.MessageResponse;
+import com.example.server.message.dto.SearchHitResponse;
 import com.example.server.message.model.Message;
+import com.example.server.message.service.BatchSendOutcome;
+import com.example.server.message.service.MessageHistoryPage;
 import com.example.server.message.service.MessageService;
+import com.example.server.search.service.GlobalMessageSearchService;
+import com.example.server.search.service.GlobalSearchPage;
+import com.example.server.search.service.MessageSearchHit;
+import com.example.server.search.service.MessageSearchPage;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,12 +39,19 @@ public class MessageController {
 
     private static final Logger log = LoggerFactory.getLogger(MessageController.class);
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final String PREV_CURSOR_HEADER = "X-Prev-Cursor";
+    public static final String SEARCH_TRUNCATED_HEADER = "X-Search-Truncated";
+
     private final MessageService messageService;
     private final FileStorageService fileStorageService;
+    private final GlobalMessageSearchService globalMessageSearchService;
 
-    public MessageController(MessageService messageService, FileStorageService fileStorageService) {
+    public MessageController(MessageService messageService, FileStorageService fileStorageService,
+                             GlobalMessageSearchService globalMessageSearchService) {
         this.messageService = messageService;
         this.fileStorageService = fileStorageService;
+        this.globalMessageSearchService = globalMessageSearchService;
     }
 
     @PostMapping("/direct")
@@ -74,31 +91,155 @@ public class MessageController {
         return toResponse(saved);
     }
 
+    /**
+     * Bulk send for bots and integrations, possibly across conversations. Each item may carry a messageId
+     * idempotency key; the response has one result per item, in request order.
+     */
+    @PostMapping("/batch")
+    public List<BatchMessageResult> sendBatch(
+            @AuthenticationPrincipal CustomUserDetails principal,
+            @RequestBody BatchMessageRequest request) {
+        List<BatchSendOutcome> outcomes = messageService.createMessages(principal.getId(), request.getMessages());
+        List<BatchMessageResult> results = new java.util.ArrayList<>(outcomes.size());
+        for (int i = 0; i < outcomes.size(); i++) {
+            BatchSendOutcome outcome = outcomes.get(i);
+            BatchMessageResult result = new BatchMessageResult();
+            result.setIndex(i);
+            result.setMessageId(outcome.getMessageId());
+            result.setStatus(outcome.getStatus().name());
+            if (outcome.getMessage() != null) {
+                result.setMessage(toResponse(outcome.getMessage()));
+            }
+            result.setError(outcome.getError());
+            results.add(result);
+        }
+        return results;
+    }
+
+    /**
+     * Conversation history, newest first. Scroll with the opaque cursors returned in
+     * X-Next-Cursor (pass as before=) and X-Prev-Cursor (pass as after=); page= is legacy offset paging.
+     */
     @GetMapping("/{conversationId}")
-    public List<MessageResponse> list(
+    public ResponseEntity<List<MessageResponse>> list(
             @AuthenticationPrincipal CustomUserDetails principal,
             @PathVariable String conversationId,
+            @RequestParam(required = false) String before,
+            @RequestParam(required = false) String after,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size) {
-        List<Message> messages = messageService.getMessagesByConversation(conversationId, page, size);
-        return messages.stream().map(this::toResponse).collect(java.util.stream.Collectors.toList());
+        if (page > 0 && before == null && after == null) {
+            List<Message> messages = messageService.getMessagesByConversation(conversationId, page, size);
+            return ResponseEntity.ok(messages.stream().map(this::toResponse).collect(java.util.stream.Collectors.toList()));
+        }
+
+        MessageHistoryPage history = messageService.getMessageHistory(conversationId, before, after, size);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (history.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, history.getNextCursor());
+        }
+        if (history.getPrevCursor() != null) {
+            response.header(PREV_CURSOR_HEADER, history.getPrevCursor());
+        }
+        return response.body(history.getMessages().stream().map(this::toResponse).collect(java.util.stream.Collectors.toList()));
+    }
+
+    /**
+     * Jump into history: up to size messages before and after an anchor, given as messageId (Mongo or client id)
+     * or at (an instant), newest first. Scroll on with X-Next-Cursor (before=) and X-Prev-Cursor (after=).
+     */
+    @GetMapping("/{conversationId}/around")
+    public ResponseEntity<List<MessageResponse>> around(
+            @AuthenticationPrincipal CustomUserDetails principal,
+            @PathVariable String conversationId,
+            @RequestParam(required = false) String messageId,
+            @RequestParam(required = false) java.time.Instant at,
+            @RequestParam(defaultValue = "20") int size) {
+        MessageHistoryPage window = messageService.getMessagesAround(conversationId, messageId, at, size);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (window.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, window.getNextCursor());
+        }
+        if (window.getPrevCursor() != null) {
+            response.header(PREV_CURSOR_HEADER, window.getPrevCursor());
+        }
+        return response.body(window.getMessages().stream().map(this::toResponse).collect(java.util.stream.Collectors.toList()));
+    }
+
+    /**
+     * Ranked search across all conversations the caller is an active member of, each hit with the
+     * conversation's name and avatar as shown in the caller's inbox. Continue with X-Next-Cursor.
+     * Only the newest app.search.max-candidates matches are ranked; X-Search-Truncated: true says older
+     * matches were left out and the query should be narrowed.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<List<SearchHitResponse>> searchAll(
+            @AuthenticationPrincipal CustomUserDetails principal,
+            @RequestParam String query,
+            @RequestParam(required = false) String senderId,
+            @RequestParam(required = false) java.time.Instant fromDate,
+            @RequestParam(required = false) java.time.Instant toDate,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Search query is required");
+        }
+        GlobalSearchPage result = globalMessageSearchService.search(
+                principal.getId(), query, senderId, fromDate, toDate, cursor, size);
+        List<SearchHitResponse> hits = new java.util.ArrayList<>(result.getHits().size());
+        for (MessageSearchHit hit : result.getHits()) {
+            SearchHitResponse r = new SearchHitResponse();
+            r.setMessage(toResponse(hit.getMessage()));
+            r.setScore(hit.getScore());
+            r.setConversationId(hit.getMessage().getConversationId());
+            InboxEntry conversation = result.getConversations().get(hit.getMessage().getConversationId());
+            if (conversation != null) {
+                r.setConversationType(conversation.getType());
+                r.setConversationName(conversation.getName());
+                r.setConversationAvatarUrl(conversation.getAvatarUrl());
+            }
+            hits.add(r);
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (result.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, result.getNextCursor());
+        }
+        if (result.isTruncated()) {
+            response.header(SEARCH_TRUNCATED_HEADER, "true");
+        }
+        return response.body(hits);
     }
 
+    /**
+     * Ranked search within a conversation; accents are ignored and the last word matches as a prefix.
+     * Continue with the cursor returned in X-Next-Cursor; page= is legacy offset paging.
+     * Ranking covers the newest app.search.max-candidates matches, see X-Search-Truncated on searchAll.
+     */
     @GetMapping("/{conversationId}/search")
-    public List<MessageResponse> searchMessages(
+    public ResponseEntity<List<MessageResponse>> searchMessages(
             @AuthenticationPrincipal CustomUserDetails principal,
             @PathVariable String conversationId,
             @RequestParam String query,
             @RequestParam(required = false) String senderId,
             @RequestParam(required = false) java.time.Instant fromDate,
             @RequestParam(required = false) java.time.Instant toDate,
+            @RequestParam(required = false) String cursor,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size) {
         if (query == null || query.isBlank()) {
             throw new IllegalArgumentException("Search query is required");
         }
-        List<Message> messages = messageService.searchMessages(conversationId, query, senderId, fromDate, toDate, page, size);
-        return messages.stream().map(this::toResponse).collect(java.util.stream.Collectors.toList());
+        MessageSearchPage result = messageService.searchMessages(conversationId, query, senderId, fromDate, toDate, cursor, page, size);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (result.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, result.getNextCursor());
+        }
+        if (result.isTruncated()) {
+            response.header(SEARCH_TRUNCATED_HEADER, "true");
+        }
+        return response.body(result.getHits().stream()
+                .map(hit -> toResponse(hit.getMessage()))
+                .collect(java.util.stream.Collectors.toList()));
     }
 
     @PutMapping("/{messageId}")
@@ -343,6 +484,7 @@ public class MessageController {
         r.setId(m.getId());
         r.setSenderId(m.getSenderId());
         r.setConversationId(m.getConversationId());
+        r.setSeq(m.getSeq());
         r.setContent(m.getContent());
         r.setImageUrl(m.getImageUrl());
         r.setCreatedAt(m.getCreatedAt());
@@ -0,0 +1,10 @@
+package com.example.server.message.dto;
+
+import java.util.List;
+
+public class BatchMessageRequest {
+    private List<MessageRequest> messages; // each item needs conversationId; messageId is its idempotency key
+
+    public List<MessageRequest> getMessages() { return messages; }
+    public void setMessages(List<MessageRequest> messages) { this.messages = messages; }
+}
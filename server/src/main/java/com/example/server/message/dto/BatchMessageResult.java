@@ -0,0 +1,24 @@
+package com.example.server.message.dto;
+
+public class BatchMessageResult {
+    private int index; // position in the request
+    private String messageId; // idempotency key echoed back
+    private String status; // CREATED, DUPLICATE (messageId already stored, message is the earlier one) or REJECTED
+    private MessageResponse message;
+    private String error;
+
+    public int getIndex() { return index; }
+    public void setIndex(int index) { this.index = index; }
+
+    public String getMessageId() { return messageId; }
+    public void setMessageId(String messageId) { this.messageId = messageId; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public MessageResponse getMessage() { return message; }
+    public void setMessage(MessageResponse message) { this.message = message; }
+
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+}
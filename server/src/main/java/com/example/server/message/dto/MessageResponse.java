@@ -6,6 +6,7 @@ public class MessageResponse {
     private String id;
     private String senderId;
     private String conversationId;
+    private Long seq;
     private String content;
     private String imageUrl;
     private Instant createdAt;
@@ -25,6 +26,8 @@ public class MessageResponse {
     public void setSenderId(String senderId) { this.senderId = senderId; }
     public String getConversationId() { return conversationId; }
     public void setConversationId(String conversationId) { this.conversationId = conversationId; }
+    public Long getSeq() { return seq; }
+    public void setSeq(Long seq) { this.seq = seq; }
     public String getContent() { return content; }
     public void setContent(String content) { this.content = content; }
     public String getImageUrl() { return imageUrl; }
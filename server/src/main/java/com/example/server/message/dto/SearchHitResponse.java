@@ -0,0 +1,31 @@
+package com.example.server.message.dto;
+
+import com.example.server.chat.model.ConversationType;
+
+public class SearchHitResponse {
+    private MessageResponse message;
+    private double score;
+    // Conversation as the caller sees it in their inbox
+    private String conversationId;
+    private ConversationType conversationType;
+    private String conversationName;
+    private String conversationAvatarUrl;
+
+    public MessageResponse getMessage() { return message; }
+    public void setMessage(MessageResponse message) { this.message = message; }
+
+    public double getScore() { return score; }
+    public void setScore(double score) { this.score = score; }
+
+    public String getConversationId() { return conversationId; }
+    public void setConversationId(String conversationId) { this.conversationId = conversationId; }
+
+    public ConversationType getConversationType() { return conversationType; }
+    public void setConversationType(ConversationType conversationType) { this.conversationType = conversationType; }
+
+    public String getConversationName() { return conversationName; }
+    public void setConversationName(String conversationName) { this.conversationName = conversationName; }
+
+    public String getConversationAvatarUrl() { return conversationAvatarUrl; }
+    public void setConversationAvatarUrl(String conversationAvatarUrl) { this.conversationAvatarUrl = conversationAvatarUrl; }
+}
@@ -17,7 +17,12 @@ import org.springframework.data.mongodb.core.index.IndexDirection;
 @Setter
 @Document(collection = "messages")
 @CompoundIndexes({
-        @CompoundIndex(name = "conv_created_idx", def = "{ 'conversationId': 1, 'createdAt': 1 }")
+        @CompoundIndex(name = "conv_created_idx", def = "{ 'conversationId': 1, 'createdAt': 1 }"),
+        // _id is the keyset tie-breaker so history pages can be read straight off the index;
+        // created by MessageIndexInitializer since index auto-creation is off
+        @CompoundIndex(name = "conv_created_id_idx", def = "{ 'conversationId': 1, 'createdAt': 1, '_id': 1 }"),
+        @CompoundIndex(name = "conv_seq_idx", def = "{ 'conversationId': 1, 'seq': 1 }"),
+        @CompoundIndex(name = "outbox_pending_idx", def = "{ 'outboxPending': 1 }", partialFilter = "{ 'outboxPending': true }")
 })
 public class Message {
     @Id
@@ -26,9 +31,14 @@ public class Message {
     @Indexed
     private String senderId;
 
+    // Redundant with conv_created_id_idx; dropped by MessageIndexInitializer when app.messages.drop-legacy-indexes is on
     @Indexed
     private String conversationId;
 
+    // Monotonic position within the conversation, allocated from Conversation.seq;
+    // messages older than sequences are numbered 0 and below by MessageSequenceBackfillJob
+    private Long seq;
+
     private String content;
     private String imageUrl;
 
@@ -37,6 +47,10 @@ public class Message {
     @Indexed(unique = true, sparse = true, direction = IndexDirection.ASCENDING)
     private String messageId;
 
+    // True from the insert until the MESSAGE_SENT outbox row is written; rows left behind by a failed batch
+    // are written by MessageOutboxRepairJob or by the client's retry
+    private Boolean outboxPending;
+
     @CreatedDate
     private Instant createdAt;
     
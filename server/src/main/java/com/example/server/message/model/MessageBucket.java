@@ -0,0 +1,35 @@
+package com.example.server.message.model;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Up to app.messages.buckets.size messages of one conversation packed into one document, newest first.
+ * Only the newest bucket of a conversation takes writes; it is appended to with $push.
+ */
+@Getter
+@Setter
+@Document(collection = "message_buckets")
+public class MessageBucket {
+    @Id
+    private String id;
+
+    private String conversationId;
+
+    // Slots used; deleting a message does not free its slot, so older buckets never reopen
+    private int count;
+
+    private Instant minCreatedAt;
+    private Instant maxCreatedAt;
+
+    // Built by MessageBucketMigrationJob from messages written before buckets were enabled
+    private boolean migrated;
+
+    private List<Message> messages = new ArrayList<>();
+}
@@ -1,32 +1,36 @@
 package com.example.server.message.repository;
 
 import com.example.server.message.model.Message;
-import org.springframework.data.domain.Page;
+import org.bson.types.ObjectId;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
 
 import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
 
 public interface MessageRepository extends MongoRepository<Message, String> {
-    Page<Message> findByConversationIdOrderByCreatedAtDesc(String conversationId, Pageable pageable);
-    
-    // Search messages by content in a conversation
-    @Query("{ 'conversationId': ?0, 'content': { $regex: ?1, $options: 'i' } }")
-    List<Message> searchByContent(String conversationId, String query, Pageable pageable);
-    
-    // Search by content and sender
-    @Query("{ 'conversationId': ?0, 'content': { $regex: ?1, $options: 'i' }, 'senderId': ?2 }")
-    List<Message> searchByContentAndSender(String conversationId, String query, String senderId, Pageable pageable);
-    
-    // Search by content and date range
-    @Query("{ 'conversationId': ?0, 'content': { $regex: ?1, $options: 'i' }, 'createdAt': { $gte: ?2, $lte: ?3 } }")
-    List<Message> searchByContentAndDateRange(String conversationId, String query, Instant fromDate, Instant toDate, Pageable pageable);
-    
-    // Search by content, sender and date range
-    @Query("{ 'conversationId': ?0, 'content': { $regex: ?1, $options: 'i' }, 'senderId': ?2, 'createdAt': { $gte: ?3, $lte: ?4 } }")
-    List<Message> searchByContentSenderAndDateRange(String conversationId, String query, String senderId, Instant fromDate, Instant toDate, Pageable pageable);
+    // List (not Page) return types so Spring Data never issues a count() over the conversation
+    List<Message> findByConversationId(String conversationId, Pageable pageable);
+
+    Optional<Message> findFirstByConversationIdOrderByCreatedAtDesc(String conversationId);
+
+    long countByConversationId(String conversationId);
+
+    // Anchor lookup by Mongo id or client idempotency key
+    @Query("{ 'conversationId': ?0, $or: [ { '_id': ?1 }, { 'messageId': ?2 } ] }")
+    Optional<Message> findAnchor(String conversationId, ObjectId id, String messageId);
+
+    Optional<Message> findFirstByConversationIdAndMessageId(String conversationId, String messageId);
+
+    // Keyset page strictly older than (createdAt, _id); bounded range scan on conv_created_id_idx
+    @Query("{ 'conversationId': ?0, 'createdAt': { $lte: ?1 }, $or: [ { 'createdAt': { $lt: ?1 } }, { '_id': { $lt: ?2 } } ] }")
+    List<Message> findOlderThan(String conversationId, Instant createdAt, ObjectId id, Pageable pageable);
+
+    // Keyset page strictly newer than (createdAt, _id); bounded range scan on conv_created_id_idx
+    @Query("{ 'conversationId': ?0, 'createdAt': { $gte: ?1 }, $or: [ { 'createdAt': { $gt: ?1 } }, { '_id': { $gt: ?2 } } ] }")
+    List<Message> findNewerThan(String conversationId, Instant createdAt, ObjectId id, Pageable pageable);
 }
 
 
@@ -0,0 +1,36 @@
+package com.example.server.message.service;
+
+import com.example.server.message.model.Message;
+
+/**
+ * Result of one item of a bulk send, in request order. message is set for CREATED and DUPLICATE,
+ * error for REJECTED.
+ */
+public class BatchSendOutcome {
+    public enum Status { CREATED, DUPLICATE, REJECTED }
+
+    private final String messageId;
+    private final Status status;
+    private final Message message;
+    private final String error;
+
+    private BatchSendOutcome(String messageId, Status status, Message message, String error) {
+        this.messageId = messageId;
+        this.status = status;
+        this.message = message;
+        this.error = error;
+    }
+
+    static BatchSendOutcome stored(String messageId, Message message, boolean duplicate) {
+        return new BatchSendOutcome(messageId, duplicate ? Status.DUPLICATE : Status.CREATED, message, null);
+    }
+
+    static BatchSendOutcome rejected(String messageId, String error) {
+        return new BatchSendOutcome(messageId, Status.REJECTED, null, error);
+    }
+
+    public String getMessageId() { return messageId; }
+    public Status getStatus() { return status; }
+    public Message getMessage() { return message; }
+    public String getError() { return error; }
+}
@@ -0,0 +1,408 @@
+package com.example.server.message.service;
+
+import com.example.server.chat.model.ConversationParticipant;
+import com.example.server.chat.service.ConversationSequenceService;
+import com.example.server.chat.service.ConversationSnapshotService;
+import com.example.server.common.exception.ApiException;
+import com.example.server.inbox.service.InboxProjector;
+import com.example.server.message.model.Message;
+import com.example.server.outbox.model.OutboxEvent;
+import com.example.server.search.service.MessageIndexer;
+import com.example.server.user.service.UserProfile;
+import com.example.server.user.service.UserProfileCache;
+import com.mongodb.bulk.BulkWriteError;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+/**
+ * Writes a batch of message sends with a fixed number of round-trips, whatever the batch size:
+ * one sender lookup, one idempotency check, one sequence reservation per conversation, one insert into
+ * messages and one upsert into outbox, then a single post-commit step (read markers and conversation snapshots).
+ *
+ * There is no transaction across the two collections. Messages are inserted with outboxPending=true and the flag
+ * is cleared once their outbox rows, keyed by eventId, are written. A batch whose outbox write fails still
+ * completes its sends, since the messages are stored; the flagged rows get their events from a client retry
+ * (resolveRetries) or from MessageOutboxRepairJob. Writing an outbox row twice is a no-op.
+ *
+ * Sends rejected by the insert (a duplicate messageId that raced in) give their numbers back, see compactSequences.
+ *
+ * Used by MessageIngestBatcher for group commit and directly, with a batch of one, when batching is off.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MessageBatchWriter {
+
+    private final MongoTemplate mongoTemplate;
+    private final UserProfileCache profileCache;
+    private final ConversationSequenceService sequenceService;
+    private final ConversationSnapshotService snapshotService;
+    private final RecentMessageCache recentMessages;
+    private final MessageBucketStore bucketStore;
+    private final InboxProjector inboxProjector;
+    private final MessageIndexer messageIndexer;
+
+    /**
+     * A queued send; the future completes with the stored message once its batch is committed
+     */
+    public static class PendingSend {
+        private final String senderId;
+        private final String conversationId;
+        private final String content;
+        private final String imageUrl;
+        private final String messageId;
+        private final CompletableFuture<Message> result = new CompletableFuture<>();
+        private volatile boolean duplicate;
+
+        public PendingSend(String senderId, String conversationId, String content, String imageUrl, String messageId) {
+            this.senderId = senderId;
+            this.conversationId = conversationId;
+            this.content = content;
+            this.imageUrl = imageUrl;
+            this.messageId = messageId != null && !messageId.isBlank() ? messageId : null;
+        }
+
+        public CompletableFuture<Message> getResult() { return result; }
+
+        /**
+         * True when the messageId was already stored and the result is the earlier message
+         */
+        public boolean isDuplicate() { return duplicate; }
+    }
+
+    public void write(List<PendingSend> batch) {
+        try {
+            doWrite(batch);
+        } catch (Exception ex) {
+            log.error("Failed to write batch of {} messages", batch.size(), ex);
+            batch.forEach(send -> send.result.completeExceptionally(ex));
+        }
+    }
+
+    private void doWrite(List<PendingSend> batch) {
+        List<PendingSend> fresh = resolveRetries(batch);
+        if (fresh.isEmpty()) {
+            return;
+        }
+        Map<String, UserProfile> senders = profileCache.getAll(
+                fresh.stream().map(send -> send.senderId).collect(Collectors.toSet()));
+
+        // Number each conversation's sends in arrival order from one reserved block
+        Map<String, List<PendingSend>> byConversation = fresh.stream()
+                .collect(Collectors.groupingBy(send -> send.conversationId, LinkedHashMap::new, Collectors.toList()));
+        Instant now = Instant.now();
+        List<PendingSend> accepted = new ArrayList<>(fresh.size());
+        List<Message> messages = new ArrayList<>(fresh.size());
+        for (Map.Entry<String, List<PendingSend>> entry : byConversation.entrySet()) {
+            long nextSeq;
+            try {
+                nextSeq = sequenceService.reserve(entry.getKey(), entry.getValue().size());
+            } catch (Exception ex) {
+                entry.getValue().forEach(send -> send.result.completeExceptionally(ex));
+                continue;
+            }
+            for (PendingSend send : entry.getValue()) {
+                Message message = new Message();
+                // Ids are assigned here so _id order matches seq order and the insert needs no read-back
+                message.setId(new ObjectId().toHexString());
+                message.setSenderId(send.senderId);
+                message.setConversationId(send.conversationId);
+                message.setContent(send.content);
+                message.setImageUrl(send.imageUrl);
+                message.setCreatedAt(now);
+                message.setOriginalCreatedAt(now); // Store original creation time
+                // Don't set updatedAt for new messages - only set when actually edited
+                message.setUpdatedAt(null);
+                message.setMessageId(send.messageId);
+                message.setSeq(nextSeq++);
+                message.setOutboxPending(true);
+                messages.add(message);
+                accepted.add(send);
+            }
+        }
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        Set<Integer> rejected = insertMessages(messages, accepted);
+        if (!rejected.isEmpty()) {
+            compactSequences(messages, rejected);
+        }
+        List<Message> committed = new ArrayList<>(messages.size());
+        List<PendingSend> committedSends = new ArrayList<>(messages.size());
+        for (int i = 0; i < messages.size(); i++) {
+            if (rejected.contains(i)) {
+                continue;
+            }
+            committed.add(messages.get(i));
+            committedSends.add(accepted.get(i));
+        }
+        try {
+            writeOutbox(committed, senders);
+        } catch (Exception ex) {
+            // The messages are stored: their sends succeed and the flagged rows are repaired later
+            log.error("Failed to write outbox rows of {} stored messages, left for repair", committed.size(), ex);
+        }
+
+        afterCommit(committed, senders);
+        for (int i = 0; i < committed.size(); i++) {
+            committedSends.get(i).result.complete(committed.get(i));
+        }
+        log.debug("Committed {} messages in {} conversations", committed.size(), byConversation.size());
+    }
+
+    /**
+     * Client retries carry the same messageId: answer them with the stored message instead of writing again
+     */
+    private List<PendingSend> resolveRetries(List<PendingSend> batch) {
+        Set<String> clientIds = batch.stream()
+                .map(send -> send.messageId)
+                .filter(id -> id != null)
+                .collect(Collectors.toSet());
+        Map<String, Message> existing = new HashMap<>();
+        if (!clientIds.isEmpty()) {
+            mongoTemplate.find(Query.query(Criteria.where("messageId").in(clientIds)), Message.class)
+                    .forEach(message -> existing.put(message.getMessageId(), message));
+        }
+
+        List<PendingSend> fresh = new ArrayList<>(batch.size());
+        Map<String, PendingSend> firstInBatch = new HashMap<>();
+        List<Message> unpublished = new ArrayList<>();
+        for (PendingSend send : batch) {
+            if (send.messageId != null && existing.containsKey(send.messageId)) {
+                Message stored = existing.get(send.messageId);
+                if (stored.getSenderId().equals(send.senderId) && stored.getConversationId().equals(send.conversationId)) {
+                    if (Boolean.TRUE.equals(stored.getOutboxPending()) && !unpublished.contains(stored)) {
+                        unpublished.add(stored);
+                    }
+                    send.duplicate = true;
+                    send.result.complete(stored);
+                } else {
+                    send.result.completeExceptionally(new ApiException("Message id already exists"));
+                }
+            } else if (send.messageId != null && firstInBatch.containsKey(send.messageId)) {
+                // Same id twice in one batch: the duplicate resolves with the first one's result
+                send.duplicate = true;
+                firstInBatch.get(send.messageId).result.whenComplete((message, error) -> {
+                    if (error != null) send.result.completeExceptionally(error);
+                    else send.result.complete(message);
+                });
+            } else {
+                if (send.messageId != null) {
+                    firstInBatch.put(send.messageId, send);
+                }
+                fresh.add(send);
+            }
+        }
+        if (!unpublished.isEmpty()) {
+            // The first attempt stored the message but not its event
+            try {
+                ensureOutbox(unpublished);
+            } catch (Exception ex) {
+                log.warn("Failed to repair outbox rows of {} retried messages", unpublished.size(), ex);
+            }
+        }
+        return fresh;
+    }
+
+    /**
+     * Write the MESSAGE_SENT outbox rows of stored messages still flagged outboxPending
+     */
+    public void ensureOutbox(List<Message> messages) {
+        Map<String, UserProfile> senders = profileCache.getAll(
+                messages.stream().map(Message::getSenderId).collect(Collectors.toSet()));
+        writeOutbox(messages, senders);
+    }
+
+    /**
+     * One bulk upsert keyed by eventId, so a row that already exists is left as it is, then the messages'
+     * outboxPending flags are cleared
+     */
+    private void writeOutbox(List<Message> messages, Map<String, UserProfile> senders) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        BulkOperations outbox = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, OutboxEvent.class);
+        for (Message message : messages) {
+            OutboxEvent event = outboxEvent(message, senders.get(message.getSenderId()));
+            // Auditing does not run on upserts; rows of one conversation keep the order of their messages
+            event.setCreatedAt(message.getCreatedAt());
+            Document row = new Document();
+            mongoTemplate.getConverter().write(event, row);
+            row.remove("_id");
+            outbox.upsert(Query.query(Criteria.where("eventId").is(event.getEventId())),
+                    Update.fromDocument(new Document("$setOnInsert", row)));
+        }
+        outbox.execute();
+
+        List<String> ids = messages.stream().map(Message::getId).collect(Collectors.toList());
+        mongoTemplate.updateMulti(Query.query(Criteria.where("_id").in(ids)),
+                new Update().unset("outboxPending"), Message.class);
+        messages.forEach(message -> message.setOutboxPending(null));
+    }
+
+    /**
+     * Unordered bulk insert; returns the indexes that were rejected (duplicate messageId raced in)
+     */
+    private Set<Integer> insertMessages(List<Message> messages, List<PendingSend> sends) {
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Message.class).insert(messages).execute();
+            return Set.of();
+        } catch (BulkOperationException ex) {
+            Set<Integer> rejected = new HashSet<>();
+            for (BulkWriteError error : ex.getErrors()) {
+                rejected.add(error.getIndex());
+                sends.get(error.getIndex()).result.completeExceptionally(
+                        new IllegalStateException("Failed to store message: " + error.getMessage()));
+            }
+            return rejected;
+        }
+    }
+
+    /**
+     * Rows rejected at insert leave holes in their conversation's block, and every hole would count as unread
+     * for good. The stored rows of the block are renumbered to be consecutive and the unused top of the block is
+     * handed back to the counter; when another send has reserved after the block meanwhile, the hole stays.
+     */
+    private void compactSequences(List<Message> messages, Set<Integer> rejected) {
+        Map<String, List<Integer>> blocks = new LinkedHashMap<>();
+        for (int i = 0; i < messages.size(); i++) {
+            blocks.computeIfAbsent(messages.get(i).getConversationId(), id -> new ArrayList<>()).add(i);
+        }
+        for (Map.Entry<String, List<Integer>> block : blocks.entrySet()) {
+            List<Integer> indexes = block.getValue();
+            long blockEnd = messages.get(indexes.get(indexes.size() - 1)).getSeq();
+            long nextSeq = messages.get(indexes.get(0)).getSeq();
+            Map<Integer, Long> moved = new LinkedHashMap<>();
+            for (int i : indexes) {
+                if (rejected.contains(i)) {
+                    continue;
+                }
+                Message message = messages.get(i);
+                if (message.getSeq() != nextSeq) {
+                    moved.put(i, nextSeq);
+                }
+                nextSeq++;
+            }
+            int unused = Math.toIntExact(blockEnd - nextSeq + 1);
+            if (unused == 0) {
+                continue;
+            }
+            try {
+                if (!moved.isEmpty()) {
+                    BulkOperations renumber = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Message.class);
+                    moved.forEach((i, seq) -> renumber.updateOne(
+                            Query.query(Criteria.where("_id").is(messages.get(i).getId())), Update.update("seq", seq)));
+                    renumber.execute();
+                    moved.forEach((i, seq) -> messages.get(i).setSeq(seq));
+                }
+                if (!sequenceService.release(block.getKey(), blockEnd, unused)) {
+                    log.warn("Conversation {}: {} sequence numbers lost to rejected sends", block.getKey(), unused);
+                }
+            } catch (Exception ex) {
+                log.warn("Failed to compact sequences of conversation {}", block.getKey(), ex);
+            }
+        }
+    }
+
+    private OutboxEvent outboxEvent(Message message, UserProfile sender) {
+        String kafkaMessageId = message.getMessageId() != null ? message.getMessageId() : message.getId();
+
+        // Enqueue outbox instead of direct publish (avoid nulls in Map.of)
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("messageId", kafkaMessageId);
+        payload.put("senderId", message.getSenderId());
+        if (sender != null) {
+            putSenderMetadata(sender, payload);
+        }
+        if (message.getContent() != null) payload.put("content", message.getContent());
+        if (message.getImageUrl() != null) payload.put("imageUrl", message.getImageUrl());
+        payload.put("createdAt", message.getCreatedAt());
+        payload.put("seq", message.getSeq());
+
+        OutboxEvent outbox = OutboxEvent.messageEvent("MESSAGE_SENT", message.getConversationId(), payload);
+        // kafkaMessageId becomes the messageId header used for consumer-side dedup
+        outbox.setEventId(kafkaMessageId);
+        return outbox;
+    }
+
+    /**
+     * Post-commit step: senders have read their own messages, each conversation's snapshot moves
+     * to its newest message of the batch, cached recent-message windows are extended and messages are
+     * appended to their buckets. Without the Kafka consumers the inbox projection and the search index are
+     * updated here as well.
+     */
+    private void afterCommit(List<Message> committed, Map<String, UserProfile> senders) {
+        if (committed.isEmpty()) {
+            return;
+        }
+        committed.stream()
+                .collect(Collectors.groupingBy(Message::getConversationId))
+                .forEach(recentMessages::append);
+        try {
+            Map<String, Long> readUpTo = new LinkedHashMap<>();
+            Map<String, Message> newestPerConversation = new LinkedHashMap<>();
+            for (Message message : committed) {
+                readUpTo.merge(message.getConversationId() + "\u0000" + message.getSenderId(), message.getSeq(), Math::max);
+                newestPerConversation.put(message.getConversationId(), message);
+            }
+
+            BulkOperations markers = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ConversationParticipant.class);
+            readUpTo.forEach((key, seq) -> {
+                String[] parts = key.split("\u0000", 2);
+                markers.updateOne(
+                        Query.query(Criteria.where("conversationId").is(parts[0]).and("userId").is(parts[1])),
+                        new Update().max("lastReadSeq", seq));
+            });
+            markers.execute();
+
+            newestPerConversation.values().forEach(message -> {
+                UserProfile sender = senders.get(message.getSenderId());
+                snapshotService.recordMessage(message, sender != null ? sender.getName() : null);
+            });
+            committed.stream()
+                    .collect(Collectors.groupingBy(Message::getConversationId,
+                            Collectors.mapping(Message::getSenderId, Collectors.toSet())))
+                    .forEach(inboxProjector::onMessagesSent);
+        } catch (Exception ex) {
+            // Messages and events are committed; markers and snapshots converge on the next send or read
+            log.warn("Post-commit update failed for {} messages", committed.size(), ex);
+        }
+        messageIndexer.onMessagesWritten(committed);
+        try {
+            bucketStore.append(committed);
+        } catch (Exception ex) {
+            // Buckets are a copy; rebuild the conversation with MessageBucketMigrationJob if this persists
+            log.error("Failed to append {} messages to their buckets", committed.size(), ex);
+        }
+    }
+
+    static void putSenderMetadata(UserProfile sender, Map<String, Object> payload) {
+        payload.put("senderName", sender.getName());
+        payload.put("displayName", sender.getName());
+        payload.put("username", sender.getUsername());
+        if (sender.getAvatarUrl() != null && !sender.getAvatarUrl().isBlank()) {
+            payload.put("avatarUrl", sender.getAvatarUrl());
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.server.message.service;
+
+import com.example.server.chat.model.Conversation;
+import com.example.server.message.model.Message;
+import com.example.server.message.model.MessageBucket;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Copies messages written before buckets were enabled into message_buckets, in parallel per conversation.
+ *
+ * Run it with app.messages.buckets.enabled already on and before turning on app.messages.buckets.read: each
+ * conversation's migrated buckets are rebuilt from scratch, covering every message older than the first
+ * bucket written by the live path, so re-running is safe. Migrated buckets are full and never take writes.
+ *
+ * Enable with app.messages.buckets.migration.enabled=true.
+ */
+@Component
+@ConditionalOnProperty(name = "app.messages.buckets.migration.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class MessageBucketMigrationJob implements ApplicationRunner {
+
+    private final MongoTemplate mongoTemplate;
+    private final MessageBucketStore bucketStore;
+
+    @Value("${app.messages.buckets.migration.parallelism:4}")
+    private int parallelism;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!bucketStore.isEnabled()) {
+            log.warn("Message bucket migration skipped: app.messages.buckets.enabled is off, new messages would be missed");
+            return;
+        }
+        Thread worker = new Thread(this::migrateAll, "message-bucket-migration");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    public void migrateAll() {
+        long startedAt = System.currentTimeMillis();
+        Instant startedAtInstant = Instant.ofEpochMilli(startedAt);
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+        // Bound in-flight conversations so the conversation cursor is not drained into the executor queue
+        Semaphore inFlight = new Semaphore(parallelism * 2);
+        AtomicLong conversations = new AtomicLong();
+        AtomicLong messages = new AtomicLong();
+
+        Query all = new Query();
+        all.fields().include("_id");
+        try (Stream<Conversation> stream = mongoTemplate.stream(all, Conversation.class)) {
+            stream.forEach(conversation -> {
+                inFlight.acquireUninterruptibly();
+                pool.submit(() -> {
+                    try {
+                        messages.addAndGet(migrateConversation(conversation.getId(), startedAtInstant));
+                        conversations.incrementAndGet();
+                    } catch (Exception ex) {
+                        log.warn("Bucket migration failed for conversation {}", conversation.getId(), ex);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            });
+        } finally {
+            pool.shutdown();
+        }
+
+        try {
+            pool.awaitTermination(1, TimeUnit.DAYS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        log.info("Bucket migration finished: {} conversations, {} messages packed in {} ms",
+                conversations.get(), messages.get(), System.currentTimeMillis() - startedAt);
+    }
+
+    /**
+     * Rebuild the migrated buckets of one conversation; returns how many messages were packed
+     */
+    public long migrateConversation(String conversationId, Instant startedAt) {
+        // Messages from the first live bucket on are already bucketed by the write path
+        Query firstLive = Query.query(Criteria.where("conversationId").is(conversationId).and("migrated").is(false))
+                .with(Sort.by(Sort.Direction.ASC, "minCreatedAt"))
+                .limit(1);
+        firstLive.fields().include("minCreatedAt");
+        MessageBucket live = mongoTemplate.findOne(firstLive, MessageBucket.class);
+        Instant cutoff = live != null ? live.getMinCreatedAt() : startedAt;
+
+        mongoTemplate.remove(Query.query(Criteria.where("conversationId").is(conversationId).and("migrated").is(true)),
+                MessageBucket.class);
+
+        int bucketSize = bucketStore.getBucketSize();
+        long packed = 0;
+        Message last = null;
+        while (true) {
+            // Keyset over (createdAt, _id), oldest first, one bucket per batch
+            Criteria criteria = Criteria.where("conversationId").is(conversationId);
+            if (last == null) {
+                criteria = criteria.and("createdAt").lt(cutoff);
+            } else {
+                criteria = criteria.and("createdAt").gte(last.getCreatedAt()).lt(cutoff).orOperator(
+                        Criteria.where("createdAt").gt(last.getCreatedAt()),
+                        Criteria.where("_id").gt(new ObjectId(last.getId())));
+            }
+            Query batch = Query.query(criteria)
+                    .with(Sort.by(Sort.Direction.ASC, "createdAt", "_id"))
+                    .limit(bucketSize);
+            List<Message> chunk = mongoTemplate.find(batch, Message.class);
+            if (chunk.isEmpty()) {
+                break;
+            }
+
+            MessageBucket bucket = new MessageBucket();
+            bucket.setConversationId(conversationId);
+            bucket.setCount(bucketSize);
+            bucket.setMigrated(true);
+            bucket.setMinCreatedAt(chunk.get(0).getCreatedAt());
+            bucket.setMaxCreatedAt(chunk.get(chunk.size() - 1).getCreatedAt());
+            List<Message> newestFirst = new ArrayList<>(chunk);
+            Collections.reverse(newestFirst);
+            bucket.setMessages(newestFirst);
+            mongoTemplate.insert(bucket);
+
+            packed += chunk.size();
+            last = chunk.get(chunk.size() - 1);
+            if (chunk.size() < bucketSize) {
+                break;
+            }
+        }
+        return packed;
+    }
+}
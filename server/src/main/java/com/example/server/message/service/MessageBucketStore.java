@@ -0,0 +1,229 @@
+package com.example.server.message.service;
+
+import com.example.server.message.model.Message;
+import com.example.server.message.model.MessageBucket;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Bucketed copy of the messages collection for history reads: each conversation's messages are packed into
+ * message_buckets documents of up to app.messages.buckets.size messages, so a page is one or two documents
+ * instead of one index entry and one document per message.
+ *
+ * messages stays the store of record for lookups by id (edits, deletes, forwards, search hydration); buckets are
+ * appended after every send, patched on delete and edit, and read by history when app.messages.buckets.read is on.
+ * Existing data is copied by MessageBucketMigrationJob.
+ */
+@Service
+@Slf4j
+public class MessageBucketStore {
+
+    private static final Comparator<Message> NEWEST_FIRST = Comparator
+            .comparing(Message::getCreatedAt, Comparator.reverseOrder())
+            .thenComparing(Message::getId, Comparator.reverseOrder());
+
+    private final MongoTemplate mongoTemplate;
+    private final DistributionSummary bucketsPerPage;
+
+    @Value("${app.messages.buckets.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.messages.buckets.read:false}")
+    private boolean readEnabled;
+
+    @Value("${app.messages.buckets.size:200}")
+    private int bucketSize;
+
+    public MessageBucketStore(MongoTemplate mongoTemplate, ObjectProvider<MeterRegistry> meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        this.bucketsPerPage = registry != null
+                ? DistributionSummary.builder("chat.messages.buckets.read")
+                    .description("Bucket documents read per history page")
+                    .register(registry)
+                : null;
+    }
+
+    @PostConstruct
+    public void ensureIndexes() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            mongoTemplate.indexOps(MessageBucket.class).createIndex(new Index()
+                    .on("conversationId", Sort.Direction.ASC)
+                    .on("maxCreatedAt", Sort.Direction.DESC)
+                    .named("conv_max_created_idx"));
+        } catch (Exception ex) {
+            log.warn("Failed to ensure message bucket indexes", ex);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isReadEnabled() {
+        return enabled && readEnabled;
+    }
+
+    public int getBucketSize() {
+        return bucketSize;
+    }
+
+    /**
+     * Append committed messages to the newest bucket of their conversation, opening a new one when it is full;
+     * one ordered bulk write for the whole batch
+     */
+    public void append(Collection<Message> messages) {
+        if (!enabled || messages.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, MessageBucket.class);
+        Map<String, List<Message>> byConversation = messages.stream()
+                .collect(Collectors.groupingBy(Message::getConversationId));
+        for (Map.Entry<String, List<Message>> entry : byConversation.entrySet()) {
+            List<Message> sorted = new ArrayList<>(entry.getValue());
+            sorted.sort(NEWEST_FIRST.reversed());
+            // Oldest chunk first, so a chunk that fills the open bucket makes the next one open a new bucket
+            for (int from = 0; from < sorted.size(); from += bucketSize) {
+                List<Message> chunk = sorted.subList(from, Math.min(sorted.size(), from + bucketSize));
+                Query open = Query.query(Criteria.where("conversationId").is(entry.getKey())
+                        .and("count").lte(bucketSize - chunk.size()));
+                Update push = new Update()
+                        .inc("count", chunk.size())
+                        .min("minCreatedAt", chunk.get(0).getCreatedAt())
+                        .max("maxCreatedAt", chunk.get(chunk.size() - 1).getCreatedAt())
+                        .setOnInsert("migrated", false);
+                push.push("messages").sort(Sort.by(Sort.Direction.DESC, "createdAt", "_id")).each(chunk.toArray());
+                bulk.upsert(open, push);
+            }
+        }
+        bulk.execute();
+    }
+
+    /**
+     * Take a deleted message out of its bucket
+     */
+    public void remove(Message message) {
+        if (enabled) {
+            pull(message.getConversationId(), message.getId(), message.getCreatedAt());
+        }
+    }
+
+    /**
+     * An edit moved the message's createdAt forward: move it from its bucket to the newest one
+     */
+    public void moveToHead(Message edited, Instant previousCreatedAt) {
+        if (!enabled) {
+            return;
+        }
+        pull(edited.getConversationId(), edited.getId(), previousCreatedAt);
+        append(List.of(edited));
+    }
+
+    /**
+     * Take messages moved to the archive out of their buckets and drop buckets left empty
+     */
+    public void removeArchived(String conversationId, List<Message> archived) {
+        if (!enabled || archived.isEmpty()) {
+            return;
+        }
+        List<ObjectId> ids = archived.stream().map(message -> new ObjectId(message.getId())).collect(Collectors.toList());
+        Instant newest = archived.stream().map(Message::getCreatedAt).max(Comparator.naturalOrder()).orElseThrow();
+        mongoTemplate.updateMulti(
+                Query.query(Criteria.where("conversationId").is(conversationId).and("minCreatedAt").lte(newest)),
+                new Update().pull("messages", new Document("_id", new Document("$in", ids))),
+                MessageBucket.class);
+        mongoTemplate.remove(
+                Query.query(Criteria.where("conversationId").is(conversationId).and("messages").size(0)),
+                MessageBucket.class);
+    }
+
+    /**
+     * Up to limit messages strictly older than (at, id), or the newest ones when at is null; newest first.
+     * Buckets are read newest first and merged until no remaining bucket can hold a message of the page.
+     */
+    public List<Message> olderThan(String conversationId, Instant at, String id, int limit) {
+        Criteria criteria = Criteria.where("conversationId").is(conversationId);
+        if (at != null) {
+            criteria = criteria.and("minCreatedAt").lte(at);
+        }
+        Query query = Query.query(criteria)
+                .with(Sort.by(Sort.Direction.DESC, "maxCreatedAt").and(Sort.by(Sort.Direction.DESC, "_id")))
+                .cursorBatchSize(2);
+
+        List<Message> page = new ArrayList<>(limit + bucketSize);
+        int read = 0;
+        try (Stream<MessageBucket> buckets = mongoTemplate.stream(query, MessageBucket.class)) {
+            Iterator<MessageBucket> it = buckets.iterator();
+            while (it.hasNext()) {
+                MessageBucket bucket = it.next();
+                if (page.size() >= limit && bucket.getMaxCreatedAt().isBefore(page.get(limit - 1).getCreatedAt())) {
+                    // Everything further down is older than the page already collected
+                    break;
+                }
+                read++;
+                for (Message message : bucket.getMessages()) {
+                    if (at == null || isOlder(message, at, id)) {
+                        page.add(message);
+                    }
+                }
+                page.sort(NEWEST_FIRST);
+            }
+        }
+        if (bucketsPerPage != null) {
+            bucketsPerPage.record(read);
+        }
+        return page.size() > limit ? new ArrayList<>(page.subList(0, limit)) : page;
+    }
+
+    private void pull(String conversationId, String messageId, Instant createdAt) {
+        if (!ObjectId.isValid(messageId)) {
+            return;
+        }
+        ObjectId id = new ObjectId(messageId);
+        Update pull = new Update().pull("messages", new Document("_id", id));
+        Criteria inBucket = Criteria.where("conversationId").is(conversationId).and("messages._id").is(id);
+        if (createdAt != null) {
+            // Narrow to the buckets whose range covers the message
+            Criteria inRange = Criteria.where("conversationId").is(conversationId)
+                    .and("maxCreatedAt").gte(createdAt)
+                    .and("minCreatedAt").lte(createdAt)
+                    .and("messages._id").is(id);
+            if (mongoTemplate.updateFirst(Query.query(inRange), pull, MessageBucket.class).getModifiedCount() > 0) {
+                return;
+            }
+        }
+        mongoTemplate.updateFirst(Query.query(inBucket), pull, MessageBucket.class);
+    }
+
+    private static boolean isOlder(Message message, Instant at, String id) {
+        int byTime = message.getCreatedAt().compareTo(at);
+        return byTime < 0 || (byTime == 0 && message.getId().compareTo(id) < 0);
+    }
+}
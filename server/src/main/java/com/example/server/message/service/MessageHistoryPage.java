@@ -0,0 +1,26 @@
+package com.example.server.message.service;
+
+import com.example.server.message.model.Message;
+
+import java.util.List;
+
+/**
+ * One page of conversation history, newest first, with opaque cursors for both scroll directions.
+ * nextCursor continues towards older messages ("before"), prevCursor towards newer ones ("after").
+ */
+public class MessageHistoryPage {
+    private final List<Message> messages;
+    private final String nextCursor;
+    private final String prevCursor;
+
+    public MessageHistoryPage(List<Message> messages, String nextCursor, String prevCursor) {
+        this.messages = messages;
+        this.nextCursor = nextCursor;
+        this.prevCursor = prevCursor;
+    }
+
+    public List<Message> getMessages() { return messages; }
+    public String getNextCursor() { return nextCursor; }
+    public String getPrevCursor() { return prevCursor; }
+    public boolean hasMore() { return nextCursor != null; }
+}
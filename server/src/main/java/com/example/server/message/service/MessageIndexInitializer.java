@@ -0,0 +1,81 @@
+package com.example.server.message.service;
+
+import com.example.server.message.model.Message;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Creates the messages indexes history reads and the outbox repair depend on. Index auto-creation is off, so the
+ * {@code @CompoundIndex} declarations on Message are documentation only.
+ *
+ * conv_created_id_idx is a new name rather than a redefinition of conv_created_idx, which already exists with
+ * a shorter key in deployed databases and would fail with IndexOptionsConflict.
+ *
+ * The single-field senderId and conversationId indexes are redundant once conv_created_id_idx and the
+ * message_terms search index exist. Dropping them is an explicit, one-off migration
+ * (app.messages.drop-legacy-indexes=true) that only runs after conv_created_id_idx is confirmed to exist.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MessageIndexInitializer {
+
+    private static final Set<String> LEGACY_INDEXES = Set.of("senderId", "conversationId");
+
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${app.messages.drop-legacy-indexes:false}")
+    private boolean dropLegacyIndexes;
+
+    @PostConstruct
+    public void ensureIndexes() {
+        IndexOperations indexOps = mongoTemplate.indexOps(Message.class);
+        try {
+            indexOps.createIndex(new Index()
+                    .on("conversationId", Sort.Direction.ASC)
+                    .on("createdAt", Sort.Direction.ASC)
+                    .on("_id", Sort.Direction.ASC)
+                    .named("conv_created_id_idx"));
+            indexOps.createIndex(new Index()
+                    .on("conversationId", Sort.Direction.ASC)
+                    .on("seq", Sort.Direction.ASC)
+                    .named("conv_seq_idx"));
+            indexOps.createIndex(new Index()
+                    .on("outboxPending", Sort.Direction.ASC)
+                    .named("outbox_pending_idx")
+                    .partial(PartialIndexFilter.of(Criteria.where("outboxPending").is(true))));
+            if (dropLegacyIndexes) {
+                dropLegacyIndexes(indexOps);
+            }
+        } catch (Exception ex) {
+            log.warn("Failed to ensure messages indexes", ex);
+        }
+    }
+
+    private void dropLegacyIndexes(IndexOperations indexOps) {
+        List<IndexInfo> indexes = indexOps.getIndexInfo();
+        if (indexes.stream().noneMatch(info -> "conv_created_id_idx".equals(info.getName()))) {
+            log.warn("conv_created_id_idx is missing, keeping the legacy messages indexes");
+            return;
+        }
+        for (IndexInfo info : indexes) {
+            if (LEGACY_INDEXES.contains(info.getName())) {
+                indexOps.dropIndex(info.getName());
+                log.info("Dropped redundant messages index {}", info.getName());
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.server.message.service;
+
+import com.example.server.message.model.Message;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Group commit for message sends. Concurrent sends are queued and writer threads drain them in batches of up to
+ * max-batch-size, waiting at most max-wait-micros for a batch to fill; each batch is written by
+ * MessageBatchWriter with one insert into messages and one into outbox, and every caller's future completes
+ * when its batch is committed.
+ *
+ * Under light load a batch holds a single send and the only added latency is the hand-off to the writer thread.
+ */
+@Service
+@Slf4j
+public class MessageIngestBatcher {
+
+    private final MessageBatchWriter batchWriter;
+    private final DistributionSummary batchSizes;
+    private final BlockingQueue<MessageBatchWriter.PendingSend> queue;
+    private final List<Thread> writers = new ArrayList<>();
+    private volatile boolean running;
+
+    @Value("${app.messages.group-commit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.messages.group-commit.max-batch-size:64}")
+    private int maxBatchSize;
+
+    @Value("${app.messages.group-commit.max-wait-micros:500}")
+    private long maxWaitMicros;
+
+    @Value("${app.messages.group-commit.writer-threads:2}")
+    private int writerThreads;
+
+    public MessageIngestBatcher(MessageBatchWriter batchWriter,
+                                ObjectProvider<MeterRegistry> meterRegistry,
+                                @Value("${app.messages.group-commit.queue-capacity:10000}") int queueCapacity) {
+        this.batchWriter = batchWriter;
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        this.batchSizes = registry != null
+                ? DistributionSummary.builder("chat.messages.group_commit.batch_size")
+                    .description("Messages written per group commit")
+                    .register(registry)
+                : null;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            log.info("Message group commit disabled, sends are written one by one");
+            return;
+        }
+        running = true;
+        for (int i = 0; i < Math.max(1, writerThreads); i++) {
+            Thread writer = new Thread(this::drain, "message-group-commit-" + i);
+            writer.setDaemon(true);
+            writer.start();
+            writers.add(writer);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        writers.forEach(Thread::interrupt);
+        // Whatever is still queued is written by the caller-side fallback below
+        List<MessageBatchWriter.PendingSend> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        if (!rest.isEmpty()) {
+            batchWriter.write(rest);
+        }
+    }
+
+    /**
+     * Queue a send; the future completes with the stored message, or exceptionally when its write failed
+     */
+    public CompletableFuture<Message> submit(MessageBatchWriter.PendingSend send) {
+        if (!running || !queue.offer(send)) {
+            // Disabled, shutting down or saturated: write on the caller's thread as a batch of one
+            batchWriter.write(List.of(send));
+        }
+        return send.getResult();
+    }
+
+    private void drain() {
+        List<MessageBatchWriter.PendingSend> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                MessageBatchWriter.PendingSend first = queue.take();
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(maxWaitMicros);
+                while (batch.size() < maxBatchSize) {
+                    // Take what is already queued first, then wait out the remaining window for stragglers
+                    if (queue.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    MessageBatchWriter.PendingSend next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                if (batchSizes != null) {
+                    batchSizes.record(batch.size());
+                }
+                batchWriter.write(batch);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                if (!batch.isEmpty()) {
+                    batchWriter.write(batch);
+                }
+                break;
+            } catch (Exception ex) {
+                log.error("Group commit writer failed", ex);
+                batch.forEach(send -> send.getResult().completeExceptionally(ex));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.server.message.service;
+
+import com.example.server.message.model.Message;
+import com.example.server.outbox.service.OutboxLeaseManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Writes the outbox rows of messages that were stored by a batch whose outbox write then failed
+ * (Message.outboxPending still set). Rows younger than the grace period belong to batches still in flight.
+ *
+ * Runs on the node holding outbox partition 0, like the outbox purge.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MessageOutboxRepairJob {
+
+    private final MongoTemplate mongoTemplate;
+    private final MessageBatchWriter batchWriter;
+    private final OutboxLeaseManager leaseManager;
+
+    @Value("${app.messages.outbox-repair.grace-ms:60000}")
+    private long graceMs;
+
+    @Value("${app.messages.outbox-repair.batch-size:500}")
+    private int batchSize;
+
+    @Scheduled(fixedDelayString = "${app.messages.outbox-repair.interval-ms:30000}", initialDelay = 30000)
+    public void repair() {
+        if (!leaseManager.owns(0)) {
+            return;
+        }
+        Instant cutoff = Instant.now().minusMillis(graceMs);
+        Query stranded = Query.query(Criteria.where("outboxPending").is(true).and("createdAt").lt(cutoff))
+                .with(Sort.by(Sort.Direction.ASC, "createdAt"))
+                .limit(batchSize);
+        try {
+            List<Message> messages = mongoTemplate.find(stranded, Message.class);
+            if (!messages.isEmpty()) {
+                batchWriter.ensureOutbox(messages);
+                log.warn("Wrote missing outbox rows for {} stored messages", messages.size());
+            }
+        } catch (Exception ex) {
+            log.warn("Outbox repair of stored messages failed", ex);
+        }
+    }
+}
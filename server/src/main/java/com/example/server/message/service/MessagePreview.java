@@ -0,0 +1,82 @@
+package com.example.server.message.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Plain-text previews of message content for conversation lists and notifications.
+ * File messages are stored as {"__file__": {...}, "text": "..."} JSON and are summarised here.
+ */
+public final class MessagePreview {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final int MAX_LENGTH = 200;
+
+    private MessagePreview() {
+    }
+
+    /**
+     * Build a short plain-text preview from stored content and image URL
+     */
+    public static String of(String content, String imageUrl) {
+        if (content == null || content.isBlank()) {
+            return imageUrl != null && !imageUrl.isBlank() ? "[Image]" : null;
+        }
+        JsonNode file = fileNode(content);
+        if (file == null) {
+            return truncate(content.strip());
+        }
+        String text = textOf(content);
+        if (text != null && !text.isBlank()) {
+            return truncate(text.strip());
+        }
+        String name = file.path("name").asText(null);
+        return name != null && !name.isBlank() ? truncate("[File] " + name) : "[File]";
+    }
+
+    /**
+     * Searchable text of a message: the typed text plus the file name for file messages
+     */
+    public static String searchableText(String content) {
+        if (content == null || content.isBlank()) {
+            return "";
+        }
+        JsonNode file = fileNode(content);
+        if (file == null) {
+            return content;
+        }
+        String text = textOf(content);
+        String name = file.path("name").asText("");
+        return ((text != null ? text : "") + " " + name).trim();
+    }
+
+    private static JsonNode fileNode(String content) {
+        String trimmed = content.trim();
+        if (!trimmed.startsWith("{") || !trimmed.contains("\"__file__\"")) {
+            return null;
+        }
+        try {
+            JsonNode root = OBJECT_MAPPER.readTree(trimmed);
+            JsonNode file = root.get("__file__");
+            return file != null && file.isObject() ? file : null;
+        } catch (Exception ex) {
+            return null;
+        }
+    }
+
+    private static String textOf(String content) {
+        try {
+            JsonNode text = OBJECT_MAPPER.readTree(content.trim()).get("text");
+            return text != null && text.isTextual() ? text.asText() : null;
+        } catch (Exception ex) {
+            return null;
+        }
+    }
+
+    private static String truncate(String value) {
+        if (value.length() <= MAX_LENGTH) {
+            return value;
+        }
+        return value.substring(0, MAX_LENGTH - 1) + "…";
+    }
+}
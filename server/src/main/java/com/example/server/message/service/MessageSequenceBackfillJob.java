@@ -0,0 +1,144 @@
+package com.example.server.message.service;
+
+import com.example.server.chat.model.Conversation;
+import com.example.server.message.model.Message;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * One-off backfill that assigns sequence numbers to messages written before Message.seq existed.
+ *
+ * Legacy messages are older than anything sent since the deploy, whose numbers start at 1, so they are numbered
+ * downwards from 0, newest first, in batches: the history stays in seq order without touching the counter or any
+ * live message, and numbers already delivered to clients or written into events never change. Read markers start
+ * at 0, so the legacy history counts as read, and the unread count seq - lastReadSeq is unaffected.
+ *
+ * Conversations are processed in parallel. Re-running is safe, only messages without a seq are touched and
+ * numbering resumes below the lowest number already assigned. Run it on one instance, and before enabling
+ * message buckets, whose copies would keep the missing numbers.
+ *
+ * Enable with app.messages.seq-backfill.enabled=true.
+ */
+@Component
+@ConditionalOnProperty(name = "app.messages.seq-backfill.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class MessageSequenceBackfillJob implements ApplicationRunner {
+
+    private final MongoTemplate mongoTemplate;
+    private final RecentMessageCache recentMessages;
+
+    @Value("${app.messages.seq-backfill.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${app.messages.seq-backfill.parallelism:4}")
+    private int parallelism;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Thread worker = new Thread(this::backfillAll, "message-seq-backfill");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    public void backfillAll() {
+        long startedAt = System.currentTimeMillis();
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+        // Bound in-flight conversations so the conversation cursor is not drained into the executor queue
+        Semaphore inFlight = new Semaphore(parallelism * 2);
+        AtomicLong conversations = new AtomicLong();
+        AtomicLong messages = new AtomicLong();
+
+        Query all = new Query();
+        all.fields().include("_id");
+        try (Stream<Conversation> stream = mongoTemplate.stream(all, Conversation.class)) {
+            stream.forEach(conversation -> {
+                inFlight.acquireUninterruptibly();
+                pool.submit(() -> {
+                    try {
+                        messages.addAndGet(backfillConversation(conversation.getId()));
+                        conversations.incrementAndGet();
+                    } catch (Exception ex) {
+                        log.warn("Sequence backfill failed for conversation {}", conversation.getId(), ex);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            });
+        } finally {
+            pool.shutdown();
+        }
+
+        try {
+            pool.awaitTermination(1, TimeUnit.DAYS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        log.info("Sequence backfill finished: {} conversations, {} messages numbered in {} ms",
+                conversations.get(), messages.get(), System.currentTimeMillis() - startedAt);
+    }
+
+    /**
+     * Number all unsequenced messages of one conversation below its existing sequences; returns how many were assigned
+     */
+    public long backfillConversation(String conversationId) {
+        long next = lowestSeq(conversationId) - 1;
+        long assigned = 0;
+        while (true) {
+            Query pending = Query.query(Criteria.where("conversationId").is(conversationId).and("seq").exists(false))
+                    .with(Sort.by(Sort.Direction.DESC, "createdAt", "id"))
+                    .limit(batchSize);
+            pending.fields().include("_id");
+            List<Message> batch = mongoTemplate.find(pending, Message.class);
+            if (batch.isEmpty()) {
+                break;
+            }
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Message.class);
+            for (Message message : batch) {
+                bulk.updateOne(
+                        Query.query(Criteria.where("_id").is(message.getId()).and("seq").exists(false)),
+                        Update.update("seq", next--));
+            }
+            assigned += bulk.execute().getModifiedCount();
+            if (batch.size() < batchSize) {
+                break;
+            }
+        }
+
+        if (assigned > 0) {
+            recentMessages.invalidate(conversationId);
+        }
+        return assigned;
+    }
+
+    /**
+     * Lowest legacy number assigned by an earlier, interrupted run, or 1 when there is none
+     */
+    private long lowestSeq(String conversationId) {
+        Query lowest = Query.query(Criteria.where("conversationId").is(conversationId).and("seq").lte(0L))
+                .with(Sort.by(Sort.Direction.ASC, "seq"))
+                .limit(1);
+        lowest.fields().include("seq");
+        Message message = mongoTemplate.findOne(lowest, Message.class);
+        return message != null ? message.getSeq() : 1;
+    }
+}
@@ -1,117 +1,383 @@
 package com.example.server.message.service;
 
+import com.example.server.archive.service.MessageArchiveStore;
+import com.example.server.chat.model.ConversationParticipant;
+import com.example.server.chat.repository.ParticipantRepository;
+import com.example.server.chat.service.ConversationSequenceService;
+import com.example.server.chat.service.ConversationSnapshotService;
+import com.example.server.common.exception.ApiException;
+import com.example.server.common.util.CursorUtils;
+import com.example.server.inbox.service.InboxProjector;
 import com.example.server.infrastructure.kafka.KafkaEventPublisher;
+import com.example.server.message.dto.MessageRequest;
 import com.example.server.message.model.Message;
 import com.example.server.message.repository.MessageRepository;
 import com.example.server.outbox.model.OutboxEvent;
 import com.example.server.outbox.repository.OutboxEventRepository;
-import com.example.server.user.model.User;
-import com.example.server.user.repository.UserRepository;
+import com.example.server.search.service.MessageIndexer;
+import com.example.server.search.service.MessageSearchPage;
+import com.example.server.search.service.MessageSearchService;
+import com.example.server.user.service.UserProfile;
+import com.example.server.user.service.UserProfileCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class MessageService {
+
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Direction.DESC, "createdAt", "id");
+    private static final Sort OLDEST_FIRST = Sort.by(Sort.Direction.ASC, "createdAt", "id");
+    private static final ObjectId MAX_OBJECT_ID = new ObjectId("ffffffffffffffffffffffff");
+    // createdAt is taken around the time the id is generated; the id's timestamp has second precision
+    private static final Duration ANCHOR_ID_SKEW = Duration.ofMinutes(1);
     
     private final MessageRepository messageRepository;
     private final KafkaEventPublisher kafkaEventPublisher;
     private final OutboxEventRepository outboxEventRepository;
-    private final UserRepository userRepository;
+    private final UserProfileCache profileCache;
+    private final ConversationSequenceService sequenceService;
+    private final ConversationSnapshotService snapshotService;
+    private final MessageIngestBatcher ingestBatcher;
+    private final MessageBatchWriter batchWriter;
+    private final ParticipantRepository participantRepository;
+    private final MessageSearchService messageSearchService;
+    private final RecentMessageCache recentMessages;
+    private final MessageBucketStore bucketStore;
+    private final MessageArchiveStore archiveStore;
+    private final InboxProjector inboxProjector;
+    private final MessageIndexer messageIndexer;
+
+    @Value("${app.messages.batch.max-items:500}")
+    private int maxBatchItems;
     
-    @Transactional
+    /**
+     * Send a message through group commit: the call blocks until the batch holding it has been written
+     */
     public Message createMessage(String senderId, String conversationId, String content, String imageUrl, String messageId) {
-        Message message = new Message();
-        message.setSenderId(senderId);
-        message.setConversationId(conversationId);
-        message.setContent(content);
-        message.setImageUrl(imageUrl);
-        Instant now = Instant.now();
-        message.setCreatedAt(now);
-        message.setOriginalCreatedAt(now); // Store original creation time
-        // Don't set updatedAt for new messages - only set when actually edited
-        message.setUpdatedAt(null);
-        if (messageId != null && !messageId.isBlank()) {
-            message.setMessageId(messageId);
+        MessageBatchWriter.PendingSend send = new MessageBatchWriter.PendingSend(
+            senderId, conversationId, content, imageUrl, messageId);
+        Message savedMessage;
+        try {
+            savedMessage = ingestBatcher.submit(send).join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
         }
-        
-        Message savedMessage = messageRepository.save(message);
+        log.info("Message created: {} in conversation {}", savedMessage.getId(), conversationId);
+        return savedMessage;
+    }
 
-        String kafkaMessageId = message.getMessageId() != null && !message.getMessageId().isBlank()
-            ? message.getMessageId()
-            : savedMessage.getId();
+    /**
+     * Bulk send for bots and integrations: membership is checked with one query and all accepted items are
+     * written as a single batch. Items fail individually; the result list follows the request order.
+     */
+    public List<BatchSendOutcome> createMessages(String senderId, List<MessageRequest> items) {
+        if (items == null || items.isEmpty()) {
+            throw new ApiException("At least one message is required");
+        }
+        if (items.size() > maxBatchItems) {
+            throw new ApiException("Too many messages in batch (max " + maxBatchItems + ")");
+        }
 
-        // Enqueue outbox instead of direct publish (avoid nulls in Map.of)
-        java.util.Map<String, Object> payload = new java.util.HashMap<>();
-        payload.put("messageId", kafkaMessageId);
-        payload.put("senderId", senderId);
-        addSenderMetadata(senderId, payload);
-        if (content != null) payload.put("content", content);
-        if (imageUrl != null) payload.put("imageUrl", imageUrl);
-        payload.put("createdAt", savedMessage.getCreatedAt());
+        Set<String> conversationIds = new HashSet<>();
+        for (MessageRequest item : items) {
+            if (item != null && item.getConversationId() != null && !item.getConversationId().isBlank()) {
+                conversationIds.add(item.getConversationId());
+            }
+        }
+        Set<String> memberOf = participantRepository
+            .findByUserIdAndConversationIdInAndIsActiveTrue(senderId, conversationIds).stream()
+            .map(ConversationParticipant::getConversationId)
+            .collect(Collectors.toSet());
 
-        OutboxEvent outbox = OutboxEvent.messageEvent(
-            "MESSAGE_SENT",
-            conversationId,
-            payload
-        );
-        // Use kafkaMessageId as Kafka key and header messageId
-        outbox.setEventId(kafkaMessageId);
-        outboxEventRepository.save(outbox);
-        
-        log.info("Message created: {} in conversation {}", savedMessage.getId(), conversationId);
-        return savedMessage;
+        BatchSendOutcome[] outcomes = new BatchSendOutcome[items.size()];
+        MessageBatchWriter.PendingSend[] sends = new MessageBatchWriter.PendingSend[items.size()];
+        List<MessageBatchWriter.PendingSend> accepted = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            MessageRequest item = items.get(i);
+            String error = validateBatchItem(item, memberOf);
+            if (error != null) {
+                outcomes[i] = BatchSendOutcome.rejected(item != null ? item.getMessageId() : null, error);
+                continue;
+            }
+            sends[i] = new MessageBatchWriter.PendingSend(
+                senderId, item.getConversationId(), item.getContent(), item.getImgUrl(), item.getMessageId());
+            accepted.add(sends[i]);
+        }
+        if (!accepted.isEmpty()) {
+            batchWriter.write(accepted);
+        }
+
+        int created = 0;
+        for (int i = 0; i < items.size(); i++) {
+            if (sends[i] == null) {
+                continue;
+            }
+            String messageId = items.get(i).getMessageId();
+            try {
+                outcomes[i] = BatchSendOutcome.stored(messageId, sends[i].getResult().join(), sends[i].isDuplicate());
+                if (!sends[i].isDuplicate()) created++;
+            } catch (CompletionException ex) {
+                Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                outcomes[i] = BatchSendOutcome.rejected(messageId, cause.getMessage());
+            }
+        }
+        log.info("Bulk send by {}: {} items, {} created, {} conversations", senderId, items.size(), created, conversationIds.size());
+        return List.of(outcomes);
+    }
+
+    private static String validateBatchItem(MessageRequest item, Set<String> memberOf) {
+        if (item == null) {
+            return "Message is required";
+        }
+        if (item.getConversationId() == null || item.getConversationId().isBlank()) {
+            return "conversationId is required";
+        }
+        if ((item.getContent() == null || item.getContent().isBlank()) &&
+            (item.getImgUrl() == null || item.getImgUrl().isBlank())) {
+            return "Either content or imgUrl is required";
+        }
+        if (!memberOf.contains(item.getConversationId())) {
+            return "Not a participant of this conversation";
+        }
+        return null;
     }
 
     private void addSenderMetadata(String senderId, java.util.Map<String, Object> payload) {
         try {
-            userRepository.findById(senderId).ifPresent(user -> {
-                payload.put("senderName", resolveDisplayName(user));
-                payload.put("displayName", resolveDisplayName(user));
-                payload.put("username", user.getUsername());
-                if (user.getAvatarUrl() != null && !user.getAvatarUrl().isBlank()) {
-                    payload.put("avatarUrl", user.getAvatarUrl());
-                }
-            });
+            profileCache.get(senderId).ifPresent(sender -> MessageBatchWriter.putSenderMetadata(sender, payload));
         } catch (Exception ex) {
             log.warn("Failed to enrich sender metadata for user {}", senderId, ex);
         }
     }
 
-    private String resolveDisplayName(User user) {
-        if (user.getDisplayName() != null && !user.getDisplayName().isBlank()) {
-            return user.getDisplayName();
-        }
-        return user.getUsername();
+    private String resolveSenderName(String senderId) {
+        return profileCache.get(senderId).map(UserProfile::getName).orElse(null);
     }
-    
+
+    /**
+     * Legacy offset paging, kept for clients that still send ?page=N. Uses a List query so no count() runs,
+     * but deep pages still skip index entries - prefer {@link #getMessageHistory}.
+     */
     public List<Message> getMessagesByConversation(String conversationId, int page, int size) {
-        org.springframework.data.domain.PageRequest pageRequest = org.springframework.data.domain.PageRequest.of(page, size);
-        org.springframework.data.domain.Page<Message> pageResult = messageRepository.findByConversationIdOrderByCreatedAtDesc(conversationId, pageRequest);
-        List<Message> messages = pageResult.getContent();
-        
-        log.info("📨 MessageService: getMessagesByConversation - conversationId={}, page={}, size={}", 
-            conversationId, page, size);
-        log.info("📨 MessageService: Pagination info - totalElements={}, totalPages={}, returned {} messages", 
-            pageResult.getTotalElements(), pageResult.getTotalPages(), messages.size());
-        
-        if (!messages.isEmpty()) {
-            log.info("📨 MessageService: First message (newest) id={}, content={}, createdAt={}", 
-                messages.get(0).getId(), messages.get(0).getContent(), messages.get(0).getCreatedAt());
-            log.info("📨 MessageService: Last message (oldest in page) id={}, content={}, createdAt={}", 
-                messages.get(messages.size() - 1).getId(), 
-                messages.get(messages.size() - 1).getContent(), 
-                messages.get(messages.size() - 1).getCreatedAt());
+        int limit = clampPageSize(size);
+        List<Message> messages = messageRepository.findByConversationId(
+            conversationId, PageRequest.of(Math.max(page, 0), limit, NEWEST_FIRST));
+        if (messages.size() < limit && archiveStore.isEnabled()) {
+            // Past the end of the hot collection: continue into the archive at the matching offset
+            long hot = messageRepository.countByConversationId(conversationId);
+            long archiveOffset = Math.max(0, (long) Math.max(page, 0) * limit - hot);
+            messages = new ArrayList<>(messages);
+            messages.addAll(archiveStore.page(conversationId, archiveOffset, limit - messages.size()));
         }
+        log.debug("Loaded {} messages for conversation {} (page={}, size={})", messages.size(), conversationId, page, limit);
         return messages;
     }
+
+    /**
+     * Keyset paging over (createdAt, _id): every page is a bounded range scan on conv_created_id_idx,
+     * so the cost does not grow with scroll depth and no count() is issued.
+     */
+    public MessageHistoryPage getMessageHistory(String conversationId, String before, String after, int size) {
+        if (before != null && !before.isBlank() && after != null && !after.isBlank()) {
+            throw new ApiException("Only one of before/after can be provided");
+        }
+        int limit = clampPageSize(size);
+
+        if (after != null && !after.isBlank()) {
+            CursorUtils.Cursor cursor = CursorUtils.decode(after);
+            List<Message> newer = readNewer(conversationId, cursor.getTimestamp(), toObjectId(cursor.getId()), limit + 1);
+            if (newer.size() > limit) {
+                newer = new ArrayList<>(newer.subList(0, limit));
+            }
+            Collections.reverse(newer);
+            if (newer.isEmpty()) {
+                // Nothing newer yet: hand the same cursor back so the client can keep polling
+                return new MessageHistoryPage(newer, null, after);
+            }
+            return new MessageHistoryPage(newer, cursorOf(newer.get(newer.size() - 1)), cursorOf(newer.get(0)));
+        }
+
+        List<Message> older;
+        if (before != null && !before.isBlank()) {
+            CursorUtils.Cursor cursor = CursorUtils.decode(before);
+            ObjectId cursorId = toObjectId(cursor.getId());
+            older = recentMessages.page(conversationId, cursor.getTimestamp(), cursor.getId(), limit);
+            if (older == null) {
+                older = readOlder(conversationId, cursor.getTimestamp(), cursorId, limit + 1);
+            }
+        } else {
+            older = recentMessages.page(conversationId, null, null, limit);
+            if (older == null) {
+                // Read a full window so the next first pages of this conversation come from the cache
+                long version = recentMessages.version(conversationId);
+                List<Message> newest = readOlder(conversationId, null, null,
+                    Math.max(limit, recentMessages.getCapacity()) + 1);
+                recentMessages.fill(conversationId, newest, version);
+                older = newest.size() > limit + 1 ? newest.subList(0, limit + 1) : newest;
+            }
+        }
+
+        boolean hasMore = older.size() > limit;
+        List<Message> messages = hasMore ? new ArrayList<>(older.subList(0, limit)) : older;
+        String nextCursor = hasMore ? cursorOf(messages.get(messages.size() - 1)) : null;
+        String prevCursor = messages.isEmpty() ? before : cursorOf(messages.get(0));
+
+        log.debug("Loaded {} messages for conversation {} (before={}, hasMore={})",
+            messages.size(), conversationId, before, hasMore);
+        return new MessageHistoryPage(messages, nextCursor, prevCursor);
+    }
+
+    /**
+     * Window of history around an anchor (a message, or a point in time), newest first: up to size messages
+     * on each side, read like {@link #getMessageHistory} pages (buckets, then the archive) in both directions.
+     * The anchor message, when given, is included, also when it has been archived. Cursors continue in both
+     * directions like {@link #getMessageHistory}.
+     */
+    public MessageHistoryPage getMessagesAround(String conversationId, String messageId, Instant at, int size) {
+        if ((messageId == null || messageId.isBlank()) == (at == null)) {
+            throw new ApiException("Exactly one of messageId/at must be provided");
+        }
+        int limit = Math.max(1, Math.min(size, MAX_PAGE_SIZE / 2));
+
+        Message anchor = null;
+        Instant anchorAt;
+        ObjectId anchorId;
+        if (messageId != null && !messageId.isBlank()) {
+            anchor = findAnchor(conversationId, messageId)
+                .orElseThrow(() -> new ApiException("Message not found"));
+            anchorAt = anchor.getCreatedAt();
+            anchorId = new ObjectId(anchor.getId());
+        } else {
+            // Everything at or before the instant is "older", everything after it "newer"
+            anchorAt = at;
+            anchorId = MAX_OBJECT_ID;
+        }
+
+        List<Message> older = readOlder(conversationId, anchorAt, anchorId, limit + 1);
+        List<Message> newer = readNewer(conversationId, anchorAt, anchorId, limit + 1);
+        boolean hasOlder = older.size() > limit;
+        boolean hasNewer = newer.size() > limit;
+
+        List<Message> window = new ArrayList<>(limit * 2 + 1);
+        List<Message> newerSlice = new ArrayList<>(hasNewer ? newer.subList(0, limit) : newer);
+        Collections.reverse(newerSlice);
+        window.addAll(newerSlice);
+        if (anchor != null) {
+            window.add(anchor);
+        }
+        window.addAll(hasOlder ? older.subList(0, limit) : older);
+
+        if (window.isEmpty()) {
+            return new MessageHistoryPage(window, null, null);
+        }
+        String nextCursor = hasOlder ? cursorOf(window.get(window.size() - 1)) : null;
+        String prevCursor = cursorOf(window.get(0));
+        log.debug("Loaded {} messages around {} in conversation {} (hasOlder={}, hasNewer={})",
+            window.size(), anchor != null ? anchor.getId() : at, conversationId, hasOlder, hasNewer);
+        return new MessageHistoryPage(window, nextCursor, prevCursor);
+    }
+
+    /**
+     * Up to count messages strictly older than (at, id), or the newest ones when at is null, newest first;
+     * read from message buckets when they serve history, then from the archive once the hot messages run out
+     */
+    private List<Message> readOlder(String conversationId, Instant at, ObjectId id, int count) {
+        List<Message> hot;
+        if (bucketStore.isReadEnabled()) {
+            hot = bucketStore.olderThan(conversationId, at, id != null ? id.toHexString() : null, count);
+        } else {
+            PageRequest probe = PageRequest.of(0, count, NEWEST_FIRST);
+            hot = at == null
+                ? messageRepository.findByConversationId(conversationId, probe)
+                : messageRepository.findOlderThan(conversationId, at, id, probe);
+        }
+        if (hot.size() >= count || !archiveStore.isEnabled()) {
+            return hot;
+        }
+        // Everything archived is older than every hot message
+        Message last = hot.isEmpty() ? null : hot.get(hot.size() - 1);
+        List<Message> all = new ArrayList<>(hot);
+        all.addAll(archiveStore.olderThan(conversationId,
+            last != null ? last.getCreatedAt() : at,
+            last != null ? last.getId() : (id != null ? id.toHexString() : null),
+            count - hot.size()));
+        return all;
+    }
+
+    /**
+     * Up to count messages strictly newer than (at, id), oldest first: archived ones first, then hot messages
+     */
+    private List<Message> readNewer(String conversationId, Instant at, ObjectId id, int count) {
+        List<Message> newer = new ArrayList<>(count);
+        if (archiveStore.isEnabled()) {
+            newer.addAll(archiveStore.newerThan(conversationId, at, id.toHexString(), count));
+            if (newer.size() >= count) {
+                return newer;
+            }
+        }
+        Message last = newer.isEmpty() ? null : newer.get(newer.size() - 1);
+        newer.addAll(messageRepository.findNewerThan(conversationId,
+            last != null ? last.getCreatedAt() : at,
+            last != null ? new ObjectId(last.getId()) : id,
+            PageRequest.of(0, count - newer.size(), OLDEST_FIRST)));
+        return newer;
+    }
+
+    /**
+     * The anchor of a history window by Mongo id or client messageId; archived messages are found by Mongo id,
+     * whose timestamp bounds the block that holds them
+     */
+    private Optional<Message> findAnchor(String conversationId, String messageId) {
+        if (!ObjectId.isValid(messageId)) {
+            return messageRepository.findFirstByConversationIdAndMessageId(conversationId, messageId);
+        }
+        ObjectId id = new ObjectId(messageId);
+        Optional<Message> hot = messageRepository.findAnchor(conversationId, id, messageId);
+        if (hot.isPresent() || !archiveStore.isEnabled()) {
+            return hot;
+        }
+        Instant idTime = id.getDate().toInstant();
+        return archiveStore.find(conversationId, idTime.minus(ANCHOR_ID_SKEW), idTime.plus(ANCHOR_ID_SKEW), messageId);
+    }
+
+    private static int clampPageSize(int size) {
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
+
+    private static String cursorOf(Message message) {
+        return CursorUtils.encode(message.getCreatedAt(), message.getId());
+    }
+
+    private static ObjectId toObjectId(String id) {
+        if (!ObjectId.isValid(id)) {
+            throw new ApiException("Invalid cursor");
+        }
+        return new ObjectId(id);
+    }
     
     @Transactional
     public Message updateMessage(String messageId, String userId, String content) {
@@ -138,9 +404,15 @@ public class MessageService {
         if (message.getOriginalCreatedAt() == null) {
             message.setOriginalCreatedAt(message.getCreatedAt()); // Store original if not set
         }
+        Instant previousCreatedAt = message.getCreatedAt();
         message.setCreatedAt(editTime);
         
         Message updatedMessage = messageRepository.save(message);
+        bucketStore.moveToHead(updatedMessage, previousCreatedAt);
+        // The edit moves the message to the head of the conversation
+        recentMessages.invalidate(updatedMessage.getConversationId());
+        // The edit moved createdAt forward, so the edited message becomes the conversation's last message
+        snapshotService.recordMessage(updatedMessage, resolveSenderName(userId));
         
         // Publish event to WebSocket service
         kafkaEventPublisher.publishMessageEvent("MESSAGE_UPDATED", message.getConversationId(), Map.of(
@@ -150,6 +422,8 @@ public class MessageService {
             "createdAt", updatedMessage.getCreatedAt(), // Include new createdAt so frontend can sort
             "originalCreatedAt", updatedMessage.getOriginalCreatedAt() // Include original createdAt to check if edited
         ));
+        inboxProjector.onConversationActivity(updatedMessage.getConversationId());
+        messageIndexer.onMessagesWritten(List.of(updatedMessage));
         
         return updatedMessage;
     }
@@ -164,43 +438,29 @@ public class MessageService {
         }
         
         messageRepository.delete(message);
+        bucketStore.remove(message);
+        recentMessages.removeMessage(message.getConversationId(), messageId);
+        snapshotService.messageRemoved(message.getConversationId(), messageId);
         
         // Publish event to WebSocket service
         kafkaEventPublisher.publishMessageEvent("MESSAGE_DELETED", message.getConversationId(), Map.of(
             "messageId", messageId
         ));
+        inboxProjector.onConversationActivity(message.getConversationId());
+        messageIndexer.onMessageRemoved(messageId);
     }
     
-    public List<Message> searchMessages(String conversationId, String query, String senderId, Instant fromDate, Instant toDate, int page, int size) {
-        org.springframework.data.domain.PageRequest pageRequest = org.springframework.data.domain.PageRequest.of(page, size);
-        
-        // Escape special regex characters (treat search term as literal)
-        String escapedQuery = java.util.regex.Pattern.quote(query);
-        
-        List<Message> messages;
-        
-        // Build query based on provided filters
-        if (senderId != null && !senderId.isBlank() && fromDate != null && toDate != null) {
-            // All filters
-            messages = messageRepository.searchByContentSenderAndDateRange(
-                conversationId, escapedQuery, senderId, fromDate, toDate, pageRequest);
-        } else if (senderId != null && !senderId.isBlank()) {
-            // Sender filter only
-            messages = messageRepository.searchByContentAndSender(
-                conversationId, escapedQuery, senderId, pageRequest);
-        } else if (fromDate != null && toDate != null) {
-            // Date range filter only
-            messages = messageRepository.searchByContentAndDateRange(
-                conversationId, escapedQuery, fromDate, toDate, pageRequest);
-        } else {
-            // Content only
-            messages = messageRepository.searchByContent(conversationId, escapedQuery, pageRequest);
-        }
-        
-        log.info("Search messages - conversationId={}, query={}, senderId={}, fromDate={}, toDate={}, found {} messages", 
-            conversationId, query, senderId, fromDate, toDate, messages.size());
-        
-        return messages;
+    /**
+     * Ranked full-text search within one conversation, served by the message_terms index.
+     * Continue with the returned cursor; page is the legacy offset used when no cursor is given.
+     */
+    public MessageSearchPage searchMessages(String conversationId, String query, String senderId, Instant fromDate, Instant toDate,
+                                            String cursor, int page, int size) {
+        MessageSearchPage result = messageSearchService.search(
+            List.of(conversationId), query, senderId, fromDate, toDate, cursor, page, size);
+        log.info("Search messages - conversationId={}, senderId={}, fromDate={}, toDate={}, found {} messages",
+            conversationId, senderId, fromDate, toDate, result.getHits().size());
+        return result;
     }
     
     @Transactional
@@ -216,11 +476,13 @@ public class MessageService {
         
         List<Message> forwardedMessages = new java.util.ArrayList<>();
         Instant now = Instant.now();
+        long nextSeq = sequenceService.reserve(targetConversationId, originalMessages.size());
         
         for (Message originalMessage : originalMessages) {
             Message forwardedMessage = new Message();
             forwardedMessage.setSenderId(senderId);
             forwardedMessage.setConversationId(targetConversationId);
+            forwardedMessage.setSeq(nextSeq++);
             
             // Copy image if exists
             if (originalMessage.getImageUrl() != null && !originalMessage.getImageUrl().isBlank()) {
@@ -270,8 +532,8 @@ public class MessageService {
             forwardedMessage.setForwardedAt(now);
             
             // Get original sender name
-            userRepository.findById(originalMessage.getSenderId()).ifPresent(user -> {
-                forwardedMessage.setForwardedFromSenderName(resolveDisplayName(user));
+            profileCache.get(originalMessage.getSenderId()).ifPresent(user -> {
+                forwardedMessage.setForwardedFromSenderName(user.getName());
             });
             
             forwardedMessage.setCreatedAt(now);
@@ -291,6 +553,7 @@ public class MessageService {
                 payload.put("imageUrl", saved.getImageUrl());
             }
             payload.put("createdAt", saved.getCreatedAt());
+            payload.put("seq", saved.getSeq());
             payload.put("forwardedFromMessageId", originalMessage.getId());
             payload.put("forwardedFromConversationId", originalMessage.getConversationId());
             payload.put("forwardedFromSenderId", originalMessage.getSenderId());
@@ -305,6 +568,15 @@ public class MessageService {
             outboxEventRepository.save(outbox);
         }
         
+        sequenceService.advanceReadSeq(targetConversationId, senderId, nextSeq - 1);
+        if (!forwardedMessages.isEmpty()) {
+            bucketStore.append(forwardedMessages);
+            recentMessages.append(targetConversationId, forwardedMessages);
+            snapshotService.recordMessage(forwardedMessages.get(forwardedMessages.size() - 1), resolveSenderName(senderId));
+            inboxProjector.onMessagesSent(targetConversationId, List.of(senderId));
+            messageIndexer.onMessagesWritten(forwardedMessages);
+        }
+        
         log.info("Forwarded {} messages from conversation {} to conversation {}", 
             forwardedMessages.size(), originalMessages.get(0).getConversationId(), targetConversationId);
         
@@ -0,0 +1,315 @@
+package com.example.server.message.service;
+
+import com.example.server.infrastructure.redis.RedisPubSubService;
+import com.example.server.message.model.Message;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-process window of the newest messages of active conversations (newest first, up to max-messages each),
+ * serving first history pages without Mongo.
+ *
+ * Windows are filled on a first-page miss, extended on send and patched on delete; an edit re-sorts the message
+ * so its window is dropped. Conversations are evicted least recently used first once the estimated size
+ * exceeds max-bytes. Writes on other replicas arrive as invalidations on the message_cache Redis channel.
+ *
+ * A fill only lands if no write touched the conversation while it was being read (per-stripe versions),
+ * so a slow read cannot overwrite a newer window.
+ */
+@Service
+@Slf4j
+public class RecentMessageCache {
+
+    private static final int VERSION_STRIPES = 1024;
+    // Rough per-message overhead of the object graph besides the strings
+    private static final int MESSAGE_OVERHEAD_BYTES = 400;
+    private static final Comparator<Message> NEWEST_FIRST = Comparator
+            .comparing(Message::getCreatedAt, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(Message::getId, Comparator.reverseOrder());
+
+    private final RedisPubSubService redisPubSubService;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+    private final LinkedHashMap<String, Window> windows = new LinkedHashMap<>(256, 0.75f, true);
+    private final Counter hits;
+    private final Counter misses;
+    private long totalBytes;
+
+    @Value("${app.messages.recent-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.messages.recent-cache.max-messages:100}")
+    private int capacity;
+
+    @Value("${app.messages.recent-cache.max-bytes:67108864}")
+    private long maxBytes;
+
+    public RecentMessageCache(RedisPubSubService redisPubSubService, ObjectProvider<MeterRegistry> meterRegistry) {
+        this.redisPubSubService = redisPubSubService;
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            hits = registry.counter("chat.recent_messages_cache.requests", "result", "hit");
+            misses = registry.counter("chat.recent_messages_cache.requests", "result", "miss");
+            Gauge.builder("chat.recent_messages_cache.conversations", this, RecentMessageCache::conversations).register(registry);
+            Gauge.builder("chat.recent_messages_cache.bytes", this, RecentMessageCache::estimatedBytes)
+                    .description("Estimated heap held by cached messages")
+                    .baseUnit("bytes")
+                    .register(registry);
+        } else {
+            hits = null;
+            misses = null;
+        }
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        try {
+            redisPubSubService.subscribeToConversationMessagesChanged((origin, conversationId) -> {
+                if (!nodeId.equals(origin)) {
+                    drop(conversationId);
+                }
+            });
+        } catch (Exception ex) {
+            log.warn("Could not subscribe to message cache invalidations; disabling the recent-message cache", ex);
+            enabled = false;
+        }
+    }
+
+    /**
+     * Messages kept per conversation; 0 when the cache is off, so fills read no more than the page
+     */
+    public int getCapacity() {
+        return enabled ? capacity : 0;
+    }
+
+    /**
+     * Up to limit + 1 messages older than the given position (or the newest ones when beforeAt is null),
+     * newest first; null when the window cannot answer and Mongo must be read
+     */
+    public List<Message> page(String conversationId, Instant beforeAt, String beforeId, int limit) {
+        if (!enabled) {
+            return null;
+        }
+        synchronized (this) {
+            Window window = windows.get(conversationId);
+            if (window != null) {
+                int start = 0;
+                if (beforeAt != null) {
+                    start = window.indexAfter(beforeAt, beforeId);
+                }
+                // Served when the window holds the whole probe, or everything there is
+                if (start >= 0 && (start + limit + 1 <= window.messages.size() || window.complete)) {
+                    increment(hits);
+                    int end = Math.min(window.messages.size(), start + limit + 1);
+                    return new ArrayList<>(window.messages.subList(start, end));
+                }
+            }
+        }
+        increment(misses);
+        return null;
+    }
+
+    /**
+     * Version to pass to {@link #fill} when reading a conversation's newest messages from Mongo
+     */
+    public long version(String conversationId) {
+        return versions.get(stripe(conversationId));
+    }
+
+    /**
+     * Install the newest messages read from Mongo (newest first, at most capacity + 1 of them)
+     */
+    public void fill(String conversationId, List<Message> newestFirst, long version) {
+        if (!enabled) {
+            return;
+        }
+        boolean complete = newestFirst.size() <= capacity;
+        List<Message> messages = new ArrayList<>(complete ? newestFirst : newestFirst.subList(0, capacity));
+        synchronized (this) {
+            if (versions.get(stripe(conversationId)) != version) {
+                return;
+            }
+            put(conversationId, new Window(messages, complete));
+        }
+    }
+
+    /**
+     * New messages of one conversation were committed
+     */
+    public void append(String conversationId, List<Message> messages) {
+        bump(conversationId);
+        if (enabled) {
+            synchronized (this) {
+                Window window = windows.get(conversationId);
+                if (window != null) {
+                    List<Message> sorted = new ArrayList<>(messages);
+                    sorted.sort(NEWEST_FIRST);
+                    if (!window.messages.isEmpty() && NEWEST_FIRST.compare(sorted.get(sorted.size() - 1), window.messages.get(0)) >= 0) {
+                        // Not strictly newer than the head (clock skew between replicas): rebuild on next read
+                        remove(conversationId);
+                    } else {
+                        List<Message> merged = new ArrayList<>(sorted);
+                        merged.addAll(window.messages);
+                        boolean complete = window.complete && merged.size() <= capacity;
+                        put(conversationId, new Window(merged.size() > capacity ? merged.subList(0, capacity) : merged, complete));
+                    }
+                }
+            }
+        }
+        publish(conversationId);
+    }
+
+    /**
+     * A message was deleted
+     */
+    public void removeMessage(String conversationId, String messageId) {
+        bump(conversationId);
+        if (enabled) {
+            synchronized (this) {
+                Window window = windows.get(conversationId);
+                if (window != null) {
+                    List<Message> remaining = new ArrayList<>(window.messages);
+                    remaining.removeIf(message -> message.getId().equals(messageId));
+                    put(conversationId, new Window(remaining, window.complete));
+                }
+            }
+        }
+        publish(conversationId);
+    }
+
+    /**
+     * Drop a conversation's window here and on every other replica (edits, bulk changes)
+     */
+    public void invalidate(String conversationId) {
+        drop(conversationId);
+        publish(conversationId);
+    }
+
+    private void drop(String conversationId) {
+        bump(conversationId);
+        synchronized (this) {
+            remove(conversationId);
+        }
+    }
+
+    private void put(String conversationId, Window window) {
+        remove(conversationId);
+        windows.put(conversationId, window);
+        totalBytes += window.bytes;
+        // Least recently used conversations go first
+        Iterator<Map.Entry<String, Window>> eldest = windows.entrySet().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<String, Window> entry = eldest.next();
+            if (entry.getKey().equals(conversationId)) {
+                continue;
+            }
+            totalBytes -= entry.getValue().bytes;
+            eldest.remove();
+        }
+    }
+
+    private void remove(String conversationId) {
+        Window previous = windows.remove(conversationId);
+        if (previous != null) {
+            totalBytes -= previous.bytes;
+        }
+    }
+
+    private void bump(String conversationId) {
+        versions.incrementAndGet(stripe(conversationId));
+    }
+
+    private void publish(String conversationId) {
+        try {
+            redisPubSubService.publishConversationMessagesChanged(nodeId, conversationId);
+        } catch (Exception ex) {
+            log.debug("Failed to publish message cache invalidation for {}", conversationId, ex);
+        }
+    }
+
+    private synchronized int conversations() {
+        return windows.size();
+    }
+
+    private synchronized long estimatedBytes() {
+        return totalBytes;
+    }
+
+    private static int stripe(String conversationId) {
+        return Math.floorMod(conversationId.hashCode(), VERSION_STRIPES);
+    }
+
+    private static void increment(Counter counter) {
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+
+    private static final class Window {
+        private final List<Message> messages;
+        // True when the window holds every message of the conversation
+        private final boolean complete;
+        private final long bytes;
+
+        private Window(List<Message> messages, boolean complete) {
+            this.messages = List.copyOf(messages);
+            this.complete = complete;
+            long size = 0;
+            for (Message message : messages) {
+                size += MESSAGE_OVERHEAD_BYTES
+                        + 2L * (length(message.getContent()) + length(message.getImageUrl()) + length(message.getForwardedFromSenderName()));
+            }
+            this.bytes = size;
+        }
+
+        /**
+         * Index of the first message strictly older than (createdAt, id), or -1 when the position is not in the window
+         */
+        private int indexAfter(Instant createdAt, String id) {
+            if (messages.isEmpty()) {
+                return complete ? 0 : -1;
+            }
+            Message oldest = messages.get(messages.size() - 1);
+            if (isOlder(createdAt, id, oldest) && !complete) {
+                // Position lies before the window
+                return -1;
+            }
+            for (int i = 0; i < messages.size(); i++) {
+                Message message = messages.get(i);
+                if (isOlder(message.getCreatedAt(), message.getId(), createdAt, id)) {
+                    return i;
+                }
+            }
+            return messages.size();
+        }
+
+        private static boolean isOlder(Instant createdAt, String id, Message than) {
+            return isOlder(createdAt, id, than.getCreatedAt(), than.getId());
+        }
+
+        private static boolean isOlder(Instant createdAt, String id, Instant thanCreatedAt, String thanId) {
+            int byTime = createdAt.compareTo(thanCreatedAt);
+            return byTime < 0 || (byTime == 0 && id.compareTo(thanId) < 0);
+        }
+
+        private static int length(String value) {
+            return value != null ? value.length() : 0;
+        }
+    }
+}
@@ -1,9 +1,12 @@
 package com.example.server.outbox.model;
 
+import com.example.server.infrastructure.kafka.EventEnvelope;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
@@ -13,24 +16,38 @@ import java.util.Map;
 @Getter
 @Setter
 @Document(collection = "outbox")
+@CompoundIndexes({
+        // Only PENDING rows are indexed for the relay, so the index stays small however many rows are kept
+        @CompoundIndex(name = "pending_partition_created_idx", def = "{ 'status': 1, 'partition': 1, 'createdAt': 1 }",
+                partialFilter = "{ 'status': 'PENDING' }"),
+        // Retention purge of published rows
+        @CompoundIndex(name = "sent_at_idx", def = "{ 'sentAt': 1 }", partialFilter = "{ 'status': 'SENT' }")
+})
 public class OutboxEvent {
+    // Outbox slices leased to relay instances; rows are assigned by hash of aggregateId.
+    // Changing this re-slices new rows only, so keep it stable once deployed.
+    public static final int PARTITIONS = 16;
+
     @Id
     private String id;
 
-    // Kafka message key for partitioning/idempotency at Kafka level
+    // Idempotency id of the event (messageId for messages), sent as the messageId header;
+    // the Kafka key is aggregateId so per-aggregate order holds. Message rows are upserted by it.
     @Indexed
     private String eventId;
 
-    @Indexed
     private String type; // e.g., MESSAGE_SENT, USER_ONLINE
 
-    @Indexed
     private String aggregateId; // conversationId or userId
 
-    private Map<String, Object> payload;
+    private int partition; // floorMod(aggregateId.hashCode(), PARTITIONS)
 
-    @Indexed
-    private String status; // PENDING, SENT, FAILED
+    // Event envelope serialized once at enqueue time (EventEnvelope), published as-is
+    private String body;
+
+    private Map<String, Object> payload; // Legacy rows only, written before body existed
+
+    private String status; // PENDING, SENT, FAILED (gave up after max attempts)
 
     private int attempt;
 
@@ -39,15 +56,24 @@ public class OutboxEvent {
 
     private Instant lastAttemptAt;
 
+    private Instant sentAt; // Kafka ack time; SENT rows are purged after the retention window
+
     public static OutboxEvent messageEvent(String type, String conversationId, Map<String, Object> payload) {
         OutboxEvent e = new OutboxEvent();
         e.setType(type);
         e.setAggregateId(conversationId);
-        e.setPayload(payload);
+        e.setPartition(partitionOf(conversationId));
+        e.setBody(EventEnvelope.serialize(type, conversationId, payload));
         e.setStatus("PENDING");
         e.setAttempt(0);
         return e;
     }
-}
 
+    public static int partitionOf(String aggregateId) {
+        return aggregateId == null ? 0 : Math.floorMod(aggregateId.hashCode(), PARTITIONS);
+    }
 
+    public static OutboxEvent userEvent(String type, String userId, Map<String, Object> payload) {
+        return messageEvent(type, userId, payload);
+    }
+}
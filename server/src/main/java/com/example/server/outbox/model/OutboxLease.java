@@ -0,0 +1,25 @@
+package com.example.server.outbox.model;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * Ownership of one outbox partition by one relay instance, valid until expiresAt unless renewed.
+ */
+@Getter
+@Setter
+@Document(collection = "outbox_leases")
+public class OutboxLease {
+    @Id
+    private Integer id; // partition number
+
+    private String owner; // node id, null when released
+
+    private Instant expiresAt;
+
+    private Instant acquiredAt;
+}
@@ -0,0 +1,23 @@
+package com.example.server.outbox.model;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * Liveness record of a relay instance; the number of live nodes sets each node's fair share of partitions.
+ */
+@Getter
+@Setter
+@Document(collection = "outbox_nodes")
+public class OutboxNode {
+    @Id
+    private String id;
+
+    @Indexed(expireAfterSeconds = 300)
+    private Instant heartbeatAt;
+}
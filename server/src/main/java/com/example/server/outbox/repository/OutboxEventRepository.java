@@ -8,5 +8,3 @@ import java.util.List;
 public interface OutboxEventRepository extends MongoRepository<OutboxEvent, String> {
     List<OutboxEvent> findTop100ByStatusOrderByCreatedAtAsc(String status);
 }
-
-
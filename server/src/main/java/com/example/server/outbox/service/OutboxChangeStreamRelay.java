@@ -0,0 +1,186 @@
+package com.example.server.outbox.service;
+
+import com.example.server.outbox.model.OutboxEvent;
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tails inserts into the outbox collection with a MongoDB change stream and wakes the partition worker
+ * that owns the new row, so it is published as soon as it is committed instead of on the next poll.
+ * The rows themselves stay the source of truth; the stream is only a latency signal.
+ *
+ * The resume token is persisted in outbox_relay_state (at most once per token-flush-ms), so a reconnect or
+ * restart continues where it stopped without missing wake-ups.
+ * Change streams need a replica set: when the stream cannot be opened the relay stays inactive, retries
+ * with backoff, and the partition workers fall back to polling.
+ */
+@Component
+@ConditionalOnProperty(name = "app.outbox.change-stream.enabled", havingValue = "true", matchIfMissing = true)
+@RequiredArgsConstructor
+@Slf4j
+public class OutboxChangeStreamRelay {
+
+    private static final String STATE_COLLECTION = "outbox_relay_state";
+    private static final String STATE_ID = "outbox-relay";
+    private static final int CHANGE_STREAM_HISTORY_LOST = 286;
+
+    private final MongoTemplate mongoTemplate;
+    private final OutboxPublisher outboxPublisher;
+
+    @Value("${app.outbox.change-stream.token-flush-ms:1000}")
+    private long tokenFlushMs;
+
+    @Value("${app.outbox.change-stream.max-await-ms:500}")
+    private long maxAwaitMs;
+
+    private volatile boolean running;
+    private volatile boolean active;
+    private Thread worker;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        running = true;
+        worker = new Thread(this::runLoop, "outbox-change-stream");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (worker != null) {
+            try {
+                worker.join(maxAwaitMs * 4);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * True while the change stream is open; the poller then only runs its slow safety-net sweep
+     */
+    public boolean isActive() {
+        return active;
+    }
+
+    private void runLoop() {
+        long backoffMs = 1000;
+        while (running) {
+            try {
+                tail();
+                backoffMs = 1000;
+            } catch (MongoCommandException ex) {
+                active = false;
+                if (ex.getErrorCode() == CHANGE_STREAM_HISTORY_LOST) {
+                    // Oplog rolled past our token; start from now, the sweep picks up anything skipped
+                    log.warn("Outbox resume token is no longer in the oplog, restarting change stream from now");
+                    clearResumeToken();
+                    continue;
+                }
+                backoffMs = retryAfter(backoffMs, ex);
+            } catch (Exception ex) {
+                active = false;
+                backoffMs = retryAfter(backoffMs, ex);
+            }
+        }
+        active = false;
+    }
+
+    private void tail() {
+        MongoCollection<Document> outbox = mongoTemplate.getCollection(mongoTemplate.getCollectionName(OutboxEvent.class));
+        ChangeStreamIterable<Document> stream = outbox.watch(List.of(Aggregates.match(Filters.eq("operationType", "insert"))))
+                .maxAwaitTime(maxAwaitMs, TimeUnit.MILLISECONDS);
+        BsonDocument resumeToken = loadResumeToken();
+        if (resumeToken != null) {
+            stream = stream.resumeAfter(resumeToken);
+        }
+
+        try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = stream.cursor()) {
+            active = true;
+            log.info("Outbox change stream relay started (resumed={})", resumeToken != null);
+
+            BsonDocument unflushed = null;
+            long lastFlushAt = System.currentTimeMillis();
+            while (running) {
+                ChangeStreamDocument<Document> change = cursor.tryNext();
+                if (change != null && change.getFullDocument() != null) {
+                    Integer partition = change.getFullDocument().getInteger("partition");
+                    outboxPublisher.wake(partition != null ? partition : 0);
+                }
+                // Post-batch token also advances while idle, keeping the resume point inside the oplog window
+                BsonDocument token = cursor.getResumeToken();
+                if (token != null && !token.equals(resumeToken)) {
+                    unflushed = token;
+                }
+                long now = System.currentTimeMillis();
+                if (unflushed != null && now - lastFlushAt >= tokenFlushMs) {
+                    saveResumeToken(unflushed);
+                    resumeToken = unflushed;
+                    unflushed = null;
+                    lastFlushAt = now;
+                }
+            }
+            if (unflushed != null) {
+                saveResumeToken(unflushed);
+            }
+        } finally {
+            active = false;
+        }
+    }
+
+    private long retryAfter(long backoffMs, Exception ex) {
+        if (!running) {
+            return backoffMs;
+        }
+        log.warn("Outbox change stream unavailable, polling fallback in use; retrying in {} ms", backoffMs, ex);
+        try {
+            Thread.sleep(backoffMs);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+        return Math.min(backoffMs * 2, 30_000);
+    }
+
+    private BsonDocument loadResumeToken() {
+        Document state = mongoTemplate.getCollection(STATE_COLLECTION).find(Filters.eq("_id", STATE_ID)).first();
+        if (state == null || state.get("resumeToken") == null) {
+            return null;
+        }
+        return BsonDocument.parse(state.get("resumeToken", Document.class).toJson());
+    }
+
+    private void saveResumeToken(BsonDocument token) {
+        Document state = new Document("_id", STATE_ID)
+                .append("resumeToken", Document.parse(token.toJson()))
+                .append("updatedAt", new Date());
+        mongoTemplate.getCollection(STATE_COLLECTION)
+                .replaceOne(Filters.eq("_id", STATE_ID), state, new ReplaceOptions().upsert(true));
+    }
+
+    private void clearResumeToken() {
+        mongoTemplate.getCollection(STATE_COLLECTION).deleteOne(Filters.eq("_id", STATE_ID));
+    }
+}
@@ -0,0 +1,240 @@
+package com.example.server.outbox.service;
+
+import com.example.server.outbox.model.OutboxEvent;
+import com.example.server.outbox.model.OutboxLease;
+import com.example.server.outbox.model.OutboxNode;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntConsumer;
+
+/**
+ * Splits the outbox partitions between relay instances with expiring leases in outbox_leases.
+ *
+ * On every heartbeat a node renews what it holds, then moves towards its fair share
+ * (ceil(PARTITIONS / live nodes)): it releases extras, or takes expired/released leases with findAndModify.
+ * A crashed node's partitions are picked up by the others once its leases expire.
+ *
+ * A lease is only considered held locally until the expiresAt of its last successful renewal, and is identified
+ * by its acquiredAt, which publishers use as a fencing token. A released partition is handed back only after the
+ * release hook (OutboxPublisher stopping and joining its worker) has returned, so slices never overlap.
+ */
+@Service
+@Slf4j
+public class OutboxLeaseManager {
+
+    private final MongoTemplate mongoTemplate;
+    private final String nodeId;
+    private final Map<Integer, OutboxLease> owned = new ConcurrentHashMap<>();
+    private volatile IntConsumer releaseHook = partition -> { };
+    private volatile boolean leasesCreated;
+
+    @Value("${app.outbox.lease.ttl-ms:10000}")
+    private long leaseTtlMs;
+
+    public OutboxLeaseManager(MongoTemplate mongoTemplate, @Value("${app.outbox.node-id:}") String nodeId) {
+        this.mongoTemplate = mongoTemplate;
+        this.nodeId = nodeId != null && !nodeId.isBlank() ? nodeId : defaultNodeId();
+    }
+
+    /**
+     * Create the lease documents once; runs on the first heartbeat rather than at startup so that an
+     * unreachable database delays publishing instead of failing the context
+     */
+    private void ensureLeases() {
+        for (int partition = 0; partition < OutboxEvent.PARTITIONS; partition++) {
+            try {
+                mongoTemplate.upsert(
+                        Query.query(Criteria.where("_id").is(partition)),
+                        new Update().setOnInsert("expiresAt", Instant.EPOCH),
+                        OutboxLease.class);
+            } catch (DuplicateKeyException ex) {
+                // Another node created it concurrently
+            }
+        }
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public long getLeaseTtlMs() {
+        return leaseTtlMs;
+    }
+
+    public boolean owns(int partition) {
+        OutboxLease lease = owned.get(partition);
+        return lease != null && lease.getExpiresAt().isAfter(Instant.now());
+    }
+
+    /**
+     * True while this node still holds the lease it acquired at {@code token}
+     */
+    public boolean owns(int partition, Instant token) {
+        OutboxLease lease = owned.get(partition);
+        return lease != null && Objects.equals(lease.getAcquiredAt(), token) && lease.getExpiresAt().isAfter(Instant.now());
+    }
+
+    /**
+     * Fencing token of a held lease (its acquiredAt), or null when the partition is not held
+     */
+    public Instant leaseToken(int partition) {
+        OutboxLease lease = owned.get(partition);
+        return lease != null ? lease.getAcquiredAt() : null;
+    }
+
+    /**
+     * Check against the database that the lease acquired at {@code token} is still ours and unexpired
+     */
+    public boolean confirmLease(int partition, Instant token) {
+        Query held = Query.query(Criteria.where("_id").is(partition).and("owner").is(nodeId)
+                .and("acquiredAt").is(token).and("expiresAt").gt(Instant.now()));
+        return mongoTemplate.exists(held, OutboxLease.class);
+    }
+
+    public Set<Integer> ownedPartitions() {
+        Set<Integer> partitions = new HashSet<>();
+        owned.keySet().forEach(partition -> {
+            if (owns(partition)) {
+                partitions.add(partition);
+            }
+        });
+        return partitions;
+    }
+
+    /**
+     * Called with a partition before its lease is released; must return only once nothing publishes it any more
+     */
+    public void onRelease(IntConsumer hook) {
+        this.releaseHook = hook;
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.lease.heartbeat-ms:3000}")
+    public void heartbeat() {
+        try {
+            if (!leasesCreated) {
+                ensureLeases();
+                leasesCreated = true;
+            }
+            Instant now = Instant.now();
+            Instant expiresAt = now.plusMillis(leaseTtlMs);
+            mongoTemplate.upsert(Query.query(Criteria.where("_id").is(nodeId)),
+                    new Update().set("heartbeatAt", now), OutboxNode.class);
+
+            mongoTemplate.updateMulti(Query.query(Criteria.where("owner").is(nodeId).and("expiresAt").gt(now)),
+                    new Update().set("expiresAt", expiresAt), OutboxLease.class);
+            List<OutboxLease> held = mongoTemplate.find(
+                    Query.query(Criteria.where("owner").is(nodeId).and("expiresAt").gt(now)), OutboxLease.class);
+            Map<Integer, OutboxLease> current = new HashMap<>();
+            held.forEach(lease -> current.put(lease.getId(), lease));
+
+            int share = fairShare(now);
+            if (current.size() > share) {
+                List<Integer> extras = new ArrayList<>(current.keySet());
+                Collections.shuffle(extras);
+                for (Integer partition : extras.subList(0, current.size() - share)) {
+                    release(partition);
+                    current.remove(partition);
+                }
+            } else if (current.size() < share) {
+                List<Integer> candidates = new ArrayList<>();
+                for (int partition = 0; partition < OutboxEvent.PARTITIONS; partition++) {
+                    if (!current.containsKey(partition)) {
+                        candidates.add(partition);
+                    }
+                }
+                // Random order so starting nodes do not all race for the same partitions
+                Collections.shuffle(candidates);
+                for (Integer partition : candidates) {
+                    if (current.size() >= share) {
+                        break;
+                    }
+                    OutboxLease lease = tryAcquire(partition, now, expiresAt);
+                    if (lease != null) {
+                        current.put(partition, lease);
+                    }
+                }
+            }
+
+            if (!current.keySet().equals(owned.keySet())) {
+                log.info("Outbox node {} now owns partitions {} (fair share {})", nodeId, current.keySet(), share);
+            }
+            owned.keySet().retainAll(current.keySet());
+            owned.putAll(current);
+        } catch (Exception ex) {
+            // Without a successful renewal our leases lapse; stop publishing rather than risk overlap
+            log.warn("Outbox lease heartbeat failed on node {}", nodeId, ex);
+            owned.clear();
+        }
+    }
+
+    @PreDestroy
+    public void releaseAll() {
+        for (Integer partition : ownedPartitions()) {
+            try {
+                release(partition);
+            } catch (Exception ex) {
+                log.debug("Failed to release outbox partition {} on shutdown", partition, ex);
+            }
+        }
+        owned.clear();
+        mongoTemplate.remove(Query.query(Criteria.where("_id").is(nodeId)), OutboxNode.class);
+    }
+
+    private OutboxLease tryAcquire(int partition, Instant now, Instant expiresAt) {
+        Query free = Query.query(Criteria.where("_id").is(partition).orOperator(
+                Criteria.where("owner").is(null),
+                Criteria.where("expiresAt").lte(now)));
+        OutboxLease lease = mongoTemplate.findAndModify(free,
+                new Update().set("owner", nodeId).set("expiresAt", expiresAt).set("acquiredAt", now),
+                FindAndModifyOptions.options().returnNew(true),
+                OutboxLease.class);
+        return lease;
+    }
+
+    private void release(int partition) {
+        owned.remove(partition);
+        // The worker may still be inside a batch; the next owner must not read the same rows until it has stopped
+        releaseHook.accept(partition);
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(partition).and("owner").is(nodeId)),
+                new Update().set("owner", null).set("expiresAt", Instant.EPOCH), OutboxLease.class);
+    }
+
+    private int fairShare(Instant now) {
+        long liveNodes = mongoTemplate.count(
+                Query.query(Criteria.where("heartbeatAt").gt(now.minusMillis(leaseTtlMs))), OutboxNode.class);
+        long nodes = Math.max(1, liveNodes);
+        return (int) ((OutboxEvent.PARTITIONS + nodes - 1) / nodes);
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception ex) {
+            host = "server";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
@@ -2,52 +2,343 @@ package com.example.server.outbox.service;
 
 import com.example.server.infrastructure.kafka.KafkaEventPublisher;
 import com.example.server.outbox.model.OutboxEvent;
-import com.example.server.outbox.repository.OutboxEventRepository;
-import lombok.RequiredArgsConstructor;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Publishes outbox rows to Kafka. Each partition leased by this node (see OutboxLeaseManager) gets its own
+ * worker thread, so partitions publish in parallel while rows of one aggregate, which always share a partition,
+ * are sent in createdAt order.
+ *
+ * A batch is sent asynchronously and rows flip to SENT in one bulk write only after their Kafka acks arrive.
+ * Within an aggregate a row is sent only once the previous one was acknowledged, so a failed row is never
+ * overtaken: the rows behind it stay PENDING, it is retried with an attempt counter and becomes FAILED after
+ * max-attempts, releasing the rows behind it.
+ *
+ * Workers wake up on change-stream inserts (OutboxChangeStreamRelay); without the stream they poll.
+ *
+ * A worker is fenced by the lease it started under: each wave of sends requires the lease to be held locally and
+ * the bulk status update requires it in the database. Before a partition is released its worker is stopped and
+ * joined, and a batch never waits longer than the ack timeout, which is kept below half the lease TTL.
+ */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class OutboxPublisher {
 
-    private final OutboxEventRepository outboxEventRepository;
+    private final MongoTemplate mongoTemplate;
     private final KafkaEventPublisher kafkaEventPublisher;
+    private final OutboxLeaseManager leaseManager;
+    private final ObjectProvider<OutboxChangeStreamRelay> changeStreamRelay;
+    private final Map<Integer, PartitionWorker> workers = new ConcurrentHashMap<>();
 
-    // Run every 500ms for better real-time performance; small batches to reduce pressure
-    @Scheduled(fixedDelayString = "500")
-    public void publishPending() {
-        List<OutboxEvent> batch = outboxEventRepository.findTop100ByStatusOrderByCreatedAtAsc("PENDING");
+    @Value("${app.outbox.batch-size:200}")
+    private int batchSize;
+
+    @Value("${app.outbox.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${app.outbox.ack-timeout-ms:3000}")
+    private long ackTimeoutMs;
+
+    @Value("${app.outbox.poll-interval-ms:500}")
+    private long pollIntervalMs;
+
+    @Value("${app.outbox.sweep-interval-ms:10000}")
+    private long sweepIntervalMs;
+
+    @Value("${app.outbox.retry-backoff-ms:1000}")
+    private long retryBackoffMs;
+
+    public OutboxPublisher(MongoTemplate mongoTemplate,
+                           KafkaEventPublisher kafkaEventPublisher,
+                           OutboxLeaseManager leaseManager,
+                           ObjectProvider<OutboxChangeStreamRelay> changeStreamRelay) {
+        this.mongoTemplate = mongoTemplate;
+        this.kafkaEventPublisher = kafkaEventPublisher;
+        this.leaseManager = leaseManager;
+        this.changeStreamRelay = changeStreamRelay;
+    }
+
+    @PostConstruct
+    public void init() {
+        long maxAckTimeoutMs = leaseManager.getLeaseTtlMs() / 2;
+        if (ackTimeoutMs > maxAckTimeoutMs) {
+            log.warn("app.outbox.ack-timeout-ms {} is not well below the lease TTL, using {}", ackTimeoutMs, maxAckTimeoutMs);
+            ackTimeoutMs = maxAckTimeoutMs;
+        }
+        leaseManager.onRelease(this::stopAndJoin);
+    }
+
+    /**
+     * Start workers for newly leased partitions and stop those whose lease was lost or released
+     */
+    @Scheduled(fixedDelayString = "${app.outbox.lease.heartbeat-ms:3000}", initialDelay = 1000)
+    public void syncWorkers() {
+        Set<Integer> owned = leaseManager.ownedPartitions();
+        workers.entrySet().removeIf(entry -> {
+            if (!owned.contains(entry.getKey()) || !entry.getValue().isAlive()) {
+                entry.getValue().stop();
+                return true;
+            }
+            return false;
+        });
+        for (Integer partition : owned) {
+            Instant token = leaseManager.leaseToken(partition);
+            if (token == null) {
+                continue;
+            }
+            workers.computeIfAbsent(partition, p -> {
+                PartitionWorker worker = new PartitionWorker(p, token);
+                worker.start();
+                return worker;
+            });
+        }
+    }
+
+    /**
+     * Nudge the worker of a partition after an insert; ignored when this node does not own it
+     */
+    public void wake(int partition) {
+        PartitionWorker worker = workers.get(partition);
+        if (worker != null) {
+            worker.wake();
+        }
+    }
+
+    @PreDestroy
+    public void stopAll() {
+        workers.values().forEach(PartitionWorker::stop);
+        workers.keySet().forEach(this::stopAndJoin);
+    }
+
+    /**
+     * Stop the worker of a partition and wait for its batch in flight, at most one ack timeout
+     */
+    private void stopAndJoin(int partition) {
+        PartitionWorker worker = workers.remove(partition);
+        if (worker == null) {
+            return;
+        }
+        worker.stop();
+        try {
+            if (!worker.join(ackTimeoutMs + retryBackoffMs)) {
+                log.warn("Outbox worker for partition {} did not stop in time; its sends stay fenced by the lease", partition);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Publish one batch of a partition under the lease acquired at {@code token}; returns the number of rows read,
+     * negated when any row was not sent
+     */
+    int publishBatch(int partition, Instant token) {
+        // Rows written before partitioning have no partition field and are handled by partition 0
+        Criteria slice = partition == 0
+                ? Criteria.where("partition").in(0, null)
+                : Criteria.where("partition").is(partition);
+        Query pending = Query.query(Criteria.where("status").is("PENDING").andOperator(slice))
+                .with(Sort.by(Sort.Direction.ASC, "createdAt", "id"))
+                .limit(batchSize);
+        List<OutboxEvent> batch = mongoTemplate.find(pending, OutboxEvent.class);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        // Rows of one aggregate are sent one at a time, the next only after the previous one was acknowledged;
+        // different aggregates are in flight together. A failure holds back the rest of its aggregate, which
+        // therefore never reaches Kafka ahead of the row it follows.
+        Map<String, ArrayDeque<OutboxEvent>> byAggregate = new LinkedHashMap<>();
         for (OutboxEvent event : batch) {
-            try {
-                if ("MESSAGE_SENT".equals(event.getType())) {
-                    String key = event.getEventId() != null ? event.getEventId() : event.getAggregateId();
-                    kafkaEventPublisher.publishMessageEvent(key, event.getType(), event.getAggregateId(), event.getPayload());
-                } else if (event.getType() != null && event.getType().startsWith("USER_")) {
-                    String key = event.getEventId() != null ? event.getEventId() : event.getAggregateId();
-                    kafkaEventPublisher.publishUserEvent(key, event.getType(), event.getAggregateId(), event.getPayload());
-                } else {
-                    // default route to message topic
-                    String key = event.getEventId() != null ? event.getEventId() : event.getAggregateId();
-                    kafkaEventPublisher.publishMessageEvent(key, event.getType(), event.getAggregateId(), event.getPayload());
+            byAggregate.computeIfAbsent(orderingKey(event), key -> new ArrayDeque<>()).addLast(event);
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ackTimeoutMs);
+
+        Instant now = Instant.now();
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, OutboxEvent.class);
+        int sent = 0;
+        int failed = 0;
+        while (!byAggregate.isEmpty() && System.nanoTime() < deadline) {
+            if (!leaseManager.owns(partition, token)) {
+                break;
+            }
+            Map<String, CompletableFuture<?>> wave = new LinkedHashMap<>();
+            byAggregate.forEach((key, rows) -> wave.put(key, trySend(rows.peekFirst())));
+
+            for (Map.Entry<String, CompletableFuture<?>> inFlight : wave.entrySet()) {
+                ArrayDeque<OutboxEvent> rows = byAggregate.get(inFlight.getKey());
+                OutboxEvent event = rows.pollFirst();
+                Query row = Query.query(Criteria.where("_id").is(event.getId()).and("status").is("PENDING"));
+                if (awaitAck(inFlight.getValue(), deadline, event)) {
+                    bulk.updateOne(row, new Update().set("status", "SENT").set("lastAttemptAt", now).set("sentAt", now));
+                    sent++;
+                    if (rows.isEmpty()) {
+                        byAggregate.remove(inFlight.getKey());
+                    }
+                    continue;
+                }
+                int attempt = event.getAttempt() + 1;
+                Update retry = new Update().set("attempt", attempt).set("lastAttemptAt", now);
+                if (attempt >= maxAttempts) {
+                    retry.set("status", "FAILED");
+                    log.error("Outbox event {} type {} failed {} times, marking FAILED", event.getId(), event.getType(), attempt);
                 }
-                event.setStatus("SENT");
-            } catch (Exception ex) {
-                log.warn("Failed to publish outbox event {} type {}", event.getId(), event.getType(), ex);
-                event.setAttempt(event.getAttempt() + 1);
-                event.setLastAttemptAt(Instant.now());
-                // Keep as PENDING; optional: move to FAILED after N attempts
+                bulk.updateOne(row, retry);
+                failed++;
+                // The rows behind it stay PENDING and are sent after it, in order, by a later batch
+                byAggregate.remove(inFlight.getKey());
             }
         }
-        if (!batch.isEmpty()) {
-            outboxEventRepository.saveAll(batch);
+        if (sent + failed > 0) {
+            if (!leaseManager.confirmLease(partition, token)) {
+                // The partition moved on; its new owner reads these rows again
+                log.warn("Outbox partition {}: lease lost during a batch, {} sent rows left PENDING", partition, sent);
+                return -batch.size();
+            }
+            bulk.execute();
         }
+
+        if (sent < batch.size()) {
+            log.warn("Outbox partition {}: {} sent, {} failed, {} held back", partition, sent, failed, batch.size() - sent - failed);
+            return -batch.size();
+        }
+        return batch.size();
     }
-}
 
+    private static String orderingKey(OutboxEvent event) {
+        return event.getAggregateId() != null ? event.getAggregateId() : event.getEventId();
+    }
+
+    private CompletableFuture<?> trySend(OutboxEvent event) {
+        try {
+            return send(event);
+        } catch (Exception ex) {
+            // Counted like a missing ack, so rows acknowledged in earlier waves are still marked
+            return CompletableFuture.failedFuture(ex);
+        }
+    }
+
+    private CompletableFuture<?> send(OutboxEvent event) {
+        // Keyed by aggregate so Kafka keeps per-conversation (per-user) order
+        String key = orderingKey(event);
+        boolean userEvent = event.getType() != null && event.getType().startsWith("USER_");
+        if (event.getBody() != null) {
+            String topic = userEvent ? "user.events" : "message.events";
+            return kafkaEventPublisher.publishSerialized(topic, key, event.getBody(), userEvent ? null : event.getEventId());
+        }
+        // Legacy rows written before the body was stored
+        if (userEvent) {
+            return kafkaEventPublisher.publishUserEvent(key, event.getType(), event.getAggregateId(), event.getPayload());
+        }
+        // MESSAGE_SENT and anything else route to the message topic
+        return kafkaEventPublisher.publishMessageEvent(key, event.getType(), event.getAggregateId(), event.getPayload());
+    }
+
+    private boolean awaitAck(CompletableFuture<?> ack, long deadlineNanos, OutboxEvent event) {
+        try {
+            ack.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception ex) {
+            log.warn("Kafka did not acknowledge outbox event {} type {}", event.getId(), event.getType(), ex);
+            return false;
+        }
+    }
+
+    private long idleWaitMs() {
+        OutboxChangeStreamRelay relay = changeStreamRelay.getIfAvailable();
+        // With the change stream, waiting out the timeout is only a safety net for missed wake-ups
+        return relay != null && relay.isActive() ? sweepIntervalMs : pollIntervalMs;
+    }
+
+    private final class PartitionWorker {
+        private final int partition;
+        private final Instant token;
+        private final Semaphore signal = new Semaphore(0);
+        private final Thread thread;
+        private volatile boolean running = true;
+
+        PartitionWorker(int partition, Instant token) {
+            this.partition = partition;
+            this.token = token;
+            this.thread = new Thread(this::run, "outbox-partition-" + partition);
+            this.thread.setDaemon(true);
+        }
+
+        void start() {
+            thread.start();
+        }
+
+        void stop() {
+            running = false;
+            signal.release();
+        }
 
+        void wake() {
+            if (signal.availablePermits() == 0) {
+                signal.release();
+            }
+        }
+
+        boolean isAlive() {
+            return thread.isAlive();
+        }
+
+        boolean join(long timeoutMs) throws InterruptedException {
+            thread.join(timeoutMs);
+            return !thread.isAlive();
+        }
+
+        private void run() {
+            log.info("Outbox worker started for partition {}", partition);
+            while (running && leaseManager.owns(partition, token)) {
+                try {
+                    int processed = publishBatch(partition, token);
+                    if (processed < 0) {
+                        Thread.sleep(retryBackoffMs);
+                    } else if (processed < batchSize) {
+                        signal.tryAcquire(idleWaitMs(), TimeUnit.MILLISECONDS);
+                        signal.drainPermits();
+                    }
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (Exception ex) {
+                    log.warn("Outbox worker for partition {} failed, retrying", partition, ex);
+                    try {
+                        Thread.sleep(retryBackoffMs);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+            }
+            log.info("Outbox worker stopped for partition {}", partition);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.server.outbox.service;
+
+import com.example.server.outbox.model.OutboxEvent;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the outbox small: SENT rows are deleted in batches once they are older than the retention window,
+ * and only PENDING rows are indexed for the relay. FAILED rows are kept for inspection.
+ *
+ * The purge runs on the node holding outbox partition 0 so replicas do not delete the same rows concurrently.
+ *
+ * Startup only creates indexes. Dropping the single-field indexes of earlier versions is an explicit, one-off
+ * migration (app.outbox.drop-legacy-indexes=true) that only runs once pending_partition_created_idx exists.
+ */
+@Service
+@Slf4j
+public class OutboxRetentionService {
+
+    // Single-field indexes created by earlier versions of OutboxEvent; every insert paid for all of them.
+    // eventId stays: message rows are upserted by it (MessageBatchWriter)
+    private static final Set<String> LEGACY_INDEXES = Set.of("type", "aggregateId", "status");
+
+    private final MongoTemplate mongoTemplate;
+    private final OutboxLeaseManager leaseManager;
+    private final Duration retention;
+
+    @Value("${app.outbox.drop-legacy-indexes:false}")
+    private boolean dropLegacyIndexes;
+
+    @Value("${app.outbox.retention.purge-batch-size:1000}")
+    private int purgeBatchSize;
+
+    @Value("${app.outbox.retention.max-batches-per-run:50}")
+    private int maxBatchesPerRun;
+
+    private volatile boolean legacyRowsPurged;
+
+    public OutboxRetentionService(MongoTemplate mongoTemplate,
+                                  OutboxLeaseManager leaseManager,
+                                  @Value("${app.outbox.retention.sent-retention:PT24H}") Duration retention) {
+        this.mongoTemplate = mongoTemplate;
+        this.leaseManager = leaseManager;
+        this.retention = retention;
+    }
+
+    @PostConstruct
+    public void ensureIndexes() {
+        IndexOperations indexOps = mongoTemplate.indexOps(OutboxEvent.class);
+        try {
+            indexOps.createIndex(new Index()
+                    .on("eventId", Sort.Direction.ASC)
+                    .named("eventId"));
+            indexOps.createIndex(new Index()
+                    .on("status", Sort.Direction.ASC)
+                    .on("partition", Sort.Direction.ASC)
+                    .on("createdAt", Sort.Direction.ASC)
+                    .named("pending_partition_created_idx")
+                    .partial(PartialIndexFilter.of(Criteria.where("status").is("PENDING"))));
+            indexOps.createIndex(new Index()
+                    .on("sentAt", Sort.Direction.ASC)
+                    .named("sent_at_idx")
+                    .partial(PartialIndexFilter.of(Criteria.where("status").is("SENT"))));
+            if (dropLegacyIndexes) {
+                dropLegacyIndexes(indexOps);
+            }
+        } catch (Exception ex) {
+            log.warn("Failed to update outbox indexes", ex);
+        }
+    }
+
+    private void dropLegacyIndexes(IndexOperations indexOps) {
+        List<IndexInfo> indexes = indexOps.getIndexInfo();
+        if (indexes.stream().noneMatch(info -> "pending_partition_created_idx".equals(info.getName()))) {
+            log.warn("pending_partition_created_idx is missing, keeping the legacy outbox indexes");
+            return;
+        }
+        for (IndexInfo info : indexes) {
+            if (LEGACY_INDEXES.contains(info.getName())) {
+                indexOps.dropIndex(info.getName());
+                log.info("Dropped legacy outbox index {}", info.getName());
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.retention.purge-interval-ms:60000}", initialDelay = 30000)
+    public void purgeSent() {
+        if (!leaseManager.owns(0)) {
+            return;
+        }
+        Instant cutoff = Instant.now().minus(retention);
+        long purged = purge(Criteria.where("status").is("SENT").and("sentAt").lt(cutoff));
+
+        if (!legacyRowsPurged) {
+            // Rows published before sentAt existed; this scan stops once none are left
+            long legacy = purge(Criteria.where("status").is("SENT").and("sentAt").exists(false).and("createdAt").lt(cutoff));
+            legacyRowsPurged = legacy < (long) purgeBatchSize * maxBatchesPerRun;
+            purged += legacy;
+        }
+        if (purged > 0) {
+            log.info("Purged {} SENT outbox rows older than {}", purged, cutoff);
+        }
+    }
+
+    private long purge(Criteria criteria) {
+        long purged = 0;
+        for (int round = 0; round < maxBatchesPerRun; round++) {
+            Query batch = Query.query(criteria).limit(purgeBatchSize);
+            batch.fields().include("_id");
+            List<String> ids = mongoTemplate.find(batch, OutboxEvent.class).stream()
+                    .map(OutboxEvent::getId)
+                    .collect(Collectors.toList());
+            if (ids.isEmpty()) {
+                break;
+            }
+            purged += mongoTemplate.remove(Query.query(Criteria.where("_id").in(ids)), OutboxEvent.class).getDeletedCount();
+            if (ids.size() < purgeBatchSize) {
+                break;
+            }
+        }
+        return purged;
+    }
+}
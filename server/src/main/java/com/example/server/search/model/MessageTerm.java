@@ -0,0 +1,40 @@
+package com.example.server.search.model;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * One posting of the message search index: a folded term occurring in a message.
+ * The id is messageId:term so re-indexing a message is an idempotent upsert.
+ *
+ * Sender and createdAt are copied from the message so filters are applied while scanning postings.
+ */
+@Getter
+@Setter
+@Document(collection = "message_terms")
+@CompoundIndexes({
+        // Exact and prefix lookups of a term within one or several conversations, newest first
+        @CompoundIndex(name = "term_conv_created_idx", def = "{ 'term': 1, 'conversationId': 1, 'createdAt': -1, 'messageId': -1 }"),
+        @CompoundIndex(name = "message_idx", def = "{ 'messageId': 1 }")
+})
+public class MessageTerm {
+    @Id
+    private String id;
+
+    private String term;
+    private String conversationId;
+    // Mongo _id of the message
+    private String messageId;
+    private String senderId;
+    private Instant createdAt;
+
+    // Occurrences of the term in the message, and the message's token count
+    private int tf;
+    private int length;
+}
@@ -0,0 +1,45 @@
+package com.example.server.search.service;
+
+import com.example.server.chat.model.ConversationParticipant;
+import com.example.server.chat.repository.ParticipantRepository;
+import com.example.server.inbox.service.InboxService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Search across every conversation the caller is an active member of. The membership set is read once per
+ * request and passed to the index as a conversationId $in, so one set of index scans covers all conversations
+ * and hits are ranked together.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class GlobalMessageSearchService {
+
+    private final ParticipantRepository participantRepository;
+    private final MessageSearchService messageSearchService;
+    private final InboxService inboxService;
+
+    public GlobalSearchPage search(String userId, String query, String senderId, Instant from, Instant to,
+                                   String cursor, int size) {
+        Set<String> conversationIds = participantRepository.findByUserIdAndIsActiveTrue(userId).stream()
+                .map(ConversationParticipant::getConversationId)
+                .collect(Collectors.toSet());
+        MessageSearchPage page = messageSearchService.search(conversationIds, query, senderId, from, to, cursor, 0, size);
+
+        List<String> hitConversations = page.getHits().stream()
+                .map(hit -> hit.getMessage().getConversationId())
+                .distinct()
+                .collect(Collectors.toList());
+        log.debug("Global search by {} over {} conversations: {} hits in {} conversations",
+                userId, conversationIds.size(), page.getHits().size(), hitConversations.size());
+        return new GlobalSearchPage(page.getHits(), inboxService.getEntries(userId, hitConversations), page.getNextCursor(),
+                page.isTruncated());
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.server.search.service;
+
+import com.example.server.inbox.model.InboxEntry;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One page of hits across a user's conversations, with the user's inbox entry of every conversation on the page
+ */
+public class GlobalSearchPage {
+    private final List<MessageSearchHit> hits;
+    private final Map<String, InboxEntry> conversations;
+    private final String nextCursor;
+    private final boolean truncated;
+
+    public GlobalSearchPage(List<MessageSearchHit> hits, Map<String, InboxEntry> conversations, String nextCursor,
+                            boolean truncated) {
+        this.hits = hits;
+        this.conversations = conversations;
+        this.nextCursor = nextCursor;
+        this.truncated = truncated;
+    }
+
+    public List<MessageSearchHit> getHits() { return hits; }
+    public Map<String, InboxEntry> getConversations() { return conversations; }
+    public String getNextCursor() { return nextCursor; }
+    public boolean isTruncated() { return truncated; }
+}
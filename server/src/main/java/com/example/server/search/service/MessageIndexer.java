@@ -0,0 +1,154 @@
+package com.example.server.search.service;
+
+import com.example.server.message.model.Message;
+import com.example.server.message.service.MessagePreview;
+import com.example.server.search.model.MessageTerm;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maintains message_terms, the inverted index behind message search. Indexing re-reads nothing but the message
+ * itself and writes deterministic posting ids, so replayed or reordered events converge.
+ *
+ * Fed by MessageSearchIndexConsumer from message.events. With app.kafka.enabled=false that consumer does not run
+ * and the write path indexes through the on* hooks instead; with the consumer on the hooks do nothing.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MessageIndexer {
+
+    // Bounds the postings of one very long message
+    private static final int MAX_TERMS_PER_MESSAGE = 512;
+
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${app.kafka.enabled:false}")
+    private boolean eventConsumerEnabled;
+
+    @PostConstruct
+    public void ensureIndexes() {
+        // Index auto-creation is off; create the postings indexes explicitly
+        IndexOperations indexOps = mongoTemplate.indexOps(MessageTerm.class);
+        try {
+            indexOps.createIndex(new Index()
+                    .on("term", Sort.Direction.ASC)
+                    .on("conversationId", Sort.Direction.ASC)
+                    .on("createdAt", Sort.Direction.DESC)
+                    .on("messageId", Sort.Direction.DESC)
+                    .named("term_conv_created_idx"));
+            indexOps.createIndex(new Index().on("messageId", Sort.Direction.ASC).named("message_idx"));
+        } catch (Exception ex) {
+            log.warn("Failed to ensure message_terms indexes", ex);
+        }
+    }
+
+    /**
+     * Write path: messages were stored or edited
+     */
+    public void onMessagesWritten(Collection<Message> messages) {
+        if (eventConsumerEnabled) {
+            return;
+        }
+        try {
+            index(messages);
+        } catch (Exception ex) {
+            // MessageSearchIndexRebuildJob re-indexes everything if this persists
+            log.warn("Failed to index {} messages for search", messages.size(), ex);
+        }
+    }
+
+    /**
+     * Write path: a message was deleted
+     */
+    public void onMessageRemoved(String messageId) {
+        if (eventConsumerEnabled) {
+            return;
+        }
+        try {
+            remove(messageId);
+        } catch (Exception ex) {
+            log.warn("Failed to remove message {} from the search index", messageId, ex);
+        }
+    }
+
+    /**
+     * (Re-)index one message by its Mongo id or client messageId; unknown messages are removed from the index
+     */
+    public void indexById(String id) {
+        Message message = findMessage(id);
+        if (message == null) {
+            remove(id);
+            return;
+        }
+        index(List.of(message));
+    }
+
+    /**
+     * Replace the postings of the given messages
+     */
+    public void index(Collection<Message> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, MessageTerm.class);
+        List<String> messageIds = new ArrayList<>(messages.size());
+        int operations = 0;
+        for (Message message : messages) {
+            Map<String, Integer> frequencies = SearchTokenizer.termFrequencies(MessagePreview.searchableText(message.getContent()));
+            int length = frequencies.values().stream().mapToInt(Integer::intValue).sum();
+            List<String> terms = new ArrayList<>(frequencies.keySet());
+            if (terms.size() > MAX_TERMS_PER_MESSAGE) {
+                terms = terms.subList(0, MAX_TERMS_PER_MESSAGE);
+            }
+            messageIds.add(message.getId());
+            // Terms the message no longer contains after an edit
+            bulk.remove(Query.query(Criteria.where("messageId").is(message.getId()).and("term").nin(terms)));
+            operations++;
+            for (String term : terms) {
+                bulk.upsert(Query.query(Criteria.where("_id").is(message.getId() + ":" + term)), new Update()
+                        .set("term", term)
+                        .set("conversationId", message.getConversationId())
+                        .set("messageId", message.getId())
+                        .set("senderId", message.getSenderId())
+                        .set("createdAt", message.getCreatedAt())
+                        .set("tf", frequencies.get(term))
+                        .set("length", length));
+                operations++;
+            }
+        }
+        if (operations > 0) {
+            bulk.execute();
+        }
+        log.debug("Indexed {} messages for search", messageIds.size());
+    }
+
+    public void remove(String messageId) {
+        mongoTemplate.remove(Query.query(Criteria.where("messageId").is(messageId)), MessageTerm.class);
+    }
+
+    private Message findMessage(String id) {
+        Criteria byClientId = Criteria.where("messageId").is(id);
+        Criteria criteria = ObjectId.isValid(id)
+                ? new Criteria().orOperator(Criteria.where("_id").is(id), byClientId)
+                : byClientId;
+        return mongoTemplate.findOne(Query.query(criteria), Message.class);
+    }
+}
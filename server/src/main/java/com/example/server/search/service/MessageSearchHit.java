@@ -0,0 +1,19 @@
+package com.example.server.search.service;
+
+import com.example.server.message.model.Message;
+
+/**
+ * A ranked search result
+ */
+public class MessageSearchHit {
+    private final Message message;
+    private final double score;
+
+    public MessageSearchHit(Message message, double score) {
+        this.message = message;
+        this.score = score;
+    }
+
+    public Message getMessage() { return message; }
+    public double getScore() { return score; }
+}
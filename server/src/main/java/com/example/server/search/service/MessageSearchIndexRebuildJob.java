@@ -0,0 +1,71 @@
+package com.example.server.search.service;
+
+import com.example.server.message.model.Message;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Indexes every stored message into message_terms, walking the messages collection in _id order.
+ * Needed once when search is first deployed; afterwards message.events keep the index current.
+ * Re-running is safe, postings are upserted.
+ *
+ * Enable with app.search.rebuild.enabled=true.
+ */
+@Component
+@ConditionalOnProperty(name = "app.search.rebuild.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class MessageSearchIndexRebuildJob implements ApplicationRunner {
+
+    private final MongoTemplate mongoTemplate;
+    private final MessageIndexer messageIndexer;
+
+    @Value("${app.search.rebuild.batch-size:500}")
+    private int batchSize;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Thread worker = new Thread(this::rebuild, "message-search-rebuild");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    public void rebuild() {
+        long startedAt = System.currentTimeMillis();
+        long indexed = 0;
+        ObjectId lastId = null;
+        while (true) {
+            Query batch = (lastId == null ? new Query() : Query.query(Criteria.where("_id").gt(lastId)))
+                    .with(Sort.by(Sort.Direction.ASC, "_id"))
+                    .limit(batchSize);
+            batch.fields().include("conversationId", "senderId", "content", "createdAt");
+            List<Message> messages = mongoTemplate.find(batch, Message.class);
+            if (messages.isEmpty()) {
+                break;
+            }
+            try {
+                messageIndexer.index(messages);
+            } catch (Exception ex) {
+                log.warn("Search rebuild failed for batch after {}, continuing", lastId, ex);
+            }
+            indexed += messages.size();
+            lastId = new ObjectId(messages.get(messages.size() - 1).getId());
+            if (messages.size() < batchSize) {
+                break;
+            }
+        }
+        log.info("Search index rebuild finished: {} messages in {} ms", indexed, System.currentTimeMillis() - startedAt);
+    }
+}
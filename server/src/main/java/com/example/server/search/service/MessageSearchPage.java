@@ -0,0 +1,28 @@
+package com.example.server.search.service;
+
+import java.util.List;
+
+/**
+ * One page of search hits, best first; nextCursor continues with lower-ranked hits.
+ * truncated means only the newest max-candidates matches of the rarest term were ranked.
+ */
+public class MessageSearchPage {
+    private final List<MessageSearchHit> hits;
+    private final String nextCursor;
+    private final boolean truncated;
+
+    public MessageSearchPage(List<MessageSearchHit> hits, String nextCursor) {
+        this(hits, nextCursor, false);
+    }
+
+    public MessageSearchPage(List<MessageSearchHit> hits, String nextCursor, boolean truncated) {
+        this.hits = hits;
+        this.nextCursor = nextCursor;
+        this.truncated = truncated;
+    }
+
+    public List<MessageSearchHit> getHits() { return hits; }
+    public String getNextCursor() { return nextCursor; }
+    public boolean hasMore() { return nextCursor != null; }
+    public boolean isTruncated() { return truncated; }
+}
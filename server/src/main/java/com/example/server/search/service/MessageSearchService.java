@@ -0,0 +1,256 @@
+package com.example.server.search.service;
+
+import com.example.server.archive.service.MessageArchiveStore;
+import com.example.server.chat.model.Conversation;
+import com.example.server.common.exception.ApiException;
+import com.example.server.message.model.Message;
+import com.example.server.search.model.MessageTerm;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Ranked message search over the message_terms inverted index.
+ *
+ * All query terms must match (the last one as a prefix while the user is still typing). Postings of the rarest
+ * term are read first, bounded by max-candidates and newest first, and the other terms are only looked up for
+ * those messages. Hits are ranked by tf-idf normalised by message length, ties broken by recency; the cursor
+ * carries the (score, createdAt, id) of the last hit returned.
+ *
+ * Ranking is therefore over a recency window: when the rarest term matches more than max-candidates messages,
+ * older matches are never returned, however well they would score, and the page is flagged as truncated.
+ * Narrowing the query (another word, a sender or a date range) moves the window.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MessageSearchService {
+
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MIN_PREFIX_LENGTH = 2;
+    private static final Comparator<Scored> RANKING = Comparator
+            .comparingDouble((Scored s) -> s.score).reversed()
+            .thenComparing((Scored s) -> s.createdAt, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing((Scored s) -> s.messageId, Comparator.reverseOrder());
+
+    private final MongoTemplate mongoTemplate;
+    private final MessageArchiveStore archiveStore;
+
+    @Value("${app.search.max-candidates:2000}")
+    private int maxCandidates;
+
+    /**
+     * Search messages of the given conversations. senderId, from and to are optional filters; cursor continues
+     * a previous page, page is the legacy offset used when no cursor is given.
+     */
+    public MessageSearchPage search(Collection<String> conversationIds, String text, String senderId,
+                                    Instant from, Instant to, String cursor, int page, int size) {
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(SearchTokenizer.tokenize(text)));
+        if (terms.isEmpty()) {
+            throw new ApiException("Search query is required");
+        }
+        int limit = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        if (conversationIds.isEmpty()) {
+            return new MessageSearchPage(List.of(), null);
+        }
+        // The last word is still being typed unless the query ends with a separator
+        String lastTerm = terms.get(terms.size() - 1);
+        boolean prefixLast = lastTerm.length() >= MIN_PREFIX_LENGTH && !endsWithSeparator(text);
+
+        Criteria scope = scope(conversationIds, senderId, from, to);
+        List<TermStats> stats = new ArrayList<>(terms.size());
+        for (String term : terms) {
+            boolean prefix = prefixLast && term.equals(lastTerm);
+            long df = mongoTemplate.count(Query.query(termCriteria(term, prefix, scope)), MessageTerm.class);
+            if (df == 0) {
+                return new MessageSearchPage(List.of(), null);
+            }
+            stats.add(new TermStats(term, prefix, df));
+        }
+        stats.sort(Comparator.comparingLong(t -> t.df));
+        double totalMessages = Math.max(messageCount(conversationIds), stats.get(stats.size() - 1).df);
+
+        // Rarest term first: its postings bound the candidate set
+        TermStats rarest = stats.get(0);
+        Query first = Query.query(termCriteria(rarest.term, rarest.prefix, scope))
+                .with(Sort.by(Sort.Direction.DESC, "createdAt", "messageId"))
+                .limit(maxCandidates);
+        Map<String, Scored> candidates = new HashMap<>();
+        for (MessageTerm posting : postings(first)) {
+            candidates.computeIfAbsent(posting.getMessageId(), id -> new Scored(posting))
+                    .add(rarest.term, weight(posting, rarest.df, totalMessages));
+        }
+        for (TermStats term : stats.subList(1, stats.size())) {
+            if (candidates.isEmpty()) {
+                break;
+            }
+            Query next = Query.query(termCriteria(term.term, term.prefix, scope)
+                    .and("messageId").in(candidates.keySet()));
+            Map<String, Scored> matched = new HashMap<>();
+            for (MessageTerm posting : postings(next)) {
+                Scored scored = candidates.get(posting.getMessageId());
+                if (scored != null) {
+                    scored.add(term.term, weight(posting, term.df, totalMessages));
+                    matched.put(posting.getMessageId(), scored);
+                }
+            }
+            candidates = matched;
+        }
+
+        List<Scored> ranked = candidates.values().stream().sorted(RANKING).collect(Collectors.toList());
+        int start = 0;
+        if (cursor != null && !cursor.isBlank()) {
+            Scored after = decodeCursor(cursor);
+            while (start < ranked.size() && RANKING.compare(ranked.get(start), after) <= 0) {
+                start++;
+            }
+        } else if (page > 0) {
+            start = Math.min(ranked.size(), page * limit);
+        }
+        List<Scored> slice = ranked.subList(start, Math.min(ranked.size(), start + limit));
+        String nextCursor = start + limit < ranked.size() && !slice.isEmpty()
+                ? encodeCursor(slice.get(slice.size() - 1))
+                : null;
+
+        Map<String, Message> messages = mongoTemplate.find(
+                Query.query(Criteria.where("_id").in(slice.stream().map(s -> s.messageId).collect(Collectors.toList()))),
+                Message.class).stream().collect(Collectors.toMap(Message::getId, Function.identity()));
+        List<MessageSearchHit> hits = new ArrayList<>(slice.size());
+        for (Scored scored : slice) {
+            // Skipped when deleted but not yet removed from the index
+            Message message = messages.get(scored.messageId);
+            if (message == null && scored.conversationId != null) {
+                // Moved to the archive; its postings stay in the index
+                message = archiveStore.find(scored.conversationId, scored.createdAt, scored.messageId).orElse(null);
+            }
+            if (message != null) {
+                hits.add(new MessageSearchHit(message, scored.score));
+            }
+        }
+        log.debug("Search '{}' in {} conversations: {} matches, returning {}", text, conversationIds.size(), ranked.size(), hits.size());
+        return new MessageSearchPage(hits, nextCursor, rarest.df > maxCandidates);
+    }
+
+    private static Criteria scope(Collection<String> conversationIds, String senderId, Instant from, Instant to) {
+        Criteria scope = conversationIds.size() == 1
+                ? Criteria.where("conversationId").is(conversationIds.iterator().next())
+                : Criteria.where("conversationId").in(conversationIds);
+        if (senderId != null && !senderId.isBlank()) {
+            scope = scope.and("senderId").is(senderId);
+        }
+        if (from != null && to != null) {
+            scope = scope.and("createdAt").gte(from).lte(to);
+        } else if (from != null) {
+            scope = scope.and("createdAt").gte(from);
+        } else if (to != null) {
+            scope = scope.and("createdAt").lte(to);
+        }
+        return scope;
+    }
+
+    private static Criteria termCriteria(String term, boolean prefix, Criteria scope) {
+        // Terms only hold letters and digits, so the anchored prefix needs no escaping and stays an index range
+        Criteria termMatch = prefix ? Criteria.where("term").regex("^" + term) : Criteria.where("term").is(term);
+        return new Criteria().andOperator(termMatch, scope);
+    }
+
+    private List<MessageTerm> postings(Query query) {
+        query.fields().include("messageId", "conversationId", "term", "createdAt", "tf", "length");
+        return mongoTemplate.find(query, MessageTerm.class);
+    }
+
+    private long messageCount(Collection<String> conversationIds) {
+        Query query = Query.query(Criteria.where("_id").in(conversationIds));
+        query.fields().include("seq");
+        return mongoTemplate.find(query, Conversation.class).stream()
+                .mapToLong(Conversation::getSeq)
+                .sum();
+    }
+
+    private static double weight(MessageTerm posting, long df, double totalMessages) {
+        double idf = Math.log(1 + totalMessages / df);
+        return posting.getTf() * idf / Math.sqrt(Math.max(1, posting.getLength()));
+    }
+
+    private static boolean endsWithSeparator(String text) {
+        if (text.isEmpty()) {
+            return false;
+        }
+        char last = text.charAt(text.length() - 1);
+        return !Character.isLetterOrDigit(last) && Character.getType(last) != Character.NON_SPACING_MARK;
+    }
+
+    private static String encodeCursor(Scored last) {
+        String raw = last.score + "|" + (last.createdAt != null ? last.createdAt.toEpochMilli() : 0L) + "|" + last.messageId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Scored decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", 3);
+            Scored position = new Scored(parts[2], null, Instant.ofEpochMilli(Long.parseLong(parts[1])));
+            position.score = Double.parseDouble(parts[0]);
+            return position;
+        } catch (RuntimeException ex) {
+            throw new ApiException("Invalid cursor");
+        }
+    }
+
+    private static final class TermStats {
+        private final String term;
+        private final boolean prefix;
+        private final long df;
+
+        private TermStats(String term, boolean prefix, long df) {
+            this.term = term;
+            this.prefix = prefix;
+            this.df = df;
+        }
+    }
+
+    private static final class Scored {
+        private final String messageId;
+        private final String conversationId;
+        private final Instant createdAt;
+        // Best weight per query term: a prefix can match several words of one message
+        private final Map<String, Double> weights = new HashMap<>();
+        private double score;
+
+        private Scored(MessageTerm posting) {
+            this(posting.getMessageId(), posting.getConversationId(), posting.getCreatedAt());
+        }
+
+        private Scored(String messageId, String conversationId, Instant createdAt) {
+            this.messageId = messageId;
+            this.conversationId = conversationId;
+            this.createdAt = createdAt;
+        }
+
+        private void add(String queryTerm, double weight) {
+            Double previous = weights.get(queryTerm);
+            if (previous == null || weight > previous) {
+                score += weight - (previous != null ? previous : 0);
+                weights.put(queryTerm, weight);
+            }
+        }
+    }
+}
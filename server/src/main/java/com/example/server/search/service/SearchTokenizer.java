@@ -0,0 +1,63 @@
+package com.example.server.search.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Splits text into search terms: lower-cased, diacritics removed (Vietnamese "Đường" and "duong" give the
+ * same term), split on anything that is not a letter or digit. Used for both indexing and queries.
+ */
+public final class SearchTokenizer {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final int MAX_TERM_LENGTH = 64;
+
+    private SearchTokenizer() {
+    }
+
+    /**
+     * Fold text for matching: NFD decomposition without combining marks, đ mapped to d, lower case
+     */
+    public static String fold(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        // đ/Đ is a letter of its own, not d plus a mark, so NFD leaves it alone
+        String stripped = COMBINING_MARKS.matcher(decomposed).replaceAll("")
+                .replace('đ', 'd')
+                .replace('Đ', 'D');
+        return stripped.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Terms of a text in order of appearance, duplicates kept
+     */
+    public static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        for (String token : SEPARATORS.split(fold(text))) {
+            if (token.isEmpty()) {
+                continue;
+            }
+            terms.add(token.length() > MAX_TERM_LENGTH ? token.substring(0, MAX_TERM_LENGTH) : token);
+        }
+        return terms;
+    }
+
+    /**
+     * Term frequencies of a text, in order of first appearance
+     */
+    public static Map<String, Integer> termFrequencies(String text) {
+        Map<String, Integer> frequencies = new LinkedHashMap<>();
+        for (String term : tokenize(text)) {
+            frequencies.merge(term, 1, Integer::sum);
+        }
+        return frequencies;
+    }
+}
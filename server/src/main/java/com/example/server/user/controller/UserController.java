@@ -76,10 +76,7 @@ public class UserController {
         String url = fileStorageService.uploadAvatar(file);
         
         // Update user's avatarUrl in database
-        User user = userRepository.findById(principal.getId())
-                .orElseThrow(() -> new ApiException("User not found"));
-        user.setAvatarUrl(url);
-        userRepository.save(user);
+        userService.updateAvatarUrl(principal.getId(), url);
         
         return Map.of("avatarUrl", url);
     }
@@ -96,10 +93,7 @@ public class UserController {
         if (!avatarUrl.startsWith("http")) {
             throw new ApiException("avatarUrl must be http/https URL");
         }
-        User user = userRepository.findById(principal.getId())
-                .orElseThrow(() -> new ApiException("User not found"));
-        user.setAvatarUrl(avatarUrl.trim());
-        userRepository.save(user);
+        User user = userService.updateAvatarUrl(principal.getId(), avatarUrl.trim());
         return Map.of("avatarUrl", user.getAvatarUrl());
     }
 
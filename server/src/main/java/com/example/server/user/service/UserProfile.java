@@ -0,0 +1,61 @@
+package com.example.server.user.service;
+
+import com.example.server.user.model.User;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The public part of a user shown next to their messages; what UserProfileCache keeps in memory and in Redis.
+ */
+public final class UserProfile {
+    private final String id;
+    private final String username;
+    private final String displayName;
+    private final String avatarUrl;
+
+    public UserProfile(String id, String username, String displayName, String avatarUrl) {
+        this.id = id;
+        this.username = username;
+        this.displayName = displayName;
+        this.avatarUrl = avatarUrl;
+    }
+
+    public static UserProfile of(User user) {
+        return new UserProfile(user.getId(), user.getUsername(), user.getDisplayName(), user.getAvatarUrl());
+    }
+
+    public String getId() { return id; }
+    public String getUsername() { return username; }
+    public String getDisplayName() { return displayName; }
+    public String getAvatarUrl() { return avatarUrl; }
+
+    /**
+     * Display name, falling back to the username when none is set
+     */
+    public String getName() {
+        return displayName != null && !displayName.isBlank() ? displayName : username;
+    }
+
+    Map<String, Object> toMap() {
+        Map<String, Object> map = new HashMap<>();
+        map.put("id", id);
+        map.put("username", username);
+        if (displayName != null) map.put("displayName", displayName);
+        if (avatarUrl != null) map.put("avatarUrl", avatarUrl);
+        return map;
+    }
+
+    static UserProfile fromMap(Map<?, ?> map) {
+        Object id = map.get("id");
+        if (id == null) {
+            return null;
+        }
+        return new UserProfile(id.toString(), asString(map.get("username")),
+                asString(map.get("displayName")), asString(map.get("avatarUrl")));
+    }
+
+    private static String asString(Object value) {
+        return value != null ? value.toString() : null;
+    }
+}
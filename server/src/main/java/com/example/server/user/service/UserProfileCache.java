@@ -0,0 +1,157 @@
+package com.example.server.user.service;
+
+import com.example.server.common.util.ExpiringLruCache;
+import com.example.server.infrastructure.redis.RedisCacheService;
+import com.example.server.infrastructure.redis.RedisPubSubService;
+import com.example.server.user.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Near-cache of sender profiles for message enrichment: a bounded in-process LRU in front of the Redis
+ * user cache (RedisCacheService.cacheUser), in front of Mongo.
+ *
+ * Profile changes go through UserService, which calls {@link #invalidate}; the eviction is broadcast on the
+ * user_profile Redis channel so every replica drops its local copy. The local TTL bounds staleness should a
+ * broadcast be missed.
+ */
+@Service
+@Slf4j
+public class UserProfileCache {
+
+    private final UserRepository userRepository;
+    private final RedisCacheService redisCacheService;
+    private final RedisPubSubService redisPubSubService;
+    private final ExpiringLruCache<String, UserProfile> local;
+    private final Counter localHits;
+    private final Counter redisHits;
+    private final Counter misses;
+
+    @Value("${app.user-profile-cache.redis-ttl:PT30M}")
+    private Duration redisTtl;
+
+    public UserProfileCache(UserRepository userRepository,
+                            RedisCacheService redisCacheService,
+                            RedisPubSubService redisPubSubService,
+                            ObjectProvider<MeterRegistry> meterRegistry,
+                            @Value("${app.user-profile-cache.max-entries:10000}") int maxEntries,
+                            @Value("${app.user-profile-cache.local-ttl:PT5M}") Duration localTtl) {
+        this.userRepository = userRepository;
+        this.redisCacheService = redisCacheService;
+        this.redisPubSubService = redisPubSubService;
+        this.local = new ExpiringLruCache<>(maxEntries, localTtl);
+
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            localHits = registry.counter("chat.user_profile_cache.requests", "result", "hit");
+            redisHits = registry.counter("chat.user_profile_cache.requests", "result", "redis");
+            misses = registry.counter("chat.user_profile_cache.requests", "result", "miss");
+            Gauge.builder("chat.user_profile_cache.size", local, ExpiringLruCache::size).register(registry);
+        } else {
+            localHits = null;
+            redisHits = null;
+            misses = null;
+        }
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        try {
+            redisPubSubService.subscribeToUserProfileChanges(local::remove);
+        } catch (Exception ex) {
+            log.warn("Could not subscribe to profile changes; relying on the local TTL", ex);
+        }
+    }
+
+    public Optional<UserProfile> get(String userId) {
+        if (userId == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(getAll(Set.of(userId)).get(userId));
+    }
+
+    /**
+     * Profiles of several users: local hits first, then Redis per id, then one Mongo query for the rest
+     */
+    public Map<String, UserProfile> getAll(Collection<String> userIds) {
+        Map<String, UserProfile> found = new HashMap<>();
+        Set<String> missing = new HashSet<>();
+        for (String userId : userIds) {
+            UserProfile cachedLocally = local.get(userId);
+            if (cachedLocally != null) {
+                found.put(userId, cachedLocally);
+                increment(localHits);
+                continue;
+            }
+            UserProfile cached = fromRedis(userId);
+            if (cached != null) {
+                found.put(userId, cached);
+                local.put(userId, cached);
+                increment(redisHits);
+            } else {
+                missing.add(userId);
+            }
+        }
+        if (!missing.isEmpty()) {
+            userRepository.findAllById(missing).forEach(user -> {
+                UserProfile profile = UserProfile.of(user);
+                found.put(profile.getId(), profile);
+                local.put(profile.getId(), profile);
+                toRedis(profile);
+            });
+            missing.forEach(id -> increment(misses));
+        }
+        return found;
+    }
+
+    /**
+     * Drop a user's profile here, in Redis and, via pub/sub, on every other replica
+     */
+    public void invalidate(String userId) {
+        local.remove(userId);
+        try {
+            redisCacheService.evictUser(userId);
+            redisPubSubService.publishUserProfileChanged(userId);
+        } catch (Exception ex) {
+            log.warn("Failed to propagate profile invalidation for user {}", userId, ex);
+        }
+    }
+
+    private UserProfile fromRedis(String userId) {
+        try {
+            Object cached = redisCacheService.getCachedUser(userId);
+            return cached instanceof Map<?, ?> map ? UserProfile.fromMap(map) : null;
+        } catch (Exception ex) {
+            log.debug("Redis user cache unavailable for {}", userId, ex);
+            return null;
+        }
+    }
+
+    private void toRedis(UserProfile profile) {
+        try {
+            redisCacheService.cacheUser(profile.getId(), profile.toMap(), redisTtl);
+        } catch (Exception ex) {
+            log.debug("Failed to cache user {} in Redis", profile.getId(), ex);
+        }
+    }
+
+    private static void increment(Counter counter) {
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+}
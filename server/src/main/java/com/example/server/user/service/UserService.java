@@ -3,26 +3,42 @@ package com.example.server.user.service;
 import org.springframework.stereotype.Service;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.transaction.annotation.Transactional;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import com.example.server.common.exception.ApiException;
+import com.example.server.common.security.PrincipalCache;
+import com.example.server.inbox.service.InboxProjector;
 import com.example.server.user.dto.UserRequest;
 import com.example.server.user.dto.UserResponse;
 import com.example.server.user.mapper.UserMapper;
 import com.example.server.user.model.User;
 import com.example.server.user.repository.UserRepository;
+import com.example.server.outbox.model.OutboxEvent;
+import com.example.server.outbox.repository.OutboxEventRepository;
 
 @Service
 public class UserService {
     private final UserRepository userRepository;
     private final UserMapper userMapper;
     private final PasswordEncoder passwordEncoder;
+    private final OutboxEventRepository outboxEventRepository;
+    private final UserProfileCache profileCache;
+    private final PrincipalCache principalCache;
+    private final InboxProjector inboxProjector;
 
-    public UserService(UserRepository userRepository, UserMapper userMapper, PasswordEncoder passwordEncoder) {
+    public UserService(UserRepository userRepository, UserMapper userMapper, PasswordEncoder passwordEncoder,
+                       OutboxEventRepository outboxEventRepository, UserProfileCache profileCache,
+                       PrincipalCache principalCache, InboxProjector inboxProjector) {
         this.userRepository = userRepository;
         this.userMapper = userMapper;
         this.passwordEncoder = passwordEncoder;
+        this.outboxEventRepository = outboxEventRepository;
+        this.profileCache = profileCache;
+        this.principalCache = principalCache;
+        this.inboxProjector = inboxProjector;
     }
 
     @Transactional
@@ -62,15 +78,41 @@ public class UserService {
             }
         }
         User saved = userRepository.save(user);
+        publishProfileUpdated(saved);
         return userMapper.toResponse(saved);
     }
 
+    @Transactional
+    public User updateAvatarUrl(String id, String avatarUrl) {
+        User user = userRepository.findById(id).orElseThrow(() -> new ApiException("User not found"));
+        user.setAvatarUrl(avatarUrl);
+        User saved = userRepository.save(user);
+        publishProfileUpdated(saved);
+        return saved;
+    }
+
+    // Profile fields are denormalised into inbox entries; user.events consumers refresh them
+    private void publishProfileUpdated(User user) {
+        // Other replicas drop both caches when profileCache broadcasts the change
+        profileCache.invalidate(user.getId());
+        principalCache.invalidate(user.getId());
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("userId", user.getId());
+        payload.put("username", user.getUsername());
+        if (user.getDisplayName() != null) payload.put("displayName", user.getDisplayName());
+        if (user.getAvatarUrl() != null) payload.put("avatarUrl", user.getAvatarUrl());
+        outboxEventRepository.save(OutboxEvent.userEvent("USER_PROFILE_UPDATED", user.getId(), payload));
+        inboxProjector.onUserProfile(user.getId());
+    }
+
     @Transactional
     public void delete(String id) {
         if (!userRepository.existsById(id)) {
             throw new ApiException("User not found");
         }
         userRepository.deleteById(id);
+        profileCache.invalidate(id);
+        principalCache.invalidate(id);
     }
 }
 
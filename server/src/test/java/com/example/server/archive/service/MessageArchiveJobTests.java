@@ -0,0 +1,123 @@
+package com.example.server.archive.service;
+
+import com.example.server.archive.model.MessageArchiveSegment;
+import com.example.server.message.model.Message;
+import com.example.server.message.service.MessageBucketStore;
+import com.example.server.outbox.service.OutboxLeaseManager;
+import com.mongodb.client.result.DeleteResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MessageArchiveJobTests {
+
+    private static final Instant T0 = Instant.parse("2024-01-01T10:00:00Z");
+    private static final Instant CUTOFF = T0.plusSeconds(3600);
+
+    private MongoTemplate mongoTemplate;
+    private MessageArchiveStore archiveStore;
+    private MessageBucketStore bucketStore;
+    private MessageArchiveJob job;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        archiveStore = mock(MessageArchiveStore.class);
+        bucketStore = mock(MessageBucketStore.class);
+        job = new MessageArchiveJob(mongoTemplate, archiveStore, bucketStore, mock(OutboxLeaseManager.class));
+        ReflectionTestUtils.setField(job, "segmentSize", 10);
+        ReflectionTestUtils.setField(job, "minSegmentSize", 1);
+        when(archiveStore.write(eq("c1"), anyList()))
+                .thenAnswer(invocation -> segment("c1", invocation.getArgument(1)));
+    }
+
+    @Test
+    void unchangedRunIsWrittenOnce() {
+        List<Message> run = run(3);
+        when(mongoTemplate.find(any(Query.class), eq(Message.class))).thenReturn(run);
+        when(mongoTemplate.remove(any(Query.class), eq(Message.class))).thenReturn(DeleteResult.acknowledged(1));
+
+        assertThat(job.archiveSegment("c1", CUTOFF)).isEqualTo(3);
+
+        verify(archiveStore).write("c1", run);
+        verify(archiveStore, never()).remove(any(), any());
+        verify(bucketStore).removeArchived("c1", run);
+    }
+
+    @Test
+    void messageChangedAfterTheReadStaysHotAndLeavesTheSegment() {
+        List<Message> run = run(3);
+        when(mongoTemplate.find(any(Query.class), eq(Message.class))).thenReturn(run);
+        // The oldest message was edited before its guarded delete
+        when(mongoTemplate.remove(any(Query.class), eq(Message.class))).thenReturn(
+                DeleteResult.acknowledged(0), DeleteResult.acknowledged(1), DeleteResult.acknowledged(1));
+
+        assertThat(job.archiveSegment("c1", CUTOFF)).isEqualTo(2);
+
+        ArgumentCaptor<List<Message>> written = ArgumentCaptor.forClass(List.class);
+        verify(archiveStore, times(2)).write(eq("c1"), written.capture());
+        assertThat(ids(written.getAllValues().get(1))).containsExactly("2", "3");
+        // The rewrite has a new oldest message, so the first copy goes
+        verify(archiveStore).remove("c1", "c1:1");
+        verify(bucketStore).removeArchived("c1", run.subList(1, 3));
+    }
+
+    @Test
+    void deletesAreGuardedOnTheArchivedVersion() {
+        List<Message> run = run(1);
+        run.get(0).setUpdatedAt(T0.plusSeconds(5));
+        when(mongoTemplate.find(any(Query.class), eq(Message.class))).thenReturn(run);
+        when(mongoTemplate.remove(any(Query.class), eq(Message.class))).thenReturn(DeleteResult.acknowledged(1));
+
+        job.archiveSegment("c1", CUTOFF);
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).remove(query.capture(), eq(Message.class));
+        assertThat(query.getValue().getQueryObject())
+                .containsEntry("_id", "1")
+                .containsEntry("createdAt", T0.plusSeconds(1))
+                .containsEntry("updatedAt", T0.plusSeconds(5));
+    }
+
+    private static List<Message> run(int count) {
+        List<Message> run = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            Message message = new Message();
+            message.setId(String.valueOf(i));
+            message.setConversationId("c1");
+            message.setCreatedAt(T0.plusSeconds(i));
+            run.add(message);
+        }
+        return run;
+    }
+
+    private static MessageArchiveSegment segment(String conversationId, List<Message> oldestFirst) {
+        MessageArchiveSegment segment = new MessageArchiveSegment();
+        segment.setId(conversationId + ":" + oldestFirst.get(0).getId());
+        segment.setConversationId(conversationId);
+        segment.setCount(oldestFirst.size());
+        return segment;
+    }
+
+    private static List<String> ids(List<Message> messages) {
+        return messages.stream().map(Message::getId).collect(Collectors.toList());
+    }
+}
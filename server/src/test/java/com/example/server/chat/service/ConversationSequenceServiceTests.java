@@ -0,0 +1,103 @@
+package com.example.server.chat.service;
+
+import com.example.server.chat.model.Conversation;
+import com.example.server.chat.model.ConversationParticipant;
+import com.example.server.common.exception.ApiException;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class ConversationSequenceServiceTests {
+
+    private MongoTemplate mongoTemplate;
+    private ConversationSequenceService service;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        service = new ConversationSequenceService(mongoTemplate);
+    }
+
+    private void counterBecomes(long seq) {
+        Conversation conversation = new Conversation();
+        conversation.setSeq(seq);
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Conversation.class))).thenReturn(conversation);
+    }
+
+    @Test
+    void reserveReturnsTheFirstNumberOfTheBlock() {
+        counterBecomes(15);
+
+        assertThat(service.reserve("c1", 5)).isEqualTo(11);
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).findAndModify(query.capture(), update.capture(), any(FindAndModifyOptions.class),
+                eq(Conversation.class));
+        assertThat(query.getValue().getQueryObject()).isEqualTo(new Document("_id", "c1"));
+        assertThat(update.getValue().getUpdateObject()).isEqualTo(new Document("$inc", new Document("seq", 5)));
+    }
+
+    @Test
+    void nextReservesASingleNumber() {
+        counterBecomes(1);
+
+        assertThat(service.next("c1")).isEqualTo(1);
+    }
+
+    @Test
+    void reserveRejectsEmptyBlocks() {
+        assertThatThrownBy(() -> service.reserve("c1", 0)).isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void reserveFailsForMissingConversation() {
+        assertThatThrownBy(() -> service.reserve("missing", 1)).isInstanceOf(ApiException.class);
+    }
+
+    @Test
+    void readMarkerOnlyMovesForward() {
+        service.advanceReadSeq("c1", "u1", 7);
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(query.capture(), update.capture(), eq(ConversationParticipant.class));
+        assertThat(query.getValue().getQueryObject())
+                .isEqualTo(new Document("conversationId", "c1").append("userId", "u1"));
+        assertThat(update.getValue().getUpdateObject()).isEqualTo(new Document("$max", new Document("lastReadSeq", 7L)));
+    }
+
+    @Test
+    void releaseOnlyGivesBackTheTopOfTheLatestBlock() {
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Conversation.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null), UpdateResult.acknowledged(0, 0L, null));
+
+        assertThat(service.release("c1", 15, 2)).isTrue();
+        assertThat(service.release("c1", 15, 2)).isFalse();
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, times(2)).updateFirst(query.capture(), update.capture(),
+                eq(Conversation.class));
+        assertThat(query.getValue().getQueryObject()).isEqualTo(new Document("_id", "c1").append("seq", 15L));
+        assertThat(update.getValue().getUpdateObject()).isEqualTo(new Document("$inc", new Document("seq", -2)));
+    }
+}
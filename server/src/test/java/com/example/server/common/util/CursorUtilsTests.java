@@ -0,0 +1,62 @@
+package com.example.server.common.util;
+
+import com.example.server.common.exception.ApiException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CursorUtilsTests {
+
+    @Test
+    void roundTripsTimestampAndId() {
+        Instant at = Instant.parse("2024-05-01T10:15:30.123Z");
+
+        String token = CursorUtils.encode(at, "663217a2f1c2a84d5e6b7c8d");
+        CursorUtils.Cursor cursor = CursorUtils.decode(token);
+
+        assertThat(cursor.getTimestamp()).isEqualTo(at);
+        assertThat(cursor.getId()).isEqualTo("663217a2f1c2a84d5e6b7c8d");
+    }
+
+    @Test
+    void tokenIsUrlSafe() {
+        String token = CursorUtils.encode(Instant.ofEpochMilli(Long.MAX_VALUE / 2), "id:with/odd+chars?");
+
+        assertThat(token).matches("[A-Za-z0-9_-]+");
+        assertThat(CursorUtils.decode(token).getId()).isEqualTo("id:with/odd+chars?");
+    }
+
+    @Test
+    void timestampsKeepMillisecondsOnly() {
+        Instant at = Instant.parse("2024-05-01T10:15:30.123456789Z");
+
+        assertThat(CursorUtils.decode(CursorUtils.encode(at, "x")).getTimestamp())
+                .isEqualTo(Instant.parse("2024-05-01T10:15:30.123Z"));
+    }
+
+    @Test
+    void missingPartsGiveNoCursor() {
+        assertThat(CursorUtils.encode(null, "x")).isNull();
+        assertThat(CursorUtils.encode(Instant.now(), null)).isNull();
+        assertThat(CursorUtils.decode(null)).isNull();
+        assertThat(CursorUtils.decode(" ")).isNull();
+    }
+
+    @Test
+    void rejectsTamperedTokens() {
+        assertThatThrownBy(() -> CursorUtils.decode("not base64!")).isInstanceOf(ApiException.class);
+        assertThatThrownBy(() -> CursorUtils.decode(raw("1714558530123"))).isInstanceOf(ApiException.class);
+        assertThatThrownBy(() -> CursorUtils.decode(raw("1714558530123:"))).isInstanceOf(ApiException.class);
+        assertThatThrownBy(() -> CursorUtils.decode(raw(":abc"))).isInstanceOf(ApiException.class);
+        assertThatThrownBy(() -> CursorUtils.decode(raw("yesterday:abc"))).isInstanceOf(ApiException.class);
+    }
+
+    private static String raw(String value) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
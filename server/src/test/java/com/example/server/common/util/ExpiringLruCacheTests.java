@@ -0,0 +1,77 @@
+package com.example.server.common.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExpiringLruCacheTests {
+
+    @Test
+    void returnsCachedValues() {
+        ExpiringLruCache<String, String> cache = new ExpiringLruCache<>(10, Duration.ofMinutes(1));
+
+        cache.put("a", "1");
+
+        assertThat(cache.get("a")).isEqualTo("1");
+        assertThat(cache.get("b")).isNull();
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedBeyondMaxEntries() {
+        ExpiringLruCache<String, String> cache = new ExpiringLruCache<>(2, Duration.ofMinutes(1));
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.get("a");
+
+        cache.put("c", "3");
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get("a")).isEqualTo("1");
+        assertThat(cache.get("b")).isNull();
+        assertThat(cache.get("c")).isEqualTo("3");
+    }
+
+    @Test
+    void entriesExpireAfterTtl() throws InterruptedException {
+        ExpiringLruCache<String, String> cache = new ExpiringLruCache<>(10, Duration.ofMillis(20));
+        cache.put("a", "1");
+
+        Thread.sleep(40);
+
+        assertThat(cache.get("a")).isNull();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void explicitExpiryCapsTheTtl() throws InterruptedException {
+        ExpiringLruCache<String, String> cache = new ExpiringLruCache<>(10, Duration.ofMinutes(1));
+        cache.put("soon", "1", System.currentTimeMillis() + 20);
+        cache.put("later", "2", System.currentTimeMillis() + 60_000);
+
+        Thread.sleep(40);
+
+        assertThat(cache.get("soon")).isNull();
+        assertThat(cache.get("later")).isEqualTo("2");
+    }
+
+    @Test
+    void alreadyExpiredValuesAreNotStored() {
+        ExpiringLruCache<String, String> cache = new ExpiringLruCache<>(10, Duration.ofMinutes(1));
+
+        cache.put("a", "1", System.currentTimeMillis() - 1);
+
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void removeDropsTheEntry() {
+        ExpiringLruCache<String, String> cache = new ExpiringLruCache<>(10, Duration.ofMinutes(1));
+        cache.put("a", "1");
+
+        cache.remove("a");
+
+        assertThat(cache.get("a")).isNull();
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.server.message.service;
+
+import com.example.server.infrastructure.redis.RedisPubSubService;
+import com.example.server.message.model.Message;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class RecentMessageCacheTests {
+
+    private static final Instant T0 = Instant.parse("2024-05-01T10:00:00Z");
+
+    private RecentMessageCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = cache(10, Long.MAX_VALUE);
+    }
+
+    private static RecentMessageCache cache(int capacity, long maxBytes) {
+        RecentMessageCache cache = new RecentMessageCache(mock(RedisPubSubService.class),
+                new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class));
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "capacity", capacity);
+        ReflectionTestUtils.setField(cache, "maxBytes", maxBytes);
+        return cache;
+    }
+
+    /**
+     * Messages 1..count of a conversation, one second apart, newest first
+     */
+    private static List<Message> newestFirst(String conversationId, int count) {
+        List<Message> messages = new ArrayList<>();
+        for (int i = count; i >= 1; i--) {
+            messages.add(message(conversationId, i, T0.plusSeconds(i)));
+        }
+        return messages;
+    }
+
+    private static Message message(String conversationId, int n, Instant createdAt) {
+        Message message = new Message();
+        message.setId(String.format("%024x", n));
+        message.setConversationId(conversationId);
+        message.setContent("message " + n);
+        message.setCreatedAt(createdAt);
+        return message;
+    }
+
+    private static List<String> ids(List<Message> messages) {
+        return messages.stream().map(m -> m.getId().replaceFirst("^0+", "")).collect(Collectors.toList());
+    }
+
+    private void fill(String conversationId, List<Message> newestFirst) {
+        cache.fill(conversationId, newestFirst, cache.version(conversationId));
+    }
+
+    @Test
+    void missesUntilFilled() {
+        assertThat(cache.page("c1", null, null, 5)).isNull();
+    }
+
+    @Test
+    void firstPageIsTheNewestMessagesWithOneExtraProbe() {
+        fill("c1", newestFirst("c1", 8));
+
+        assertThat(ids(cache.page("c1", null, null, 3))).containsExactly("8", "7", "6", "5");
+    }
+
+    @Test
+    void pageBeforeACursorStartsAtTheFirstOlderMessage() {
+        List<Message> messages = newestFirst("c1", 8);
+        fill("c1", messages);
+        Message cursor = messages.get(2); // message 6
+
+        assertThat(ids(cache.page("c1", cursor.getCreatedAt(), cursor.getId(), 2))).containsExactly("5", "4", "3");
+    }
+
+    @Test
+    void equalTimestampsAreOrderedById() {
+        Instant same = T0.plusSeconds(5);
+        List<Message> messages = List.of(
+                message("c1", 3, same), message("c1", 2, same), message("c1", 1, same));
+        fill("c1", messages);
+
+        assertThat(ids(cache.page("c1", same, messages.get(0).getId(), 5))).containsExactly("2", "1");
+    }
+
+    @Test
+    void completeWindowAnswersEveryCursor() {
+        fill("c1", newestFirst("c1", 4));
+
+        assertThat(ids(cache.page("c1", T0.plusSeconds(2), String.format("%024x", 2), 5))).containsExactly("1");
+        assertThat(cache.page("c1", T0, String.format("%024x", 0), 5)).isEmpty();
+    }
+
+    @Test
+    void partialWindowMissesWhenThePageRunsPastIt() {
+        // 12 messages read, 10 kept: older history exists beyond the window
+        fill("c1", newestFirst("c1", 12));
+
+        assertThat(cache.page("c1", null, null, 9)).hasSize(10);
+        assertThat(cache.page("c1", null, null, 10)).isNull();
+        Message ninth = message("c1", 9, T0.plusSeconds(9));
+        assertThat(cache.page("c1", ninth.getCreatedAt(), ninth.getId(), 6)).isNull();
+        // Cursor older than the oldest cached message (3)
+        assertThat(cache.page("c1", T0.plusSeconds(1), String.format("%024x", 1), 1)).isNull();
+    }
+
+    @Test
+    void fillIsDroppedWhenTheConversationChangedDuringTheRead() {
+        long version = cache.version("c1");
+        cache.append("c1", List.of(message("c1", 9, T0.plusSeconds(9))));
+
+        cache.fill("c1", newestFirst("c1", 8), version);
+
+        assertThat(cache.page("c1", null, null, 3)).isNull();
+    }
+
+    @Test
+    void appendAndDeleteKeepTheWindowCurrent() {
+        fill("c1", newestFirst("c1", 3));
+
+        cache.append("c1", List.of(message("c1", 5, T0.plusSeconds(5)), message("c1", 4, T0.plusSeconds(4))));
+        cache.removeMessage("c1", String.format("%024x", 2));
+
+        assertThat(ids(cache.page("c1", null, null, 10))).containsExactly("5", "4", "3", "1");
+    }
+
+    @Test
+    void appendOlderThanTheHeadDropsTheWindow() {
+        fill("c1", newestFirst("c1", 3));
+
+        cache.append("c1", List.of(message("c1", 9, T0)));
+
+        assertThat(cache.page("c1", null, null, 1)).isNull();
+    }
+
+    @Test
+    void evictsLeastRecentlyReadConversationsBeyondMaxBytes() {
+        // Room for roughly two windows of three messages
+        cache = cache(10, 3000);
+        fill("c1", newestFirst("c1", 3));
+        fill("c2", newestFirst("c2", 3));
+        cache.page("c1", null, null, 1);
+
+        fill("c3", newestFirst("c3", 3));
+
+        assertThat(cache.page("c1", null, null, 1)).isNotNull();
+        assertThat(cache.page("c2", null, null, 1)).isNull();
+        assertThat(cache.page("c3", null, null, 1)).isNotNull();
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.server.search.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SearchTokenizerTests {
+
+    @Test
+    void foldsVietnameseDiacritics() {
+        assertThat(SearchTokenizer.fold("Tiếng Việt có dấu")).isEqualTo("tieng viet co dau");
+        assertThat(SearchTokenizer.fold("Ăn ở ưu ái")).isEqualTo("an o uu ai");
+    }
+
+    @Test
+    void foldsDStrokeWhichHasNoDecomposition() {
+        assertThat(SearchTokenizer.fold("Đường đi")).isEqualTo("duong di");
+        assertThat(SearchTokenizer.tokenize("ĐỒNG")).containsExactly("dong");
+    }
+
+    @Test
+    void foldsPrecomposedAndDecomposedInputAlike() {
+        String precomposed = "Nguyễn";
+        String decomposed = "Nguye\u0302\u0303n";
+
+        assertThat(SearchTokenizer.tokenize(decomposed)).isEqualTo(SearchTokenizer.tokenize(precomposed));
+    }
+
+    @Test
+    void splitsOnAnythingButLettersAndDigits() {
+        assertThat(SearchTokenizer.tokenize("  Hẹn gặp lúc 7h30, ở quán cà-phê!! "))
+                .containsExactly("hen", "gap", "luc", "7h30", "o", "quan", "ca", "phe");
+    }
+
+    @Test
+    void capsTermLength() {
+        assertThat(SearchTokenizer.tokenize("a".repeat(100))).containsExactly("a".repeat(64));
+    }
+
+    @Test
+    void emptyTextHasNoTerms() {
+        assertThat(SearchTokenizer.tokenize(null)).isEmpty();
+        assertThat(SearchTokenizer.tokenize("... !!")).isEmpty();
+    }
+
+    @Test
+    void countsTermFrequenciesInOrderOfFirstAppearance() {
+        Map<String, Integer> frequencies = SearchTokenizer.termFrequencies("Đi đâu? Đi chơi, đi!");
+
+        assertThat(frequencies).containsExactly(
+                Map.entry("di", 3), Map.entry("dau", 1), Map.entry("choi", 1));
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.websocket.cluster;
+
+import java.net.InetAddress;
+import java.util.Locale;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Identity of this WebSocket node and how it takes its share of the event topics.
+ *
+ * SHARED: every node is in one consumer group, so each record reaches a single node; only correct with one node.
+ * BROADCAST: every node consumes with its own group and sees every record, delivering to its local sessions.
+ * ROUTED: nodes share the source topics as routers (EventRouter) that republish each record only to the
+ * node topics of the nodes holding its sessions (SessionDirectory); each node consumes just its own topic.
+ * A node consuming with its own group starts at the latest offset, since it holds no sessions that missed the past.
+ */
+@Component
+public class NodeIdentity {
+
+    public enum FanoutMode { SHARED, BROADCAST, ROUTED }
+
+    private final String nodeId;
+    private final FanoutMode mode;
+    private final String sharedGroup;
+    private final String sharedOffsetReset;
+    private final String nodeTopicPrefix;
+
+    public NodeIdentity(@Value("${app.node-id:}") String nodeId,
+                        @Value("${app.fanout.mode:shared}") String mode,
+                        @Value("${spring.kafka.consumer.group-id:websocket-consumers}") String sharedGroup,
+                        @Value("${spring.kafka.consumer.auto-offset-reset:earliest}") String sharedOffsetReset,
+                        @Value("${app.fanout.node-topic-prefix:ws.node.}") String nodeTopicPrefix) {
+        this.nodeId = nodeId != null && !nodeId.isBlank() ? nodeId : defaultNodeId();
+        this.mode = FanoutMode.valueOf(mode.trim().toUpperCase(Locale.ROOT));
+        this.sharedGroup = sharedGroup;
+        this.sharedOffsetReset = sharedOffsetReset;
+        this.nodeTopicPrefix = nodeTopicPrefix;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public FanoutMode getMode() {
+        return mode;
+    }
+
+    public boolean isBroadcast() {
+        return mode == FanoutMode.BROADCAST;
+    }
+
+    public boolean isRouted() {
+        return mode == FanoutMode.ROUTED;
+    }
+
+    /**
+     * True when the same record is delivered by several nodes, each to its own sessions
+     */
+    public boolean isPerNodeDelivery() {
+        return mode != FanoutMode.SHARED;
+    }
+
+    // The getters below are referenced from @KafkaListener expressions
+
+    /**
+     * Whether the event listeners consume the source topics directly
+     */
+    public boolean isDirectConsumer() {
+        return !isRouted();
+    }
+
+    /**
+     * Consumer group of the event listeners on the source topics
+     */
+    public String getConsumerGroup() {
+        return isBroadcast() ? getNodeGroup() : sharedGroup;
+    }
+
+    public String getOffsetReset() {
+        return isBroadcast() ? "latest" : sharedOffsetReset;
+    }
+
+    /**
+     * Group shared by the routers on the source topics
+     */
+    public String getRouterGroup() {
+        return sharedGroup + "-router";
+    }
+
+    /**
+     * Group of this node alone, for its node topic in routed mode and the source topics in broadcast mode
+     */
+    public String getNodeGroup() {
+        return sharedGroup + "-" + nodeId;
+    }
+
+    public String getNodeTopic() {
+        return nodeTopic(nodeId);
+    }
+
+    public String nodeTopic(String node) {
+        return nodeTopicPrefix + node;
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception ex) {
+            host = "websocket";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.websocket.cluster;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Cluster-wide view of which nodes hold sessions for a user or a conversation, used by EventRouter in routed mode.
+ *
+ * Each user and conversation key is a Redis sorted set of node ids scored by the time the entry expires.
+ * Registrations are written on connect/join and refreshed in one pipeline on every heartbeat, so a node that
+ * dies drops out of the directory after the ttl without anyone cleaning up after it. Lookups ignore expired
+ * members; the key itself expires once no node refreshes it.
+ */
+@Component
+@Slf4j
+public class SessionDirectory {
+
+    private static final String USER_KEY_PREFIX = "ws:dir:user:";
+    private static final String CONVERSATION_KEY_PREFIX = "ws:dir:conv:";
+
+    private final StringRedisTemplate redisTemplate;
+    private final NodeIdentity nodeIdentity;
+    private final long ttlMillis;
+    private final Set<String> localUsers = ConcurrentHashMap.newKeySet();
+    private final Set<String> localConversations = ConcurrentHashMap.newKeySet();
+
+    public SessionDirectory(StringRedisTemplate redisTemplate,
+                            NodeIdentity nodeIdentity,
+                            @Value("${app.fanout.directory.ttl-ms:30000}") long ttlMillis) {
+        this.redisTemplate = redisTemplate;
+        this.nodeIdentity = nodeIdentity;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * The user's first session on this node connected
+     */
+    public void registerUser(String userId) {
+        if (nodeIdentity.isRouted() && localUsers.add(userId)) {
+            register(USER_KEY_PREFIX + userId);
+        }
+    }
+
+    /**
+     * The user's last session on this node closed
+     */
+    public void unregisterUser(String userId) {
+        if (nodeIdentity.isRouted() && localUsers.remove(userId)) {
+            unregister(USER_KEY_PREFIX + userId);
+        }
+    }
+
+    /**
+     * The first session on this node joined the conversation
+     */
+    public void registerConversation(String conversationId) {
+        if (nodeIdentity.isRouted() && localConversations.add(conversationId)) {
+            register(CONVERSATION_KEY_PREFIX + conversationId);
+        }
+    }
+
+    /**
+     * The last session on this node in the conversation closed
+     */
+    public void unregisterConversation(String conversationId) {
+        if (nodeIdentity.isRouted() && localConversations.remove(conversationId)) {
+            unregister(CONVERSATION_KEY_PREFIX + conversationId);
+        }
+    }
+
+    public Set<String> nodesForUser(String userId) {
+        return liveNodes(USER_KEY_PREFIX + userId);
+    }
+
+    public Set<String> nodesForConversation(String conversationId) {
+        return liveNodes(CONVERSATION_KEY_PREFIX + conversationId);
+    }
+
+    @Scheduled(fixedDelayString = "${app.fanout.directory.heartbeat-ms:10000}")
+    public void heartbeat() {
+        if (!nodeIdentity.isRouted()) {
+            return;
+        }
+        List<String> keys = new ArrayList<>(localUsers.size() + localConversations.size());
+        localUsers.forEach(userId -> keys.add(USER_KEY_PREFIX + userId));
+        localConversations.forEach(conversationId -> keys.add(CONVERSATION_KEY_PREFIX + conversationId));
+        if (keys.isEmpty()) {
+            return;
+        }
+        long expiresAt = System.currentTimeMillis() + ttlMillis;
+        String node = nodeIdentity.getNodeId();
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection redis = (StringRedisConnection) connection;
+                for (String key : keys) {
+                    redis.zAdd(key, expiresAt, node);
+                    redis.pExpire(key, ttlMillis * 2);
+                }
+                return null;
+            });
+        } catch (Exception ex) {
+            // Entries outlive a missed beat by the ttl; a longer outage drops this node from routing until it recovers
+            log.warn("Session directory heartbeat failed for {} keys", keys.size(), ex);
+        }
+    }
+
+    private void register(String key) {
+        try {
+            redisTemplate.opsForZSet().add(key, nodeIdentity.getNodeId(), System.currentTimeMillis() + ttlMillis);
+            redisTemplate.expire(key, Duration.ofMillis(ttlMillis * 2));
+        } catch (Exception ex) {
+            log.warn("Failed to register {} in the session directory; retried on the next heartbeat", key, ex);
+        }
+    }
+
+    private void unregister(String key) {
+        try {
+            redisTemplate.opsForZSet().remove(key, nodeIdentity.getNodeId());
+        } catch (Exception ex) {
+            log.debug("Failed to unregister {} from the session directory; it expires on its own", key, ex);
+        }
+    }
+
+    private Set<String> liveNodes(String key) {
+        Set<String> nodes = redisTemplate.opsForZSet().rangeByScore(key, System.currentTimeMillis(), Double.POSITIVE_INFINITY);
+        return nodes != null ? nodes : Set.of();
+    }
+}
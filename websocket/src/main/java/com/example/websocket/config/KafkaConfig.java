@@ -1,11 +1,33 @@
 package com.example.websocket.config;
 
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.common.config.TopicConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.annotation.EnableKafka;
+import org.springframework.kafka.config.TopicBuilder;
+
+import com.example.websocket.cluster.NodeIdentity;
 
 @Configuration
 @EnableKafka
 public class KafkaConfig {
-}
-
 
+    /**
+     * Routed mode: this node's delivery topic. One partition keeps each conversation's events in order;
+     * routed events are only useful to live sessions, so retention is short.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "app.fanout.mode", havingValue = "routed")
+    public NewTopic nodeTopic(NodeIdentity nodeIdentity,
+                              @Value("${app.fanout.node-topic.replicas:1}") int replicas,
+                              @Value("${app.fanout.node-topic.retention-ms:3600000}") long retentionMs) {
+        return TopicBuilder.name(nodeIdentity.getNodeTopic())
+                .partitions(1)
+                .replicas(replicas)
+                .config(TopicConfig.RETENTION_MS_CONFIG, Long.toString(retentionMs))
+                .build();
+    }
+}
@@ -1,11 +1,19 @@
 package com.example.websocket.config;
 
+import java.util.List;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.web.socket.WebSocketExtension;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
 import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
 import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.server.standard.ServletServerContainerFactoryBean;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
 
 import com.example.websocket.ws.ChatWebSocketHandler;
 import com.example.websocket.security.KongHandshakeInterceptor;
@@ -18,11 +26,14 @@ public class KongWebSocketConfig implements WebSocketConfigurer {
 
     private final ChatWebSocketHandler chatWebSocketHandler;
     private final KongHandshakeInterceptor kongHandshakeInterceptor;
+    private final boolean permessageDeflate;
 
     public KongWebSocketConfig(ChatWebSocketHandler chatWebSocketHandler, 
-                              KongHandshakeInterceptor kongHandshakeInterceptor) {
+                              KongHandshakeInterceptor kongHandshakeInterceptor,
+                              @Value("${app.ws.permessage-deflate.enabled:true}") boolean permessageDeflate) {
         this.chatWebSocketHandler = chatWebSocketHandler;
         this.kongHandshakeInterceptor = kongHandshakeInterceptor;
+        this.permessageDeflate = permessageDeflate;
     }
 
     @Override
@@ -30,6 +41,44 @@ public class KongWebSocketConfig implements WebSocketConfigurer {
         log.info("Registering WebSocket handlers for Kong profile");
         registry.addHandler(chatWebSocketHandler, "/ws", "/ws-message")
                 .addInterceptors(kongHandshakeInterceptor)
+                .setHandshakeHandler(new ExtensionFilteringHandshakeHandler(permessageDeflate))
                 .setAllowedOrigins("*");
     }
+
+    /**
+     * Text frames up to the inbound protocol limit (large SDP offers exceed the container's 8K default);
+     * longer frames close the session with 1009 before they reach the handler
+     */
+    @Bean
+    public ServletServerContainerFactoryBean webSocketContainer(@Value("${app.ws.inbound.max-frame-chars:65536}") int maxFrameChars) {
+        ServletServerContainerFactoryBean container = new ServletServerContainerFactoryBean();
+        container.setMaxTextMessageBufferSize(maxFrameChars);
+        return container;
+    }
+
+    /**
+     * The container negotiates permessage-deflate whenever the client offers it. Its compressor keeps a window per
+     * connection, so a broadcast is compressed once per socket; turning it off trades bandwidth for that CPU.
+     */
+    private static final class ExtensionFilteringHandshakeHandler extends DefaultHandshakeHandler {
+
+        private final boolean permessageDeflate;
+
+        ExtensionFilteringHandshakeHandler(boolean permessageDeflate) {
+            this.permessageDeflate = permessageDeflate;
+        }
+
+        @Override
+        protected List<WebSocketExtension> filterRequestedExtensions(ServerHttpRequest request,
+                                                                     List<WebSocketExtension> requestedExtensions,
+                                                                     List<WebSocketExtension> supportedExtensions) {
+            List<WebSocketExtension> accepted = super.filterRequestedExtensions(request, requestedExtensions, supportedExtensions);
+            if (permessageDeflate) {
+                return accepted;
+            }
+            return accepted.stream()
+                    .filter(extension -> !"permessage-deflate".equalsIgnoreCase(extension.getName()))
+                    .toList();
+        }
+    }
 }
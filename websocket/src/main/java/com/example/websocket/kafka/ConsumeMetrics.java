@@ -0,0 +1,26 @@
+package com.example.websocket.kafka;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Per-node consume volume: ws.kafka.events{topic, recipients=local|none}. The share of "none" is what a node
+ * pays for records it has no sessions for.
+ */
+@Component
+public class ConsumeMetrics {
+
+    private final MeterRegistry registry;
+
+    public ConsumeMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.registry = meterRegistry.getIfAvailable();
+    }
+
+    public void record(String topic, boolean localRecipients) {
+        if (registry != null) {
+            registry.counter("ws.kafka.events", "topic", topic, "recipients", localRecipients ? "local" : "none").increment();
+        }
+    }
+}
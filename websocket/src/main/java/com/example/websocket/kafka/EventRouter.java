@@ -0,0 +1,115 @@
+package com.example.websocket.kafka;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import com.example.websocket.cluster.NodeIdentity;
+import com.example.websocket.cluster.SessionDirectory;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Routing stage of routed fan-out: the nodes share the source topics in one group, and each record is
+ * republished, unchanged and with its headers, to the node topics of only the nodes the session directory lists
+ * for its conversation (message events) or user (user events). Records nobody is connected for go nowhere.
+ *
+ * The offset is committed only after every node topic acknowledged, so a failed send is retried.
+ */
+@Component
+@Slf4j
+public class EventRouter {
+
+    public static final String SOURCE_HEADER = "ws-source";
+    public static final String SOURCE_MESSAGE = "message";
+    public static final String SOURCE_USER = "user";
+
+    private final SessionDirectory sessionDirectory;
+    private final NodeIdentity nodeIdentity;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final DistributionSummary fanout;
+
+    @Value("${app.fanout.router.ack-timeout-ms:10000}")
+    private long ackTimeoutMs;
+
+    public EventRouter(SessionDirectory sessionDirectory,
+                       NodeIdentity nodeIdentity,
+                       KafkaTemplate<String, String> kafkaTemplate,
+                       ObjectProvider<MeterRegistry> meterRegistry) {
+        this.sessionDirectory = sessionDirectory;
+        this.nodeIdentity = nodeIdentity;
+        this.kafkaTemplate = kafkaTemplate;
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        this.fanout = registry != null
+                ? DistributionSummary.builder("ws.router.fanout")
+                    .description("Node topics each routed record was republished to")
+                    .register(registry)
+                : null;
+    }
+
+    @KafkaListener(topics = "${app.kafka.topics.message}",
+            groupId = "#{@nodeIdentity.routerGroup}",
+            autoStartup = "#{@nodeIdentity.routed}")
+    public void routeMessageEvent(ConsumerRecord<String, String> record) throws Exception {
+        String conversationId = aggregateId(record);
+        route(record, SOURCE_MESSAGE, conversationId != null ? sessionDirectory.nodesForConversation(conversationId) : Set.of());
+    }
+
+    @KafkaListener(topics = "${app.kafka.topics.user}",
+            groupId = "#{@nodeIdentity.routerGroup}",
+            autoStartup = "#{@nodeIdentity.routed}")
+    public void routeUserEvent(ConsumerRecord<String, String> record) throws Exception {
+        String userId = aggregateId(record);
+        route(record, SOURCE_USER, userId != null ? sessionDirectory.nodesForUser(userId) : Set.of());
+    }
+
+    private void route(ConsumerRecord<String, String> record, String source, Set<String> nodes) throws Exception {
+        if (fanout != null) {
+            fanout.record(nodes.size());
+        }
+        if (nodes.isEmpty()) {
+            return;
+        }
+        List<CompletableFuture<?>> acks = new ArrayList<>(nodes.size());
+        for (String node : nodes) {
+            RecordHeaders headers = new RecordHeaders(record.headers().toArray());
+            headers.add(SOURCE_HEADER, source.getBytes(StandardCharsets.UTF_8));
+            acks.add(kafkaTemplate.send(new ProducerRecord<>(
+                    nodeIdentity.nodeTopic(node), null, record.key(), record.value(), headers)));
+        }
+        CompletableFuture.allOf(acks.toArray(new CompletableFuture[0])).get(ackTimeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Conversation or user id: the record key set by the server, or the envelope's id for unkeyed records
+     */
+    private String aggregateId(ConsumerRecord<String, String> record) {
+        if (record.key() != null && !record.key().isBlank()) {
+            return record.key();
+        }
+        try {
+            JsonNode id = objectMapper.readTree(record.value()).path("id");
+            return id.isTextual() && !id.asText().isBlank() ? id.asText() : null;
+        } catch (Exception ex) {
+            log.warn("Cannot route unparseable record at {}-{}@{}", record.topic(), record.partition(), record.offset());
+            return null;
+        }
+    }
+}
@@ -5,7 +5,6 @@ import lombok.extern.slf4j.Slf4j;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
-import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Component;
@@ -15,23 +14,34 @@ import org.springframework.stereotype.Component;
 public class MessageEventConsumer {
 
     private final ChatWebSocketHandler webSocketHandler;
-    private final StringRedisTemplate stringRedisTemplate;
+    private final ProcessedEventGuard processedEventGuard;
+    private final ConsumeMetrics consumeMetrics;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     public MessageEventConsumer(ChatWebSocketHandler webSocketHandler,
-                                StringRedisTemplate stringRedisTemplate) {
+                                ProcessedEventGuard processedEventGuard,
+                                ConsumeMetrics consumeMetrics) {
         this.webSocketHandler = webSocketHandler;
-        this.stringRedisTemplate = stringRedisTemplate;
+        this.processedEventGuard = processedEventGuard;
+        this.consumeMetrics = consumeMetrics;
     }
 
     /**
      * Handle message events from Kafka: broadcast to WebSocket sessions in conversation
      */
-    @KafkaListener(topics = "${app.kafka.topics.message}")
+    @KafkaListener(topics = "${app.kafka.topics.message}",
+            groupId = "#{@nodeIdentity.consumerGroup}",
+            autoStartup = "#{@nodeIdentity.directConsumer}",
+            properties = "auto.offset.reset=#{@nodeIdentity.offsetReset}")
     public void onMessageEvent(ConsumerRecord<String, String> record,
                                @Header(name = "messageId", required = false) String messageIdHeader) {
-        String payload = record.value();
+        deliver(record.value(), messageIdHeader);
+    }
 
+    /**
+     * Deliver one message event to this node's sessions; also fed from the node topic in routed mode
+     */
+    public void deliver(String payload, String messageIdHeader) {
         try {
             JsonNode root = objectMapper.readTree(payload);
             String eventType = getText(root, "eventType");
@@ -44,12 +54,14 @@ public class MessageEventConsumer {
 
             String messageId = messageIdHeader != null ? messageIdHeader : getText(root.path("data"), "messageId");
 
-            if (messageId != null && !messageId.isEmpty()) {
-                String key = "processed:" + messageId;
-                Boolean first = stringRedisTemplate.opsForValue().setIfAbsent(key, "1", java.time.Duration.ofDays(1));
-                if (Boolean.FALSE.equals(first)) {
-                    return;
-                }
+            boolean local = webSocketHandler.hasConversationSessions(conversationId);
+            consumeMetrics.record("message", local);
+            if (!local) {
+                // Nobody in this conversation is connected to this node
+                return;
+            }
+            if (!processedEventGuard.firstDelivery(messageId)) {
+                return;
             }
 
             if (eventType == null) {
@@ -0,0 +1,48 @@
+package com.example.websocket.kafka;
+
+import java.nio.charset.StandardCharsets;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Routed mode: consumes this node's own topic, fed by EventRouter with only the events for its sessions,
+ * and hands each record to the consumer of its source topic
+ */
+@Component
+@Slf4j
+public class NodeTopicConsumer {
+
+    private final MessageEventConsumer messageEventConsumer;
+    private final UserEventConsumer userEventConsumer;
+
+    public NodeTopicConsumer(MessageEventConsumer messageEventConsumer, UserEventConsumer userEventConsumer) {
+        this.messageEventConsumer = messageEventConsumer;
+        this.userEventConsumer = userEventConsumer;
+    }
+
+    @KafkaListener(topics = "#{@nodeIdentity.nodeTopic}",
+            groupId = "#{@nodeIdentity.nodeGroup}",
+            autoStartup = "#{@nodeIdentity.routed}",
+            properties = "auto.offset.reset=latest")
+    public void onRoutedEvent(ConsumerRecord<String, String> record) {
+        String source = header(record, EventRouter.SOURCE_HEADER);
+        String messageId = header(record, "messageId");
+        if (EventRouter.SOURCE_MESSAGE.equals(source)) {
+            messageEventConsumer.deliver(record.value(), messageId);
+        } else if (EventRouter.SOURCE_USER.equals(source)) {
+            userEventConsumer.deliver(record.value(), messageId);
+        } else {
+            log.warn("Dropping routed record without a known source: {}", source);
+        }
+    }
+
+    private static String header(ConsumerRecord<String, String> record, String name) {
+        Header header = record.headers().lastHeader(name);
+        return header != null && header.value() != null ? new String(header.value(), StandardCharsets.UTF_8) : null;
+    }
+}
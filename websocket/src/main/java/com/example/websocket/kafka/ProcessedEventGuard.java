@@ -0,0 +1,40 @@
+package com.example.websocket.kafka;
+
+import java.time.Duration;
+
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import com.example.websocket.cluster.NodeIdentity;
+
+/**
+ * Idempotent consumption: a record is delivered once per messageId. The marker is global in shared mode;
+ * in broadcast and routed mode every node delivers the same record to its own sessions, so the marker is per node.
+ */
+@Component
+public class ProcessedEventGuard {
+
+    private static final Duration RETENTION = Duration.ofDays(1);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final NodeIdentity nodeIdentity;
+
+    public ProcessedEventGuard(StringRedisTemplate stringRedisTemplate, NodeIdentity nodeIdentity) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.nodeIdentity = nodeIdentity;
+    }
+
+    /**
+     * True when the record should be delivered: no messageId, or the first time this messageId is seen
+     */
+    public boolean firstDelivery(String messageId) {
+        if (messageId == null || messageId.isEmpty()) {
+            return true;
+        }
+        String key = nodeIdentity.isPerNodeDelivery()
+                ? "processed:" + nodeIdentity.getNodeId() + ":" + messageId
+                : "processed:" + messageId;
+        Boolean first = stringRedisTemplate.opsForValue().setIfAbsent(key, "1", RETENTION);
+        return !Boolean.FALSE.equals(first);
+    }
+}
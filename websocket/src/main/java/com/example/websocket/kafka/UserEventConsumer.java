@@ -3,7 +3,6 @@ package com.example.websocket.kafka;
 import com.example.websocket.ws.ChatWebSocketHandler;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
-import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Component;
@@ -13,31 +12,46 @@ import org.springframework.stereotype.Component;
 public class UserEventConsumer {
 
     private final ChatWebSocketHandler webSocketHandler;
-    private final StringRedisTemplate stringRedisTemplate;
+    private final ProcessedEventGuard processedEventGuard;
+    private final ConsumeMetrics consumeMetrics;
 
     public UserEventConsumer(ChatWebSocketHandler webSocketHandler,
-                             StringRedisTemplate stringRedisTemplate) {
+                             ProcessedEventGuard processedEventGuard,
+                             ConsumeMetrics consumeMetrics) {
         this.webSocketHandler = webSocketHandler;
-        this.stringRedisTemplate = stringRedisTemplate;
+        this.processedEventGuard = processedEventGuard;
+        this.consumeMetrics = consumeMetrics;
     }
 
     /**
      * Handle user events from Kafka: online/offline, friend requests, call events
      */
-    @KafkaListener(topics = "${app.kafka.topics.user}")
+    @KafkaListener(topics = "${app.kafka.topics.user}",
+            groupId = "#{@nodeIdentity.consumerGroup}",
+            autoStartup = "#{@nodeIdentity.directConsumer}",
+            properties = "auto.offset.reset=#{@nodeIdentity.offsetReset}")
     public void onUserEvent(ConsumerRecord<String, String> record,
                             @Header(name = "messageId", required = false) String messageIdHeader) {
-        String payload = record.value();
+        deliver(record.value(), messageIdHeader);
+    }
+
+    /**
+     * Deliver one user event to this node's sessions; also fed from the node topic in routed mode
+     */
+    public void deliver(String payload, String messageIdHeader) {
         String eventType = extractField(payload, "eventType");
         String userId = extractField(payload, "id");
 
+        boolean local = userId != null && webSocketHandler.hasUserSessions(userId);
+        consumeMetrics.record("user", local);
+        if (!local) {
+            // Every user event is pushed to the user's own sockets, and none are on this node
+            return;
+        }
+
         String messageId = messageIdHeader != null ? messageIdHeader : extractField(payload, "messageId");
-        if (messageId != null && !messageId.isEmpty()) {
-            String key = "processed:" + messageId;
-            Boolean first = stringRedisTemplate.opsForValue().setIfAbsent(key, "1", java.time.Duration.ofDays(1));
-            if (Boolean.FALSE.equals(first)) {
-                return;
-            }
+        if (!processedEventGuard.firstDelivery(messageId)) {
+            return;
         }
         
         if (userId != null) {
@@ -61,6 +75,9 @@ public class UserEventConsumer {
                 case "CALL_MISSED":
                     handleCallEvent(userId, payload);
                     break;
+                case "USER_PROFILE_UPDATED":
+                    // Consumed by the server's inbox projection; nothing to push to sockets
+                    break;
                 default:
                     log.warn("Unknown user event type: {}", eventType);
             }
@@ -0,0 +1,87 @@
+package com.example.websocket.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.websocket.common.util.ExpiringLruCache;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+
+/**
+ * Verifies handshake tokens with one pre-built parser and caches verified tokens by SHA-256 digest
+ * until their exp, so a reconnect storm after a node restart does not redo the HMAC check per socket.
+ */
+@Component
+public class JwtTokenVerifier {
+
+    private final JwtParser parser;
+    private final ExpiringLruCache<String, VerifiedToken> verified;
+
+    public JwtTokenVerifier(@Value("${app.jwt.secret}") String secret,
+                            @Value("${app.security.token-cache.max-entries:20000}") int maxEntries,
+                            @Value("${app.security.token-cache.ttl:PT5M}") Duration ttl) {
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8)))
+                .build();
+        this.verified = new ExpiringLruCache<>(maxEntries, ttl);
+    }
+
+    /**
+     * Verify a token once; throws io.jsonwebtoken.JwtException when it is invalid or expired
+     */
+    public VerifiedToken verify(String token) {
+        String digest = digest(token);
+        VerifiedToken cached = verified.get(digest);
+        if (cached != null) {
+            return cached;
+        }
+
+        Claims claims = parser.parseClaimsJws(token).getBody();
+        VerifiedToken result = new VerifiedToken(
+                claims.get("uid") != null ? claims.get("uid").toString() : null,
+                claims.getSubject());
+        if (claims.getExpiration() != null) {
+            verified.put(digest, result, claims.getExpiration().getTime());
+        }
+        return result;
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 not available", ex);
+        }
+    }
+
+    /**
+     * The claims the handshake needs from a verified token
+     */
+    public static final class VerifiedToken {
+        private final String userId;
+        private final String username;
+
+        private VerifiedToken(String userId, String username) {
+            this.userId = userId;
+            this.username = username;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+    }
+}
@@ -29,8 +29,9 @@ public class KongHandshakeInterceptor implements HandshakeInterceptor {
     public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
                                    WebSocketHandler wsHandler, Map<String, Object> attributes) {
         try {
-            if (userExtractor.isAuthenticated(request)) {
-                userExtractor.addUserInfoToAttributes(request, attributes);
+            KongWebSocketUserExtractor.KongWebSocketUserInfo userInfo = userExtractor.getUserInfo(request);
+            if (userInfo.isValid()) {
+                userExtractor.addUserInfoToAttributes(request, userInfo, attributes);
                 return true;
             }
             return false;
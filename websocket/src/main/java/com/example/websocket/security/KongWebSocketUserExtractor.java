@@ -1,22 +1,15 @@
 package com.example.websocket.security;
 
-import java.nio.charset.StandardCharsets;
 import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.server.ServerHttpRequest;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import org.springframework.web.util.UriComponentsBuilder;
 
-import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Jws;
 import io.jsonwebtoken.JwtException;
-import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.security.Keys;
-import javax.crypto.SecretKey;
 
 /**
  * Utility class lấy user information từ Kong Gateway headers cho WebSocket
@@ -29,57 +22,66 @@ public class KongWebSocketUserExtractor {
     public static final String USER_ID_HEADER = "X-Kong-Jwt-Claim-Uid";
     public static final String USERNAME_HEADER = "X-Kong-Jwt-Claim-Sub";
 
-    private final SecretKey secretKey;
+    private final JwtTokenVerifier tokenVerifier;
 
-    public KongWebSocketUserExtractor(@Value("${app.jwt.secret}") String secret) {
-        this.secretKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+    public KongWebSocketUserExtractor(JwtTokenVerifier tokenVerifier) {
+        this.tokenVerifier = tokenVerifier;
     }
     
     /**
      * Get userId from Kong headers or JWT token
      */
     public String getUserId(ServerHttpRequest request) {
-        String fromHeader = request.getHeaders().getFirst(USER_ID_HEADER);
-        if (StringUtils.hasText(fromHeader)) {
-            return fromHeader;
-        }
-        return getClaimFromToken(request, "uid");
+        return getUserInfo(request).getUserId();
     }
     
     /**
      * Get username from Kong headers or JWT token
      */
     public String getUsername(ServerHttpRequest request) {
-        String fromHeader = request.getHeaders().getFirst(USERNAME_HEADER);
-        if (StringUtils.hasText(fromHeader)) {
-            return fromHeader;
-        }
-        return getClaimFromToken(request, "sub");
+        return getUserInfo(request).getUsername();
     }
     
     /**
      * Check if user is authenticated
      */
     public boolean isAuthenticated(ServerHttpRequest request) {
-        String userId = getUserId(request);
-        return StringUtils.hasText(userId);
+        return getUserInfo(request).isValid();
     }
     
     /**
-     * Get user info as object
+     * Get user info as object; the token is verified at most once, and only when Kong headers are missing
      */
     public KongWebSocketUserInfo getUserInfo(ServerHttpRequest request) {
-        return new KongWebSocketUserInfo(
-            getUserId(request),
-            getUsername(request)
-        );
+        String userId = request.getHeaders().getFirst(USER_ID_HEADER);
+        String username = request.getHeaders().getFirst(USERNAME_HEADER);
+        if (StringUtils.hasText(userId) && StringUtils.hasText(username)) {
+            return new KongWebSocketUserInfo(userId, username);
+        }
+        JwtTokenVerifier.VerifiedToken token = verifyToken(request);
+        if (token != null) {
+            if (!StringUtils.hasText(userId)) {
+                userId = token.getUserId();
+            }
+            if (!StringUtils.hasText(username)) {
+                username = token.getUsername();
+            }
+        }
+        return new KongWebSocketUserInfo(userId, username);
     }
     
     /**
      * Add user info to WebSocket session attributes
      */
     public void addUserInfoToAttributes(ServerHttpRequest request, Map<String, Object> attributes) {
-        KongWebSocketUserInfo userInfo = getUserInfo(request);
+        addUserInfoToAttributes(request, getUserInfo(request), attributes);
+    }
+
+    /**
+     * Add already resolved user info to WebSocket session attributes
+     */
+    public void addUserInfoToAttributes(ServerHttpRequest request, KongWebSocketUserInfo userInfo,
+                                        Map<String, Object> attributes) {
         if (userInfo.isValid()) {
             attributes.put("userId", userInfo.getUserId());
             attributes.put("username", userInfo.getUsername());
@@ -94,26 +96,13 @@ public class KongWebSocketUserExtractor {
         return extractToken(request);
     }
 
-    private String getClaimFromToken(ServerHttpRequest request, String claimKey) {
-        Claims claims = parseToken(request);
-        if (claims == null) {
-            return null;
-        }
-        Object value = claims.get(claimKey);
-        return value != null ? value.toString() : null;
-    }
-
-    private Claims parseToken(ServerHttpRequest request) {
+    private JwtTokenVerifier.VerifiedToken verifyToken(ServerHttpRequest request) {
         String token = extractToken(request);
         if (!StringUtils.hasText(token)) {
             return null;
         }
         try {
-            Jws<Claims> jws = Jwts.parserBuilder()
-                    .setSigningKey(secretKey)
-                    .build()
-                    .parseClaimsJws(token);
-            return jws.getBody();
+            return tokenVerifier.verify(token);
         } catch (JwtException ex) {
             log.warn("Failed to parse JWT from WebSocket request", ex);
             return null;
@@ -8,13 +8,20 @@ import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
 
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
 
+import com.example.websocket.cluster.SessionDirectory;
 import com.example.websocket.presence.PresenceService;
 import com.example.websocket.presence.PresenceService.PresenceMessage;
 import com.example.websocket.presence.PresenceService.PresenceOnlineResult;
+import com.example.websocket.ws.protocol.InboundFrame;
+import com.example.websocket.ws.protocol.InboundFrameParser;
+import com.example.websocket.ws.protocol.InvalidFrameException;
 import org.springframework.lang.NonNull;
 
 @Component
@@ -24,9 +31,31 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
     private final Map<String, Set<WebSocketSession>> userIdToSessions = new ConcurrentHashMap<>();
     private final Map<String, Set<WebSocketSession>> conversationIdToSessions = new ConcurrentHashMap<>();
     private final PresenceService presenceService;
+    private final SessionDirectory sessionDirectory;
+    private final OutboundQueues outbound;
+    private final InboundFrameParser frameParser;
+    private final Map<Class<? extends InboundFrame>, BiConsumer<WebSocketSession, InboundFrame>> frameHandlers = new HashMap<>();
 
-    public ChatWebSocketHandler(PresenceService presenceService) {
+    public ChatWebSocketHandler(PresenceService presenceService,
+                                SessionDirectory sessionDirectory,
+                                OutboundQueues outbound,
+                                InboundFrameParser frameParser) {
         this.presenceService = presenceService;
+        this.sessionDirectory = sessionDirectory;
+        this.outbound = outbound;
+        this.frameParser = frameParser;
+        on(InboundFrame.Join.class, this::handleJoin);
+        on(InboundFrame.Typing.class, (session, typing) -> {
+            Object userId = session.getAttributes().get("userId");
+            if (userId != null) {
+                handleTyping(typing.conversationId(), userId.toString(), typing.typing());
+            }
+        });
+        on(InboundFrame.CallSignal.class, this::handleCallSignal);
+    }
+
+    private <T extends InboundFrame> void on(Class<T> type, BiConsumer<WebSocketSession, T> handler) {
+        frameHandlers.put(type, (session, frame) -> handler.accept(session, type.cast(frame)));
     }
 
     /**
@@ -37,10 +66,11 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
         Object userId = session.getAttributes().get("userId");
         Object username = session.getAttributes().get("username");
         Object token = session.getAttributes().get("accessToken");
+        outbound.open(session);
         if (userId != null) {
-            userIdToSessions
-                .computeIfAbsent(userId.toString(), k -> ConcurrentHashMap.newKeySet())
-                .add(session);
+            // Added inside compute so a concurrent last close cannot drop the set this session joins
+            userIdToSessions.compute(userId.toString(), (k, sessions) -> add(sessions, session));
+            sessionDirectory.registerUser(userId.toString());
 
             log.info("WebSocket connected for user {}. Active sessions: {}", userId,
                     userIdToSessions.getOrDefault(userId.toString(), java.util.Collections.emptySet()).size());
@@ -59,15 +89,11 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
                     }
                     if (result.messages() != null) {
                         for (PresenceMessage message : result.messages()) {
-                            if (message.targetUserId().equals(userId.toString()) && session.isOpen()) {
-                                try {
-                                    session.sendMessage(new org.springframework.web.socket.TextMessage(message.payload()));
-                                    log.info("Sent PRESENCE_SYNC to user {} on connection. Payload: {}", userId, message.payload());
-                                } catch (Exception ex) {
-                                    log.warn("Failed to send PRESENCE_SYNC to user {} on connection", userId, ex);
-                                }
+                            if (message.targetUserId().equals(userId.toString())) {
+                                outbound.send(session, OutboundQueues.encode(message.payload()));
+                                log.info("Queued PRESENCE_SYNC to user {} on connection. Payload: {}", userId, message.payload());
                             } else {
-                                broadcastToUser(message.targetUserId(), message.payload());
+                                sendPresenceToUser(message.targetUserId(), message.payload());
                             }
                         }
                     }
@@ -79,50 +105,42 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
     }
 
     /**
-     * Handle text messages from client: join conversation, typing indicators, and WebRTC signaling
+     * Handle text messages from client: decode the frame and dispatch it to the handler registered for its type
      */
     @Override
     protected void handleTextMessage(@NonNull WebSocketSession session, @NonNull TextMessage message) throws Exception {
-        String payload = message.getPayload();
-        Object userId = session.getAttributes().get("userId");
-        
-        if (payload.contains("\"type\":\"join\"")) {
-            String conversationId = extractField(payload, "conversationId");
-            if (conversationId != null && !conversationId.isBlank()) {
-                conversationIdToSessions
-                        .computeIfAbsent(conversationId, k -> ConcurrentHashMap.newKeySet())
-                        .add(session);
+        InboundFrame frame;
+        try {
+            frame = frameParser.parse(message.getPayload());
+        } catch (InvalidFrameException ex) {
+            log.debug("Ignoring invalid frame from session {}: {}", session.getId(), ex.getMessage());
+            return;
+        }
+        if (frame != null) {
+            frameHandlers.get(frame.getClass()).accept(session, frame);
+        }
+    }
 
-                @SuppressWarnings("unchecked")
-                Set<String> conversations = (Set<String>) session.getAttributes()
-                        .computeIfAbsent("conversations", k -> ConcurrentHashMap.newKeySet());
-                conversations.add(conversationId);
+    /**
+     * Join conversation: deliver its events to this session and tell the other participants the user is online
+     */
+    private void handleJoin(WebSocketSession session, InboundFrame.Join join) {
+        String conversationId = join.conversationId();
+        conversationIdToSessions.compute(conversationId, (k, sessions) -> add(sessions, session));
+        sessionDirectory.registerConversation(conversationId);
 
-                Object sessionUserId = session.getAttributes().get("userId");
-                Object sessionUsername = session.getAttributes().get("username");
-                if (sessionUserId != null) {
-                    notifyConversationsPresence(Collections.singleton(conversationId),
-                            sessionUserId.toString(),
-                            sessionUsername != null ? sessionUsername.toString() : sessionUserId.toString(),
-                            true);
-                }
-            }
-        } else if (payload.contains("\"type\":\"typing_start\"")) {
-            String conversationId = extractField(payload, "conversationId");
-            if (conversationId != null && userId != null) {
-                handleTyping(conversationId, userId.toString(), true);
-            }
-        } else if (payload.contains("\"type\":\"typing_stop\"")) {
-            String conversationId = extractField(payload, "conversationId");
-            if (conversationId != null && userId != null) {
-                handleTyping(conversationId, userId.toString(), false);
-            }
-        } else if (payload.contains("\"type\":\"call_offer\"")) {
-            handleCallOffer(payload, userId != null ? userId.toString() : null);
-        } else if (payload.contains("\"type\":\"call_answer\"")) {
-            handleCallAnswer(payload, userId != null ? userId.toString() : null);
-        } else if (payload.contains("\"type\":\"call_ice_candidate\"")) {
-            handleCallIceCandidate(payload, userId != null ? userId.toString() : null);
+        @SuppressWarnings("unchecked")
+        Set<String> conversations = (Set<String>) session.getAttributes()
+                .computeIfAbsent("conversations", k -> ConcurrentHashMap.newKeySet());
+        conversations.add(conversationId);
+
+        Object sessionUserId = session.getAttributes().get("userId");
+        Object sessionUsername = session.getAttributes().get("username");
+        if (sessionUserId != null) {
+            notifyConversationsPresence(Collections.singleton(conversationId),
+                    sessionUserId.toString(),
+                    sessionUsername != null ? sessionUsername.toString() : sessionUserId.toString(),
+                    true);
         }
     }
 
@@ -134,11 +152,11 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
         Object userId = session.getAttributes().get("userId");
         Object username = session.getAttributes().get("username");
         if (userId != null) {
-            Set<WebSocketSession> sessions = userIdToSessions.get(userId.toString());
-            if (sessions != null) {
-                sessions.remove(session);
-                if (sessions.isEmpty()) {
-                    userIdToSessions.remove(userId.toString());
+            if (userIdToSessions.computeIfPresent(userId.toString(), (k, sessions) -> remove(sessions, session)) == null) {
+                sessionDirectory.unregisterUser(userId.toString());
+                if (userIdToSessions.containsKey(userId.toString())) {
+                    // A new session connected in between
+                    sessionDirectory.registerUser(userId.toString());
                 }
             }
 
@@ -156,7 +174,7 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
                 if (messages != null) {
                     log.info("Presence offline processed for user {}. Notifying {} friends", userId, messages.size());
                     for (PresenceMessage message : messages) {
-                        broadcastToUser(message.targetUserId(), message.payload());
+                        sendPresenceToUser(message.targetUserId(), message.payload());
                     }
                 }
 
@@ -170,7 +188,54 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
                 log.warn("Failed to process offline presence for user {}", userId, ex);
             }
         }
-        conversationIdToSessions.values().forEach(set -> set.remove(session));
+        @SuppressWarnings("unchecked")
+        Set<String> joined = (Set<String>) session.getAttributes().get("conversations");
+        if (joined != null) {
+            for (String conversationId : joined) {
+                leaveConversation(conversationId, session);
+            }
+        }
+        outbound.close(session);
+    }
+
+    private void leaveConversation(String conversationId, WebSocketSession session) {
+        if (conversationIdToSessions.computeIfPresent(conversationId, (k, sessions) -> remove(sessions, session)) == null) {
+            sessionDirectory.unregisterConversation(conversationId);
+            if (conversationIdToSessions.containsKey(conversationId)) {
+                // Another session joined in between
+                sessionDirectory.registerConversation(conversationId);
+            }
+        }
+    }
+
+    private static Set<WebSocketSession> add(Set<WebSocketSession> sessions, WebSocketSession session) {
+        Set<WebSocketSession> target = sessions != null ? sessions : ConcurrentHashMap.newKeySet();
+        target.add(session);
+        return target;
+    }
+
+    /**
+     * Returns null, which drops the map entry, once the last session is gone
+     */
+    private static Set<WebSocketSession> remove(Set<WebSocketSession> sessions, WebSocketSession session) {
+        sessions.remove(session);
+        return sessions.isEmpty() ? null : sessions;
+    }
+
+    /**
+     * True when a session on this node has joined the conversation
+     */
+    public boolean hasConversationSessions(String conversationId) {
+        Set<WebSocketSession> sessions = conversationIdToSessions.get(conversationId);
+        return sessions != null && !sessions.isEmpty();
+    }
+
+    /**
+     * True when the user has a session on this node
+     */
+    public boolean hasUserSessions(String userId) {
+        Set<WebSocketSession> sessions = userIdToSessions.get(userId);
+        return sessions != null && !sessions.isEmpty();
     }
 
     /**
@@ -179,17 +244,15 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
     public void broadcastToConversation(String conversationId, String jsonMessage) {
         Set<WebSocketSession> sessions = conversationIdToSessions.get(conversationId);
         if (sessions == null) return;
+        TextMessage frame = OutboundQueues.encode(jsonMessage);
         for (WebSocketSession session : sessions) {
-            if (session.isOpen()) {
-                try {
-                    session.sendMessage(new TextMessage(jsonMessage));
-                } catch (Exception ignored) {}
-            }
+            outbound.send(session, frame);
         }
     }
 
     /**
-     * Notify user online/offline status to participants in conversations
+     * Notify user online/offline status to participants in conversations. One frame is shared by all recipients,
+     * and a recipient in several of the conversations gets it once.
      */
     private void notifyConversationsPresence(Set<String> conversationIds, String userId, String username, boolean isOnline) {
         long timestamp = System.currentTimeMillis();
@@ -199,18 +262,18 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
                 status, userId, username, timestamp
         );
 
+        TextMessage frame = OutboundQueues.encode(payload);
+        String coalesceKey = "presence:" + userId;
+
+        Set<WebSocketSession> recipients = new HashSet<>();
         for (String conversationId : conversationIds) {
             Set<WebSocketSession> sessions = conversationIdToSessions.get(conversationId);
             if (sessions == null) continue;
             for (WebSocketSession session : sessions) {
                 Object targetUserId = session.getAttributes().get("userId");
                 if (targetUserId == null || targetUserId.toString().equals(userId)) continue;
-                try {
-                    session.sendMessage(new TextMessage(
-                            payload.substring(0, payload.length() - 1) +
-                                    ",\"targetUserId\":\"" + targetUserId + "\"}"));
-                } catch (Exception ex) {
-                    log.warn("Failed to send presence {} notification to user {}", status, targetUserId, ex);
+                if (recipients.add(session)) {
+                    outbound.sendEphemeral(session, frame, coalesceKey);
                 }
             }
         }
@@ -230,12 +293,12 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
 
         Set<WebSocketSession> sessions = conversationIdToSessions.get(conversationId);
         if (sessions != null) {
+            TextMessage frame = OutboundQueues.encode(message);
+            String coalesceKey = "typing:" + conversationId + ":" + userId;
             for (WebSocketSession session : sessions) {
                 Object sessionUserId = session.getAttributes().get("userId");
-                if (sessionUserId != null && !sessionUserId.toString().equals(userId) && session.isOpen()) {
-                    try {
-                        session.sendMessage(new TextMessage(message));
-                    } catch (Exception ignored) {}
+                if (sessionUserId != null && !sessionUserId.toString().equals(userId)) {
+                    outbound.sendEphemeral(session, frame, coalesceKey);
                 }
             }
         }
@@ -249,105 +312,40 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
         if (sessions == null || sessions.isEmpty()) {
             return;
         }
+        TextMessage frame = OutboundQueues.encode(message);
         for (WebSocketSession session : sessions) {
-            if (session == null || !session.isOpen()) continue;
-            try {
-                session.sendMessage(new TextMessage(message));
-            } catch (Exception e) {
-                log.warn("Failed to send message to user {}", userId, e);
-            }
+            outbound.send(session, frame);
         }
     }
-    
-    /**
-     * Extract field value from JSON string
-     */
-    private String extractField(String json, String key) {
-        String pattern = "\"" + key + "\":\"";
-        int start = json.indexOf(pattern);
-        if (start < 0) return null;
-        start += pattern.length();
-        int end = json.indexOf('"', start);
-        if (end < 0) return null;
-        return json.substring(start, end);
-    }
-    
-    /**
-     * Handle WebRTC offer: relay offer from caller to receiver
-     */
-    private void handleCallOffer(String payload, String senderUserId) {
-        if (senderUserId == null) {
-            log.warn("Call offer received without userId");
-            return;
-        }
-        
-        try {
-            log.info("Call offer received from user {}: {}", senderUserId, payload);
-            String callId = extractField(payload, "callId");
-            String targetUserId = extractField(payload, "targetUserId");
-            
-            log.info("Extracted callId={}, targetUserId={} from offer", callId, targetUserId);
-            
-            if (callId == null || targetUserId == null) {
-                log.warn("Call offer missing callId or targetUserId. callId={}, targetUserId={}, payload={}", 
-                        callId, targetUserId, payload);
-                return;
-            }
-            
-            broadcastToUser(targetUserId, payload);
-            log.info("Call offer relayed: callId={}, from={}, to={}", callId, senderUserId, targetUserId);
-        } catch (Exception e) {
-            log.error("Failed to handle call offer", e);
-        }
-    }
-    
+
     /**
-     * Handle WebRTC answer: relay answer from receiver to caller
+     * Send a friend presence update to all sessions of a user; dropped first when a session falls behind
      */
-    private void handleCallAnswer(String payload, String senderUserId) {
-        if (senderUserId == null) {
-            log.warn("Call answer received without userId");
+    private void sendPresenceToUser(String userId, String payload) {
+        Set<WebSocketSession> sessions = userIdToSessions.get(userId);
+        if (sessions == null) {
             return;
         }
-        
-        try {
-            String callId = extractField(payload, "callId");
-            String targetUserId = extractField(payload, "targetUserId");
-            
-            if (callId == null || targetUserId == null) {
-                log.warn("Call answer missing callId or targetUserId: {}", payload);
-                return;
-            }
-            
-            broadcastToUser(targetUserId, payload);
-            log.info("Call answer relayed: callId={}, from={}, to={}", callId, senderUserId, targetUserId);
-        } catch (Exception e) {
-            log.error("Failed to handle call answer", e);
+        TextMessage frame = OutboundQueues.encode(payload);
+        for (WebSocketSession session : sessions) {
+            outbound.sendEphemeral(session, frame, null);
         }
     }
     
     /**
-     * Handle WebRTC ICE candidate: relay ICE candidate between peers
+     * Handle WebRTC signaling (offer, answer, ICE candidate): relay the frame unchanged to the target user
      */
-    private void handleCallIceCandidate(String payload, String senderUserId) {
+    private void handleCallSignal(WebSocketSession session, InboundFrame.CallSignal signal) {
+        Object senderUserId = session.getAttributes().get("userId");
         if (senderUserId == null) {
-            log.warn("Call ICE candidate received without userId");
+            log.warn("Call signal {} received without userId", signal.type());
             return;
         }
-        
-        try {
-            String callId = extractField(payload, "callId");
-            String targetUserId = extractField(payload, "targetUserId");
-            
-            if (callId == null || targetUserId == null) {
-                log.warn("Call ICE candidate missing callId or targetUserId: {}", payload);
-                return;
-            }
-            
-            broadcastToUser(targetUserId, payload);
-            log.debug("Call ICE candidate relayed: callId={}, from={}, to={}", callId, senderUserId, targetUserId);
-        } catch (Exception e) {
-            log.error("Failed to handle call ICE candidate", e);
+        broadcastToUser(signal.targetUserId(), signal.payload());
+        if ("call_ice_candidate".equals(signal.type())) {
+            log.debug("Call ICE candidate relayed: callId={}, from={}, to={}", signal.callId(), senderUserId, signal.targetUserId());
+        } else {
+            log.info("Call signal {} relayed: callId={}, from={}, to={}", signal.type(), signal.callId(), senderUserId, signal.targetUserId());
         }
     }
 }
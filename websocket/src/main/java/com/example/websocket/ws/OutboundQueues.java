@@ -0,0 +1,345 @@
+package com.example.websocket.ws;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.adapter.NativeWebSocketSession;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jakarta.websocket.Session;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Outbound side of every session: a bounded queue per session, drained by a shared pool of writer threads, so a
+ * broadcaster (Kafka listener, another session's inbound thread) only enqueues and never waits on a socket.
+ * A session's queue is drained by at most one writer at a time, which also serializes its sends.
+ *
+ * Typing and presence frames are ephemeral and may be dropped or coalesced; message and call frames never are,
+ * a session that cannot keep up with them is disconnected and resyncs on reconnect. Policies:
+ * COALESCE (default) lets a frame replace the queued frame with the same key (latest typing/presence state wins)
+ * and, when the queue is full, drops ephemeral frames, then disconnects; DROP_EPHEMERAL does the same without
+ * coalescing; DISCONNECT closes the session as soon as its queue is full.
+ * A session whose current write has been blocked for longer than send-time-limit is disconnected as well.
+ *
+ * Frames are immutable TextMessages built once per event with {@link #encode} and shared by every recipient queue.
+ */
+@Component
+@Slf4j
+public class OutboundQueues {
+
+    public enum OverflowPolicy { COALESCE, DROP_EPHEMERAL, DISCONNECT }
+
+    // Tomcat's per-session limit for a blocking write; frees the writer thread when a client stops reading
+    private static final String BLOCKING_SEND_TIMEOUT = "org.apache.tomcat.websocket.BLOCKING_SEND_TIMEOUT";
+
+    private final Map<String, SessionQueue> queues = new ConcurrentHashMap<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final ExecutorService writers;
+    private final ExecutorService closer;
+    private final OverflowPolicy policy;
+    private final int maxFrames;
+    private final long sendTimeLimitMs;
+    private final int drainBatch;
+
+    private final MeterRegistry registry;
+    private final DistributionSummary depth;
+    private final Timer sendTime;
+    private final Timer deliveryTime;
+
+    public OutboundQueues(ObjectProvider<MeterRegistry> meterRegistry,
+                          @Value("${app.ws.outbound.overflow-policy:coalesce}") String policy,
+                          @Value("${app.ws.outbound.max-frames:256}") int maxFrames,
+                          @Value("${app.ws.outbound.send-time-limit-ms:10000}") long sendTimeLimitMs,
+                          @Value("${app.ws.outbound.writer-threads:16}") int writerThreads,
+                          @Value("${app.ws.outbound.drain-batch:32}") int drainBatch) {
+        this.policy = OverflowPolicy.valueOf(policy.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        this.maxFrames = Math.max(1, maxFrames);
+        this.sendTimeLimitMs = sendTimeLimitMs;
+        this.drainBatch = Math.max(1, drainBatch);
+        this.writers = Executors.newFixedThreadPool(Math.max(1, writerThreads), daemonThreads("ws-outbound-"));
+        this.closer = Executors.newSingleThreadExecutor(daemonThreads("ws-outbound-closer-"));
+
+        this.registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            Gauge.builder("ws.outbound.queued", queued, AtomicInteger::get)
+                    .description("Frames waiting in all session queues")
+                    .register(registry);
+            this.depth = DistributionSummary.builder("ws.outbound.queue_depth")
+                    .description("Session queue depth after each enqueue")
+                    .register(registry);
+            this.sendTime = Timer.builder("ws.outbound.send")
+                    .description("Time spent writing one frame to its socket")
+                    .register(registry);
+            this.deliveryTime = Timer.builder("ws.outbound.delivery")
+                    .description("Time from enqueue until the frame was written")
+                    .publishPercentiles(0.5, 0.99)
+                    .register(registry);
+        } else {
+            this.depth = null;
+            this.sendTime = null;
+            this.deliveryTime = null;
+        }
+    }
+
+    /**
+     * Create the session's queue; call before the session becomes visible to broadcasters
+     */
+    public void open(WebSocketSession session) {
+        try {
+            if (session instanceof NativeWebSocketSession adapter) {
+                Session standard = adapter.getNativeSession(Session.class);
+                if (standard != null) {
+                    standard.getUserProperties().put(BLOCKING_SEND_TIMEOUT, sendTimeLimitMs);
+                }
+            }
+        } catch (Exception ex) {
+            log.debug("Cannot set blocking send timeout on session {}", session.getId(), ex);
+        }
+        queues.put(session.getId(), new SessionQueue(session));
+    }
+
+    /**
+     * Drop the session's queue and whatever it still holds
+     */
+    public void close(WebSocketSession session) {
+        SessionQueue queue = queues.remove(session.getId());
+        if (queue != null) {
+            queue.discard();
+        }
+    }
+
+    /**
+     * Build the frame for one event; its UTF-8 bytes are computed here once instead of once per recipient
+     */
+    public static TextMessage encode(String payload) {
+        return new TextMessage(payload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Queue a frame that must reach the client: chat events, user events, call signaling, presence sync
+     */
+    public void send(WebSocketSession session, TextMessage message) {
+        offer(session, new Frame(message, false, null));
+    }
+
+    /**
+     * Queue a typing or presence frame; frames with the same coalesce key replace each other while queued
+     */
+    public void sendEphemeral(WebSocketSession session, TextMessage message, String coalesceKey) {
+        offer(session, new Frame(message, true, coalesceKey));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        writers.shutdownNow();
+        closer.shutdownNow();
+    }
+
+    private void offer(WebSocketSession session, Frame frame) {
+        SessionQueue queue = queues.get(session.getId());
+        if (queue != null) {
+            queue.offer(frame);
+        }
+    }
+
+    private void shed(String action) {
+        if (registry != null) {
+            registry.counter("ws.outbound.shed", "policy", policy.name().toLowerCase(Locale.ROOT), "action", action).increment();
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static final class Frame {
+        private final TextMessage message;
+        private final boolean ephemeral;
+        private final String coalesceKey;
+        private final long enqueuedAt = System.nanoTime();
+
+        Frame(TextMessage message, boolean ephemeral, String coalesceKey) {
+            this.message = message;
+            this.ephemeral = ephemeral;
+            this.coalesceKey = coalesceKey;
+        }
+    }
+
+    private final class SessionQueue implements Runnable {
+        private final WebSocketSession session;
+        private final ArrayDeque<Frame> frames = new ArrayDeque<>();
+        private boolean scheduled;
+        private boolean closed;
+        private volatile long writingSince;
+
+        SessionQueue(WebSocketSession session) {
+            this.session = session;
+        }
+
+        void offer(Frame frame) {
+            boolean schedule = false;
+            String disconnect = null;
+            int size;
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                long since = writingSince;
+                if (since != 0 && System.nanoTime() - since > TimeUnit.MILLISECONDS.toNanos(sendTimeLimitMs)) {
+                    disconnect = "stalled";
+                } else if (policy == OverflowPolicy.COALESCE && frame.coalesceKey != null && replace(frame)) {
+                    shed("coalesced");
+                    return;
+                } else if (frames.size() >= maxFrames) {
+                    if (policy == OverflowPolicy.DISCONNECT) {
+                        disconnect = "overflow";
+                    } else if (frame.ephemeral) {
+                        shed("dropped");
+                        return;
+                    } else if (dropOldestEphemeral()) {
+                        shed("dropped");
+                    } else {
+                        disconnect = "overflow";
+                    }
+                }
+                if (disconnect == null) {
+                    frames.addLast(frame);
+                    queued.incrementAndGet();
+                    if (!scheduled) {
+                        scheduled = true;
+                        schedule = true;
+                    }
+                } else {
+                    closed = true;
+                    queued.addAndGet(-frames.size());
+                    frames.clear();
+                }
+                size = frames.size();
+            }
+            if (disconnect != null) {
+                disconnect(disconnect);
+                return;
+            }
+            if (depth != null) {
+                depth.record(size);
+            }
+            if (schedule) {
+                writers.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            for (int i = 0; i < drainBatch; i++) {
+                Frame frame;
+                synchronized (this) {
+                    frame = frames.pollFirst();
+                    if (frame == null) {
+                        scheduled = false;
+                        return;
+                    }
+                }
+                queued.decrementAndGet();
+                write(frame);
+            }
+            synchronized (this) {
+                if (frames.isEmpty()) {
+                    scheduled = false;
+                    return;
+                }
+            }
+            // Let other sessions' queues have the writer before continuing with this one
+            writers.execute(this);
+        }
+
+        void discard() {
+            synchronized (this) {
+                closed = true;
+                queued.addAndGet(-frames.size());
+                frames.clear();
+            }
+        }
+
+        private void write(Frame frame) {
+            if (!session.isOpen()) {
+                discard();
+                return;
+            }
+            long start = System.nanoTime();
+            writingSince = start;
+            try {
+                session.sendMessage(frame.message);
+                long end = System.nanoTime();
+                if (sendTime != null) {
+                    sendTime.record(end - start, TimeUnit.NANOSECONDS);
+                    deliveryTime.record(end - frame.enqueuedAt, TimeUnit.NANOSECONDS);
+                }
+            } catch (Exception ex) {
+                log.debug("Send to session {} failed, discarding its queue", session.getId(), ex);
+                discard();
+            } finally {
+                writingSince = 0;
+            }
+        }
+
+        private boolean replace(Frame frame) {
+            Iterator<Frame> it = frames.iterator();
+            while (it.hasNext()) {
+                if (frame.coalesceKey.equals(it.next().coalesceKey)) {
+                    it.remove();
+                    frames.addLast(frame);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean dropOldestEphemeral() {
+            Iterator<Frame> it = frames.iterator();
+            while (it.hasNext()) {
+                if (it.next().ephemeral) {
+                    it.remove();
+                    queued.decrementAndGet();
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void disconnect(String reason) {
+            shed("disconnected");
+            log.warn("Disconnecting slow session {} of user {} ({})", session.getId(), session.getAttributes().get("userId"), reason);
+            closer.execute(() -> {
+                try {
+                    session.close(CloseStatus.SESSION_NOT_RELIABLE);
+                } catch (Exception ex) {
+                    log.debug("Failed to close slow session {}", session.getId(), ex);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.websocket.ws.protocol;
+
+/**
+ * A client frame decoded by InboundFrameParser. Ids are validated; call signals keep the original payload,
+ * which is relayed to the peer unchanged.
+ */
+public sealed interface InboundFrame {
+
+    /**
+     * {"type":"join","conversationId":...}
+     */
+    record Join(String conversationId) implements InboundFrame {}
+
+    /**
+     * {"type":"typing_start"|"typing_stop","conversationId":...}
+     */
+    record Typing(String conversationId, boolean typing) implements InboundFrame {}
+
+    /**
+     * {"type":"call_offer"|"call_answer"|"call_ice_candidate","callId":...,"targetUserId":...,...}
+     */
+    record CallSignal(String type, String callId, String targetUserId, String payload) implements InboundFrame {}
+}
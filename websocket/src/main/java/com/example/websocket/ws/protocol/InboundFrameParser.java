@@ -0,0 +1,148 @@
+package com.example.websocket.ws.protocol;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.StreamReadConstraints;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Decodes client frames in one pass with a streaming JSON parser. Only the top-level fields the protocol uses
+ * are read; everything else (SDP offers, ICE candidates) is skipped without being materialized. When the
+ * frame starts with its type, as clients send it, an unknown type stops the parse right there.
+ *
+ * Each type has a decoder in a registry that checks its required ids and builds the typed frame. Ids are
+ * restricted to a safe character set, since they are written back into JSON frames for other clients.
+ */
+@Component
+public class InboundFrameParser {
+
+    private static final Pattern ID = Pattern.compile("[A-Za-z0-9_.:-]{1,128}");
+
+    private final JsonFactory jsonFactory;
+    private final int maxFrameChars;
+    private final Map<String, Decoder> decoders;
+    private final MeterRegistry registry;
+
+    @FunctionalInterface
+    private interface Decoder {
+        InboundFrame decode(Fields fields, String payload);
+    }
+
+    private static final class Fields {
+        private String type;
+        private String conversationId;
+        private String callId;
+        private String targetUserId;
+    }
+
+    public InboundFrameParser(ObjectProvider<MeterRegistry> meterRegistry,
+                              @Value("${app.ws.inbound.max-frame-chars:65536}") int maxFrameChars,
+                              @Value("${app.ws.inbound.max-depth:16}") int maxDepth) {
+        this.registry = meterRegistry.getIfAvailable();
+        this.maxFrameChars = maxFrameChars;
+        this.jsonFactory = JsonFactory.builder()
+                .streamReadConstraints(StreamReadConstraints.builder()
+                        .maxNestingDepth(maxDepth)
+                        .maxStringLength(maxFrameChars)
+                        .build())
+                .build();
+        this.decoders = Map.of(
+                "join", (fields, payload) -> new InboundFrame.Join(id(fields.conversationId, "conversationId")),
+                "typing_start", (fields, payload) -> new InboundFrame.Typing(id(fields.conversationId, "conversationId"), true),
+                "typing_stop", (fields, payload) -> new InboundFrame.Typing(id(fields.conversationId, "conversationId"), false),
+                "call_offer", this::callSignal,
+                "call_answer", this::callSignal,
+                "call_ice_candidate", this::callSignal);
+    }
+
+    /**
+     * Decode a frame; returns null for a well-formed frame of a type the server does not handle
+     *
+     * @throws InvalidFrameException when the frame is oversized, malformed or misses a required field
+     */
+    public InboundFrame parse(String payload) {
+        if (payload.length() > maxFrameChars) {
+            throw reject("too_large", "Frame of " + payload.length() + " chars exceeds " + maxFrameChars);
+        }
+        Fields fields = new Fields();
+        Decoder decoder = null;
+        try (JsonParser parser = jsonFactory.createParser(payload)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw reject("malformed", "Frame is not a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (name) {
+                    case "type" -> {
+                        if (fields.type != null) {
+                            throw reject("malformed", "Duplicate type");
+                        }
+                        fields.type = text(parser, value, name);
+                        decoder = fields.type != null ? decoders.get(fields.type) : null;
+                        if (decoder == null) {
+                            return null;
+                        }
+                    }
+                    case "conversationId" -> fields.conversationId = text(parser, value, name);
+                    case "callId" -> fields.callId = text(parser, value, name);
+                    case "targetUserId" -> fields.targetUserId = text(parser, value, name);
+                    default -> parser.skipChildren();
+                }
+            }
+            if (parser.currentToken() != JsonToken.END_OBJECT || parser.nextToken() != null) {
+                throw reject("malformed", "Trailing content after the frame");
+            }
+        } catch (JsonProcessingException ex) {
+            throw reject("malformed", ex.getOriginalMessage());
+        } catch (IOException ex) {
+            throw reject("malformed", ex.getMessage());
+        }
+        if (decoder == null) {
+            throw reject("missing_type", "Frame has no type");
+        }
+        return decoder.decode(fields, payload);
+    }
+
+    private InboundFrame callSignal(Fields fields, String payload) {
+        return new InboundFrame.CallSignal(fields.type,
+                id(fields.callId, "callId"),
+                id(fields.targetUserId, "targetUserId"),
+                payload);
+    }
+
+    private String text(JsonParser parser, JsonToken value, String field) throws IOException {
+        if (value == JsonToken.VALUE_STRING) {
+            return parser.getText();
+        }
+        if (value == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        throw reject("invalid_field", field + " must be a string");
+    }
+
+    private String id(String value, String field) {
+        if (value == null || !ID.matcher(value).matches()) {
+            throw reject("invalid_field", field + " is missing or invalid");
+        }
+        return value;
+    }
+
+    private InvalidFrameException reject(String reason, String message) {
+        if (registry != null) {
+            registry.counter("ws.inbound.rejected", "reason", reason).increment();
+        }
+        return new InvalidFrameException(reason, message);
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.websocket.ws.protocol;
+
+/**
+ * A client frame that is oversized, is not a JSON object, or misses a field its type requires
+ */
+public class InvalidFrameException extends RuntimeException {
+
+    private final String reason;
+
+    public InvalidFrameException(String reason, String message) {
+        super(message);
+        this.reason = reason;
+    }
+
+    /**
+     * Short metric-safe cause: too_large, malformed, missing_type or invalid_field
+     */
+    public String getReason() {
+        return reason;
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.websocket.cluster;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+
+class NodeIdentityTests {
+
+    private static NodeIdentity identity(String nodeId, String mode) {
+        return new NodeIdentity(nodeId, mode, "websocket-consumers", "earliest", "ws.node.");
+    }
+
+    @Test
+    void sharedModeKeepsOneGroupForAllNodes() {
+        NodeIdentity shared = identity("node-a", "shared");
+
+        assertThat(shared.getConsumerGroup()).isEqualTo("websocket-consumers");
+        assertThat(shared.getOffsetReset()).isEqualTo("earliest");
+        assertThat(shared.isDirectConsumer()).isTrue();
+        assertThat(shared.isPerNodeDelivery()).isFalse();
+    }
+
+    @Test
+    void broadcastModeGivesEveryNodeItsOwnGroupFromLatest() {
+        NodeIdentity a = identity("node-a", "broadcast");
+        NodeIdentity b = identity("node-b", "BROADCAST");
+
+        assertThat(a.getConsumerGroup()).isEqualTo("websocket-consumers-node-a");
+        assertThat(b.getConsumerGroup()).isEqualTo("websocket-consumers-node-b");
+        assertThat(a.getOffsetReset()).isEqualTo("latest");
+        assertThat(a.isDirectConsumer()).isTrue();
+        assertThat(a.isPerNodeDelivery()).isTrue();
+    }
+
+    @Test
+    void routedModeConsumesTheNodeTopic() {
+        NodeIdentity routed = identity("node-a", " routed ");
+
+        assertThat(routed.isDirectConsumer()).isFalse();
+        assertThat(routed.isPerNodeDelivery()).isTrue();
+        assertThat(routed.getRouterGroup()).isEqualTo("websocket-consumers-router");
+        assertThat(routed.getNodeGroup()).isEqualTo("websocket-consumers-node-a");
+        assertThat(routed.getNodeTopic()).isEqualTo("ws.node.node-a");
+    }
+
+    @Test
+    void generatesANodeIdWhenNoneIsConfigured() {
+        NodeIdentity first = identity("", "broadcast");
+        NodeIdentity second = identity(null, "broadcast");
+
+        assertThat(first.getNodeId()).isNotBlank();
+        assertThat(first.getNodeId()).isNotEqualTo(second.getNodeId());
+    }
+
+    @Test
+    void rejectsUnknownModes() {
+        assertThatThrownBy(() -> identity("node-a", "gossip")).isInstanceOf(IllegalArgumentException.class);
+    }
+}
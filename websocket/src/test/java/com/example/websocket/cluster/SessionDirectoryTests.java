@@ -0,0 +1,119 @@
+package com.example.websocket.cluster;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+
+class SessionDirectoryTests {
+
+    private static final long TTL_MS = 30_000;
+
+    private StringRedisTemplate redisTemplate;
+    private ZSetOperations<String, String> zSet;
+    private SessionDirectory directory;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        redisTemplate = mock(StringRedisTemplate.class);
+        zSet = mock(ZSetOperations.class);
+        when(redisTemplate.opsForZSet()).thenReturn(zSet);
+        directory = new SessionDirectory(redisTemplate, identity("routed"), TTL_MS);
+    }
+
+    private static NodeIdentity identity(String mode) {
+        return new NodeIdentity("node-a", mode, "websocket-consumers", "earliest", "ws.node.");
+    }
+
+    @Test
+    void registrationExpiresAfterTtl() {
+        long before = System.currentTimeMillis();
+        directory.registerUser("u1");
+        long after = System.currentTimeMillis();
+
+        ArgumentCaptor<Double> score = ArgumentCaptor.forClass(Double.class);
+        verify(zSet).add(eq("ws:dir:user:u1"), eq("node-a"), score.capture());
+        assertThat(score.getValue()).isBetween((double) before + TTL_MS, (double) after + TTL_MS);
+        verify(redisTemplate).expire("ws:dir:user:u1", Duration.ofMillis(TTL_MS * 2));
+    }
+
+    @Test
+    void lookupsSkipExpiredMembers() {
+        when(zSet.rangeByScore(eq("ws:dir:conv:c1"), anyDouble(), anyDouble())).thenReturn(Set.of("node-a", "node-b"));
+
+        long before = System.currentTimeMillis();
+        Set<String> nodes = directory.nodesForConversation("c1");
+        long after = System.currentTimeMillis();
+
+        ArgumentCaptor<Double> min = ArgumentCaptor.forClass(Double.class);
+        verify(zSet).rangeByScore(eq("ws:dir:conv:c1"), min.capture(), eq(Double.POSITIVE_INFINITY));
+        // Members scored below now have expired
+        assertThat(min.getValue()).isBetween((double) before, (double) after);
+        assertThat(nodes).containsExactlyInAnyOrder("node-a", "node-b");
+    }
+
+    @Test
+    void missingKeyHasNoNodes() {
+        when(zSet.rangeByScore(anyString(), anyDouble(), anyDouble())).thenReturn(null);
+
+        assertThat(directory.nodesForUser("u1")).isEmpty();
+    }
+
+    @Test
+    void registersOncePerNodeAndUnregistersWithTheLastSession() {
+        directory.registerConversation("c1");
+        directory.registerConversation("c1");
+        directory.unregisterConversation("c1");
+        directory.unregisterConversation("c1");
+
+        verify(zSet, times(1)).add(eq("ws:dir:conv:c1"), eq("node-a"), anyDouble());
+        verify(zSet, times(1)).remove("ws:dir:conv:c1", "node-a");
+    }
+
+    @Test
+    void heartbeatRefreshesLocalEntriesInOnePipeline() {
+        directory.registerUser("u1");
+        directory.registerConversation("c1");
+
+        directory.heartbeat();
+
+        verify(redisTemplate).executePipelined(any(RedisCallback.class));
+    }
+
+    @Test
+    void heartbeatWithoutLocalEntriesWritesNothing() {
+        directory.heartbeat();
+
+        verify(redisTemplate, never()).executePipelined(any(RedisCallback.class));
+    }
+
+    @Test
+    void otherModesDoNotTouchRedis() {
+        SessionDirectory shared = new SessionDirectory(redisTemplate, identity("shared"), TTL_MS);
+
+        shared.registerUser("u1");
+        shared.registerConversation("c1");
+        shared.heartbeat();
+
+        verifyNoInteractions(zSet);
+        verify(redisTemplate, never()).executePipelined(any(RedisCallback.class));
+    }
+}
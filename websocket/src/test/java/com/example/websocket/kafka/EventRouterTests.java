@@ -0,0 +1,110 @@
+package com.example.websocket.kafka;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.websocket.cluster.NodeIdentity;
+import com.example.websocket.cluster.SessionDirectory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+class EventRouterTests {
+
+    private SessionDirectory sessionDirectory;
+    private KafkaTemplate<String, String> kafkaTemplate;
+    private EventRouter router;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        sessionDirectory = mock(SessionDirectory.class);
+        kafkaTemplate = mock(KafkaTemplate.class);
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(CompletableFuture.completedFuture(null));
+        NodeIdentity identity = new NodeIdentity("node-a", "routed", "websocket-consumers", "earliest", "ws.node.");
+        router = new EventRouter(sessionDirectory, identity, kafkaTemplate,
+                new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class));
+        ReflectionTestUtils.setField(router, "ackTimeoutMs", 1000L);
+    }
+
+    @Test
+    void messageEventGoesToTheNodesOfItsConversation() throws Exception {
+        when(sessionDirectory.nodesForConversation("c1")).thenReturn(Set.of("node-a", "node-b"));
+        ConsumerRecord<String, String> record = new ConsumerRecord<>("message.events", 0, 42L, "c1", "{\"type\":\"MESSAGE_SENT\"}");
+        record.headers().add("messageId", "m1".getBytes(StandardCharsets.UTF_8));
+
+        router.routeMessageEvent(record);
+
+        List<ProducerRecord<String, String>> sent = sent(2);
+        assertThat(sent).extracting(ProducerRecord::topic).containsExactlyInAnyOrder("ws.node.node-a", "ws.node.node-b");
+        for (ProducerRecord<String, String> copy : sent) {
+            assertThat(copy.key()).isEqualTo("c1");
+            assertThat(copy.value()).isEqualTo(record.value());
+            assertThat(header(copy, "messageId")).isEqualTo("m1");
+            assertThat(header(copy, EventRouter.SOURCE_HEADER)).isEqualTo(EventRouter.SOURCE_MESSAGE);
+        }
+    }
+
+    @Test
+    void unkeyedUserEventIsRoutedByItsEnvelopeId() throws Exception {
+        when(sessionDirectory.nodesForUser("u1")).thenReturn(Set.of("node-b"));
+
+        router.routeUserEvent(new ConsumerRecord<>("user.events", 0, 1L, null, "{\"id\":\"u1\",\"type\":\"USER_UPDATED\"}"));
+
+        ProducerRecord<String, String> copy = sent(1).get(0);
+        assertThat(copy.topic()).isEqualTo("ws.node.node-b");
+        assertThat(header(copy, EventRouter.SOURCE_HEADER)).isEqualTo(EventRouter.SOURCE_USER);
+    }
+
+    @Test
+    void recordsWithoutListenersOrIdGoNowhere() throws Exception {
+        when(sessionDirectory.nodesForConversation("c1")).thenReturn(Set.of());
+
+        router.routeMessageEvent(new ConsumerRecord<>("message.events", 0, 1L, "c1", "{}"));
+        router.routeUserEvent(new ConsumerRecord<>("user.events", 0, 2L, null, "not json"));
+
+        verify(kafkaTemplate, never()).send(any(ProducerRecord.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void failedNodeSendFailsTheRecordSoItIsRetried() {
+        when(sessionDirectory.nodesForConversation("c1")).thenReturn(Set.of("node-a"));
+        when(kafkaTemplate.send(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+
+        assertThatThrownBy(() -> router.routeMessageEvent(new ConsumerRecord<>("message.events", 0, 1L, "c1", "{}")))
+                .isInstanceOf(ExecutionException.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<ProducerRecord<String, String>> sent(int count) {
+        ArgumentCaptor<ProducerRecord<String, String>> captor = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate, times(count)).send(captor.capture());
+        return captor.getAllValues();
+    }
+
+    private static String header(ProducerRecord<String, String> record, String name) {
+        return new String(record.headers().lastHeader(name).value(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.websocket.ws.protocol;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class InboundFrameParserTests {
+
+    private SimpleMeterRegistry registry;
+    private InboundFrameParser parser;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        parser = parser(256, 4);
+    }
+
+    private InboundFrameParser parser(int maxFrameChars, int maxDepth) {
+        StaticListableBeanFactory beans = new StaticListableBeanFactory(Map.of("meterRegistry", registry));
+        return new InboundFrameParser(beans.getBeanProvider(MeterRegistry.class), maxFrameChars, maxDepth);
+    }
+
+    @Test
+    void decodesJoinAndTyping() {
+        assertThat(parser.parse("{\"type\":\"join\",\"conversationId\":\"c-1\"}"))
+                .isEqualTo(new InboundFrame.Join("c-1"));
+        assertThat(parser.parse("{\"type\":\"typing_start\",\"conversationId\":\"c-1\"}"))
+                .isEqualTo(new InboundFrame.Typing("c-1", true));
+        assertThat(parser.parse("{\"conversationId\":\"c-1\",\"type\":\"typing_stop\"}"))
+                .isEqualTo(new InboundFrame.Typing("c-1", false));
+    }
+
+    @Test
+    void callSignalKeepsPayloadAndSkipsNestedFields() {
+        String payload = "{\"type\":\"call_offer\",\"callId\":\"call-1\",\"targetUserId\":\"u2\","
+                + "\"sdp\":{\"type\":\"offer\",\"lines\":[\"v=0\",\"o=- 1 2 IN IP4 0.0.0.0\"]}}";
+
+        InboundFrame frame = parser.parse(payload);
+
+        assertThat(frame).isEqualTo(new InboundFrame.CallSignal("call_offer", "call-1", "u2", payload));
+    }
+
+    @Test
+    void unknownTypeIsIgnored() {
+        assertThat(parser.parse("{\"type\":\"ping\",\"anything\":[1,2,3]}")).isNull();
+    }
+
+    @Test
+    void escapedQuotesDoNotEndStrings() {
+        InboundFrame frame = parser.parse(
+                "{\"type\":\"join\",\"note\":\"say \\\"type\\\":\\\"call_offer\\\"\",\"conversationId\":\"c-1\"}");
+
+        assertThat(frame).isEqualTo(new InboundFrame.Join("c-1"));
+    }
+
+    @Test
+    void escapedQuoteInAnIdIsRejected() {
+        assertThatThrownBy(() -> parser.parse("{\"type\":\"join\",\"conversationId\":\"c\\\",\\\"x\"}"))
+                .isInstanceOfSatisfying(InvalidFrameException.class,
+                        ex -> assertThat(ex.getReason()).isEqualTo("invalid_field"));
+    }
+
+    @Test
+    void duplicateTypeIsRejected() {
+        assertThatThrownBy(() -> parser.parse("{\"type\":\"join\",\"type\":\"call_offer\",\"conversationId\":\"c-1\"}"))
+                .isInstanceOfSatisfying(InvalidFrameException.class,
+                        ex -> assertThat(ex.getReason()).isEqualTo("malformed"));
+    }
+
+    @Test
+    void oversizedFrameIsRejectedBeforeParsing() {
+        String payload = "{\"type\":\"join\",\"conversationId\":\"" + "c".repeat(300) + "\"}";
+
+        assertThatThrownBy(() -> parser.parse(payload))
+                .isInstanceOfSatisfying(InvalidFrameException.class,
+                        ex -> assertThat(ex.getReason()).isEqualTo("too_large"));
+        assertThat(registry.counter("ws.inbound.rejected", "reason", "too_large").count()).isEqualTo(1);
+    }
+
+    @Test
+    void nestingBeyondMaxDepthIsRejected() {
+        assertThatThrownBy(() -> parser.parse("{\"type\":\"join\",\"x\":[[[[[1]]]]],\"conversationId\":\"c-1\"}"))
+                .isInstanceOfSatisfying(InvalidFrameException.class,
+                        ex -> assertThat(ex.getReason()).isEqualTo("malformed"));
+    }
+
+    @Test
+    void rejectsFramesWithoutRequiredFields() {
+        assertThatThrownBy(() -> parser.parse("{\"conversationId\":\"c-1\"}"))
+                .isInstanceOfSatisfying(InvalidFrameException.class,
+                        ex -> assertThat(ex.getReason()).isEqualTo("missing_type"));
+        assertThatThrownBy(() -> parser.parse("{\"type\":\"join\"}"))
+                .isInstanceOfSatisfying(InvalidFrameException.class,
+                        ex -> assertThat(ex.getReason()).isEqualTo("invalid_field"));
+        assertThatThrownBy(() -> parser.parse("{\"type\":\"join\",\"conversationId\":42}"))
+                .isInstanceOfSatisfying(InvalidFrameException.class,
+                        ex -> assertThat(ex.getReason()).isEqualTo("invalid_field"));
+        assertThatThrownBy(() -> parser.parse("{\"type\":\"call_answer\",\"callId\":\"call-1\"}"))
+                .isInstanceOfSatisfying(InvalidFrameException.class,
+                        ex -> assertThat(ex.getReason()).isEqualTo("invalid_field"));
+    }
+
+    @Test
+    void rejectsMalformedJson() {
+        assertThatThrownBy(() -> parser.parse("[\"join\"]"))
+                .isInstanceOfSatisfying(InvalidFrameException.class,
+                        ex -> assertThat(ex.getReason()).isEqualTo("malformed"));
+        assertThatThrownBy(() -> parser.parse("{\"type\":\"join\",\"conversationId\":\"c-1\"} {}"))
+                .isInstanceOfSatisfying(InvalidFrameException.class,
+                        ex -> assertThat(ex.getReason()).isEqualTo("malformed"));
+        assertThatThrownBy(() -> parser.parse("{\"conversationId\":\"c-1\",\"type\":\"join\""))
+                .isInstanceOfSatisfying(InvalidFrameException.class,
+                        ex -> assertThat(ex.getReason()).isEqualTo("malformed"));
+    }
+}